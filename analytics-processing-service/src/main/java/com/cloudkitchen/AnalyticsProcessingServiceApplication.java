@@ -5,6 +5,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main entry point for the Analytics Processing Service application.
@@ -15,8 +16,10 @@ import org.springframework.jdbc.core.JdbcTemplate;
  *   other beans, and various property settings.
  * - `@ComponentScan`: Tells Spring to look for other components, configurations, and services in the
  *   `com.cloudkitchen` package, allowing it to find and register controllers, services, and repositories.
+ * Scheduling is enabled for the `analytics.schedule-cron` runs.
  */
 @SpringBootApplication
+@EnableScheduling
 public class AnalyticsProcessingServiceApplication {
 
 	/**
@@ -28,10 +31,40 @@ public class AnalyticsProcessingServiceApplication {
 		SpringApplication.run(AnalyticsProcessingServiceApplication.class, args);
 	}
 
+	/**
+	 * Creates the analytics schema, the customer first-seen index and the rebuild partition table, and moves KPI tables
+	 * created before the switch to sequence-generated ids onto their pooled sequences.
+	 * @param jdbcTemplate The JDBC template used to run the DDL.
+	 * @return The runner.
+	 */
 	@Bean
 	public CommandLineRunner createSchema(JdbcTemplate jdbcTemplate) {
 		return args -> {
 			jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS analytics_schema");
+			useIdSequence(jdbcTemplate, "analytics_schema.daily_kpis", 50);
+			useIdSequence(jdbcTemplate, "analytics_schema.weekly_kpis", 50);
+			useIdSequence(jdbcTemplate, "analytics_schema.monthly_kpis", 50);
+			jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS analytics_schema.customer_first_seen ("
+					+ "phone_hash BIGINT PRIMARY KEY, first_day INTEGER NOT NULL, last_day INTEGER NOT NULL)");
+			jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS analytics_schema.kpi_partitions ("
+					+ "month_start DATE PRIMARY KEY, up_to_id BIGINT NOT NULL, order_count BIGINT NOT NULL DEFAULT 0, "
+					+ "owner VARCHAR(255), started_at TIMESTAMP, finished_at TIMESTAMP)");
 		};
 	}
+
+	/**
+	 * Points the `id` column of a table at its `<table>_seq` sequence instead of an identity column,
+	 * and moves the sequence past the largest existing id.
+	 * @param jdbcTemplate The JDBC template used to run the DDL.
+	 * @param table The schema-qualified table name.
+	 * @param allocationSize The increment matching the entity's `@SequenceGenerator`.
+	 */
+	private static void useIdSequence(JdbcTemplate jdbcTemplate, String table, int allocationSize) {
+		String sequence = table + "_seq";
+		jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " INCREMENT BY " + allocationSize);
+		jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+		jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+		jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', GREATEST((SELECT COALESCE(MAX(id), 0) FROM "
+				+ table + "), (SELECT last_value FROM " + sequence + ")))", Long.class);
+	}
 }
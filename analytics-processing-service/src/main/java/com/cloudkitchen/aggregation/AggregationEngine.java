@@ -0,0 +1,25 @@
+package com.cloudkitchen.aggregation;
+
+/**
+ * Where raw orders are grouped into period totals.
+ * The engine is configured via `analytics.engine`.
+ */
+public enum AggregationEngine {
+    /**
+     * Loads the orders as `RawOrdersData` entities and folds them into daily partials in the JVM.
+     * This is the original behaviour; heap use grows with the number of orders read.
+     */
+    JVM,
+
+    /**
+     * Runs a single query grouped by day in PostgreSQL and streams back one row per day,
+     * so heap use grows only with the number of days.
+     */
+    SQL,
+
+    /**
+     * Keeps the orders in memory as primitive columns (see `OrderColumns`), appends only newly ingested
+     * orders on each run, and sums them with loops over the arrays. Heap use is about 40 bytes per order.
+     */
+    COLUMNAR
+}
@@ -0,0 +1,53 @@
+package com.cloudkitchen.aggregation;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point helpers for money amounts held as a `long` number of paise (hundredths of a rupee).
+ * POS amounts are stored as `NUMERIC(.., 2)`, so every amount is a whole number of paise and sums of
+ * them are exact in a `long`. Accumulating in paise avoids allocating a `BigDecimal` per addition;
+ * amounts are converted back with {@link #toBigDecimal(long)} only when they are persisted.
+ */
+public final class Cents {
+
+    /**
+     * The number of decimal places of a paise amount.
+     */
+    private static final int SCALE = 2;
+
+    private Cents() {
+    }
+
+    /**
+     * Converts an amount to paise.
+     *
+     * @param amount The amount; `null` counts as zero.
+     * @return The amount in paise.
+     * @throws ArithmeticException If the amount has a fraction of a paisa or does not fit in a `long`.
+     */
+    public static long of(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * Adds two paise amounts.
+     *
+     * @param a The first amount in paise.
+     * @param b The second amount in paise.
+     * @return The sum in paise.
+     * @throws ArithmeticException If the sum overflows a `long`.
+     */
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Converts a paise amount back to a `BigDecimal` with two decimal places.
+     *
+     * @param cents The amount in paise.
+     * @return The amount in rupees.
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
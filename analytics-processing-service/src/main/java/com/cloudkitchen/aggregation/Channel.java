@@ -0,0 +1,77 @@
+package com.cloudkitchen.aggregation;
+
+import java.util.Locale;
+
+/**
+ * The sales channel of an order, derived from its `order_type` and `sub_order_type`.
+ * Aggregator orders carry the aggregator's name in `sub_order_type` (e.g. `Zomato`, `Swiggy`);
+ * takeaway orders are recognised by "pick" in either column (`Pick Up`, `Pickup`).
+ */
+public enum Channel {
+    /**
+     * Orders placed through Zomato.
+     */
+    ZOMATO,
+
+    /**
+     * Orders placed through Swiggy.
+     */
+    SWIGGY,
+
+    /**
+     * Orders collected by the customer.
+     */
+    PICKUP,
+
+    /**
+     * Every other order, e.g. dine-in or direct delivery.
+     */
+    OTHER;
+
+    /**
+     * SQL expression yielding the channel ordinal of a `raw_orders_data` row;
+     * must stay in line with {@link #classify(String, String)}.
+     */
+    public static final String SQL_ORDINAL = "CASE "
+            + "WHEN lower(sub_order_type) LIKE '%zomato%' THEN 0 "
+            + "WHEN lower(sub_order_type) LIKE '%swiggy%' THEN 1 "
+            + "WHEN lower(order_type) LIKE '%pick%' OR lower(sub_order_type) LIKE '%pick%' THEN 2 "
+            + "ELSE 3 END";
+
+    /**
+     * Cached `values()`, so lookups by ordinal do not copy the array.
+     */
+    private static final Channel[] VALUES = values();
+
+    /**
+     * Classifies an order by its order type and sub order type.
+     *
+     * @param orderType The order's `order_type`, may be `null`.
+     * @param subOrderType The order's `sub_order_type`, may be `null`.
+     * @return The channel.
+     */
+    public static Channel classify(String orderType, String subOrderType) {
+        String sub = subOrderType == null ? "" : subOrderType.toLowerCase(Locale.ROOT);
+        if (sub.contains("zomato")) {
+            return ZOMATO;
+        }
+        if (sub.contains("swiggy")) {
+            return SWIGGY;
+        }
+        String type = orderType == null ? "" : orderType.toLowerCase(Locale.ROOT);
+        if (type.contains("pick") || sub.contains("pick")) {
+            return PICKUP;
+        }
+        return OTHER;
+    }
+
+    /**
+     * Returns the channel with the given ordinal.
+     *
+     * @param ordinal The ordinal, as produced by {@link #SQL_ORDINAL}.
+     * @return The channel.
+     */
+    public static Channel ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
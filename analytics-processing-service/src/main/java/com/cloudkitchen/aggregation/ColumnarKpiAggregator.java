@@ -0,0 +1,73 @@
+package com.cloudkitchen.aggregation;
+
+import com.cloudkitchen.config.AnalyticsProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Aggregates orders from the in-memory {@link OrderColumns}: sums them per day and channel with loops
+ * over primitive arrays and collects customer days as {@link CustomerDayPairs}, so the per-order loop
+ * writes array slots only and allocates nothing per order. Only the orders ingested
+ * since the previous run are read from the database; a run starting from the first order reloads
+ * every order, which also picks up orders updated in place.
+ */
+@Component
+public class ColumnarKpiAggregator implements KpiAggregator {
+
+    /**
+     * The columnar copy of the raw orders.
+     */
+    @Autowired
+    private OrderColumns orderColumns;
+
+    /**
+     * Index of the days customers first and last ordered on in earlier runs.
+     */
+    @Autowired
+    private CustomerFirstSeenIndex customerFirstSeenIndex;
+
+    /**
+     * Analytics settings, used to decide whether months are aggregated in parallel.
+     */
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    /**
+     * Pool that aggregates the months in parallel.
+     */
+    @Autowired
+    private ForkJoinPool analyticsAggregationPool;
+
+    /**
+     * Returns the `COLUMNAR` engine.
+     * @return The aggregation engine.
+     */
+    @Override
+    public AggregationEngine getEngine() {
+        return AggregationEngine.COLUMNAR;
+    }
+
+    /**
+     * Brings the columns up to `upToId` and aggregates the orders in `(afterId, upToId]` from them.
+     * With `analytics.parallel` set, the months are summed in parallel on the aggregation pool.
+     * New and repeat customers are counted against the `CustomerFirstSeenIndex` as in the JVM engine.
+     * @param afterId The exclusive lower id bound; 0 reloads every order.
+     * @param upToId The inclusive upper id bound.
+     * @return The KPI partial of each day.
+     */
+    @Override
+    public DailyPartials aggregate(long afterId, long upToId) {
+        if (afterId == 0L) {
+            orderColumns.reload(upToId);
+        } else {
+            orderColumns.loadUpTo(upToId);
+        }
+        CustomerDayPairs customerDays = new CustomerDayPairs(0);
+        DailyPartials partials = orderColumns.aggregate(afterId, upToId, customerDays,
+                analyticsProperties.isParallel() ? analyticsAggregationPool : null);
+        customerFirstSeenIndex.countCustomers(partials, customerDays);
+        return partials;
+    }
+}
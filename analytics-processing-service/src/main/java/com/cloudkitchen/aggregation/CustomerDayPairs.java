@@ -0,0 +1,230 @@
+package com.cloudkitchen.aggregation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The days customers ordered on, as `(customer key, epoch day)` pairs in two primitive arrays. Adding a
+ * pair only writes two array slots, so an aggregation loop collects customer days without allocating per
+ * order; {@link #sortAndDedupe()} then groups the pairs by customer, with each customer's days ascending.
+ * Sorted lists from slices that share no pair, such as different months, are combined with
+ * {@link #mergeSorted(List)}.
+ */
+public final class CustomerDayPairs {
+
+    /**
+     * Runs of this many pairs are sorted by insertion before they are merged.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * The customer key of each pair; only the first {@link #size} entries are valid.
+     */
+    private long[] keys;
+
+    /**
+     * The epoch day of each pair; only the first {@link #size} entries are valid.
+     */
+    private int[] days;
+
+    /**
+     * Number of pairs held.
+     */
+    private int size;
+
+    /**
+     * Creates an empty list.
+     *
+     * @param capacity The number of pairs to make room for; the arrays double whenever full.
+     */
+    public CustomerDayPairs(int capacity) {
+        keys = new long[Math.max(1, capacity)];
+        days = new int[keys.length];
+    }
+
+    /**
+     * Appends a pair.
+     *
+     * @param key The customer key.
+     * @param epochDay The day the customer ordered on.
+     */
+    public void add(long key, int epochDay) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            days = Arrays.copyOf(days, size * 2);
+        }
+        keys[size] = key;
+        days[size] = epochDay;
+        size++;
+    }
+
+    /**
+     * Returns the number of pairs.
+     * @return The number of pairs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the customer key of a pair.
+     *
+     * @param index The pair index.
+     * @return The customer key.
+     */
+    public long key(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the epoch day of a pair.
+     *
+     * @param index The pair index.
+     * @return The epoch day.
+     */
+    public int day(int index) {
+        return days[index];
+    }
+
+    /**
+     * Sorts the pairs by customer key and then day, and drops duplicate pairs, in place.
+     */
+    public void sortAndDedupe() {
+        sort();
+        dedupe();
+    }
+
+    /**
+     * Drops duplicate pairs from sorted pairs, in place.
+     */
+    private void dedupe() {
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || keys[i] != keys[distinct - 1] || days[i] != days[distinct - 1]) {
+                keys[distinct] = keys[i];
+                days[distinct] = days[i];
+                distinct++;
+            }
+        }
+        size = distinct;
+    }
+
+    /**
+     * Replaces the pairs with the union of these pairs and the given lists, keeping them sorted and
+     * free of duplicates. This list and every given list must already be sorted and deduplicated.
+     *
+     * @param others The lists to merge in.
+     */
+    public void mergeSorted(List<CustomerDayPairs> others) {
+        int runCount = 1;
+        int total = size;
+        for (CustomerDayPairs run : others) {
+            runCount++;
+            total += run.size;
+        }
+        // Lay the runs out side by side, then merge neighbours pairwise between two buffers, so every
+        // level copies each pair once and no level allocates.
+        long[] sourceKeys = Arrays.copyOf(keys, Math.max(1, total));
+        int[] sourceDays = Arrays.copyOf(days, sourceKeys.length);
+        int[] bounds = new int[runCount + 1];
+        bounds[1] = size;
+        int run = 1;
+        for (CustomerDayPairs other : others) {
+            System.arraycopy(other.keys, 0, sourceKeys, bounds[run], other.size);
+            System.arraycopy(other.days, 0, sourceDays, bounds[run], other.size);
+            bounds[run + 1] = bounds[run] + other.size;
+            run++;
+        }
+        long[] targetKeys = new long[sourceKeys.length];
+        int[] targetDays = new int[sourceDays.length];
+        while (runCount > 1) {
+            int merged = 0;
+            for (run = 0; run < runCount; run += 2) {
+                int right = bounds[Math.min(run + 2, runCount)];
+                merge(sourceKeys, sourceDays, bounds[run], bounds[Math.min(run + 1, runCount)], right,
+                        targetKeys, targetDays);
+                bounds[++merged] = right;
+            }
+            runCount = merged;
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+            int[] swapDays = sourceDays;
+            sourceDays = targetDays;
+            targetDays = swapDays;
+        }
+        keys = sourceKeys;
+        days = sourceDays;
+        size = total;
+        dedupe();
+    }
+
+    /**
+     * Sorts the pairs: insertion-sorts short runs, then merges them bottom-up through a scratch copy,
+     * so the time stays `n log n` whatever order the rows arrived in.
+     */
+    private void sort() {
+        for (int runStart = 0; runStart < size; runStart += INSERTION_SORT_THRESHOLD) {
+            int runEnd = Math.min(runStart + INSERTION_SORT_THRESHOLD, size);
+            for (int i = runStart + 1; i < runEnd; i++) {
+                long key = keys[i];
+                int day = days[i];
+                int j = i;
+                for (; j > runStart && compare(key, day, keys[j - 1], days[j - 1]) < 0; j--) {
+                    keys[j] = keys[j - 1];
+                    days[j] = days[j - 1];
+                }
+                keys[j] = key;
+                days[j] = day;
+            }
+        }
+        if (size <= INSERTION_SORT_THRESHOLD) {
+            return;
+        }
+        long[] sourceKeys = keys;
+        int[] sourceDays = days;
+        long[] targetKeys = new long[keys.length];
+        int[] targetDays = new int[days.length];
+        for (int width = INSERTION_SORT_THRESHOLD; width < size; width *= 2) {
+            for (int left = 0; left < size; left += 2 * width) {
+                merge(sourceKeys, sourceDays, left, Math.min(left + width, size), Math.min(left + 2 * width, size),
+                        targetKeys, targetDays);
+            }
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+            int[] swapDays = sourceDays;
+            sourceDays = targetDays;
+            targetDays = swapDays;
+        }
+        keys = sourceKeys;
+        days = sourceDays;
+    }
+
+    /**
+     * Merges the sorted source ranges `[left, middle)` and `[middle, right)` into the same range of the target.
+     */
+    private static void merge(long[] sourceKeys, int[] sourceDays, int left, int middle, int right,
+                              long[] targetKeys, int[] targetDays) {
+        int i = left;
+        int j = middle;
+        for (int out = left; out < right; out++) {
+            if (j >= right || i < middle && compare(sourceKeys[i], sourceDays[i], sourceKeys[j], sourceDays[j]) <= 0) {
+                targetKeys[out] = sourceKeys[i];
+                targetDays[out] = sourceDays[i++];
+            } else {
+                targetKeys[out] = sourceKeys[j];
+                targetDays[out] = sourceDays[j++];
+            }
+        }
+    }
+
+    /**
+     * Compares two pairs by customer key and then day.
+     */
+    private static int compare(long keyA, int dayA, long keyB, int dayB) {
+        int order = Long.compare(keyA, keyB);
+        return order != 0 ? order : Integer.compare(dayA, dayB);
+    }
+}
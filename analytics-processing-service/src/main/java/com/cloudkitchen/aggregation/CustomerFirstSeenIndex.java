@@ -0,0 +1,314 @@
+package com.cloudkitchen.aggregation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * Persistent index of the first and last day each customer ordered on, kept in the narrow table
+ * `analytics_schema.customer_first_seen (phone_hash, first_day, last_day)` with days as epoch days.
+ * It lets an incremental run classify the customers of new orders as new or repeat with one
+ * primary-key probe per customer instead of rescanning the order history.
+ * <p>
+ * Customers are keyed by the first 64 bits of the MD5 of their trimmed phone number, which both Java
+ * ({@link #hash(String)}) and PostgreSQL ({@link #SQL_HASH}) compute, so either engine can maintain the
+ * index. With three fixed-width columns per customer it stays small at millions of customers, and
+ * a run only reads the rows of the customers in its own orders.
+ * <p>
+ * Two days per customer are not enough to count a customer at most once per day on their own. An
+ * incremental run skips a customer on their known first and last day, which an earlier run counted,
+ * and counts them on days outside that range. For a day strictly between the two, the index cannot
+ * tell whether an earlier run counted the customer there, so the day is marked for recount with
+ * {@link DailyPartials#markForRecount(LocalDate)}; an order before the known first day likewise marks
+ * the old first day, which must turn from new to repeat. Per-day correctness therefore relies on the
+ * incremental run recomputing the marked days from all their orders, as it does for dirty dates.
+ */
+@Component
+public class CustomerFirstSeenIndex {
+
+    /**
+     * SQL expression yielding the customer key of a `raw_orders_data` row, or `NULL` without a phone number;
+     * must stay in line with {@link #hash(String)}.
+     */
+    public static final String SQL_HASH = "CASE WHEN NULLIF(trim(phone), '') IS NULL THEN NULL "
+            + "ELSE CAST(CAST(('x' || substr(md5(trim(phone)), 1, 16)) AS bit(64)) AS bigint) END";
+
+    /**
+     * Value of {@link #firstDay(Map, long)} and {@link #lastDay(Map, long)} for a customer not in the index.
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /**
+     * Number of keys looked up or upserted per statement.
+     */
+    static final int CHUNK_SIZE = 10_000;
+
+    /**
+     * Fills the emptied index with the first and last order day of every customer up to an order id.
+     */
+    private static final String REBUILD_SQL = "INSERT INTO analytics_schema.customer_first_seen (phone_hash, first_day, last_day) "
+            + "SELECT phone_hash, MIN(epoch_day), MAX(epoch_day) FROM ("
+            + "SELECT " + SQL_HASH + " AS phone_hash, CAST(date AS date) - DATE '1970-01-01' AS epoch_day "
+            + "FROM raw_data_schema.raw_orders_data WHERE id <= ? AND date IS NOT NULL) o "
+            + "WHERE phone_hash IS NOT NULL GROUP BY phone_hash";
+
+    /**
+     * Looks up the known days of a set of customers.
+     */
+    private static final String LOOKUP_SQL = "SELECT phone_hash, first_day, last_day "
+            + "FROM analytics_schema.customer_first_seen WHERE phone_hash = ANY(?)";
+
+    /**
+     * Merges the days of a customer into the index.
+     */
+    private static final String RECORD_SQL = "INSERT INTO analytics_schema.customer_first_seen AS f "
+            + "(phone_hash, first_day, last_day) VALUES (?, ?, ?) "
+            + "ON CONFLICT (phone_hash) DO UPDATE SET "
+            + "first_day = LEAST(f.first_day, EXCLUDED.first_day), last_day = GREATEST(f.last_day, EXCLUDED.last_day)";
+
+    /**
+     * JDBC template used to read and write the index.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the customer key of a phone number.
+     *
+     * @param phone The phone number; surrounding whitespace is ignored.
+     * @return The first 64 bits of the MD5 of the trimmed number, big-endian.
+     */
+    public static long hash(String phone) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(phone.trim().getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest, 0, Long.BYTES).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    /**
+     * Empties the index, before a run that rebuilds all KPIs from the whole order history.
+     * Runs in the caller's transaction.
+     */
+    public void clear() {
+        jdbcTemplate.execute("TRUNCATE analytics_schema.customer_first_seen");
+    }
+
+    /**
+     * Rebuilds the index from all orders with ids up to `upToId` in one statement, so days can then be
+     * aggregated in any order against the final first order days. Runs in the caller's transaction.
+     *
+     * @param upToId The inclusive upper id bound.
+     * @return The number of customers indexed.
+     */
+    public int rebuild(long upToId) {
+        clear();
+        return jdbcTemplate.update(REBUILD_SQL, upToId);
+    }
+
+    /**
+     * Looks up the known first and last days of the given customers.
+     *
+     * @param keys The customer keys.
+     * @return The `{firstDay, lastDay}` epoch days of each known customer.
+     */
+    public Map<Long, int[]> lookup(long[] keys) {
+        Map<Long, int[]> known = new HashMap<>();
+        for (int from = 0; from < keys.length; from += CHUNK_SIZE) {
+            Long[] chunk = new Long[Math.min(CHUNK_SIZE, keys.length - from)];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = keys[from + i];
+            }
+            jdbcTemplate.query(LOOKUP_SQL, ps -> {
+                Array array = ps.getConnection().createArrayOf("bigint", chunk);
+                ps.setArray(1, array);
+            }, rs -> {
+                known.put(rs.getLong(1), new int[] {rs.getInt(2), rs.getInt(3)});
+            });
+        }
+        return known;
+    }
+
+    /**
+     * Merges the first and last order days seen in a run into the index. Runs in the caller's transaction.
+     *
+     * @param days The `{firstDay, lastDay}` epoch days seen for each customer key.
+     */
+    public void record(Map<Long, int[]> days) {
+        List<Map.Entry<Long, int[]>> rows = new ArrayList<>(days.entrySet());
+        jdbcTemplate.batchUpdate(RECORD_SQL, rows, CHUNK_SIZE, (ps, row) -> {
+            ps.setLong(1, row.getKey());
+            ps.setInt(2, row.getValue()[0]);
+            ps.setInt(3, row.getValue()[1]);
+        });
+    }
+
+    /**
+     * Counts each customer as new or repeat on the days they ordered on in a run and records those days.
+     * Days the index shows an earlier run already counted are skipped, and days it cannot settle are
+     * marked for recount (see the class comment). Customers are looked up, counted and recorded
+     * {@link #CHUNK_SIZE} at a time, so the heap this takes beyond `customerDays` does not grow with it.
+     * Runs in the caller's transaction.
+     *
+     * @param partials The daily partials of the run, which receive the customer counts.
+     * @param customerDays The epoch days each customer key ordered on in the run.
+     */
+    public void countCustomers(DailyPartials partials, Map<Long, NavigableSet<Integer>> customerDays) {
+        Iterator<Map.Entry<Long, NavigableSet<Integer>>> entries = customerDays.entrySet().iterator();
+        List<Map.Entry<Long, NavigableSet<Integer>>> chunk = new ArrayList<>(Math.min(CHUNK_SIZE, customerDays.size()));
+        while (entries.hasNext()) {
+            chunk.clear();
+            while (entries.hasNext() && chunk.size() < CHUNK_SIZE) {
+                chunk.add(entries.next());
+            }
+            Map<Long, int[]> known = lookup(chunk.stream().mapToLong(Map.Entry::getKey).toArray());
+            Map<Long, int[]> seen = new HashMap<>();
+            for (Map.Entry<Long, NavigableSet<Integer>> entry : chunk) {
+                long key = entry.getKey();
+                NavigableSet<Integer> days = entry.getValue();
+                int knownFirst = firstDay(known, key);
+                int knownLast = lastDay(known, key);
+                int first = firstOrderDay(partials, knownFirst, days.first());
+                for (int day : days) {
+                    countDay(partials, day, first, knownFirst, knownLast);
+                }
+                seen.put(key, new int[] {days.first(), days.last()});
+            }
+            record(seen);
+        }
+    }
+
+    /**
+     * Counts each customer as new or repeat on the days they ordered on in a run and records those days,
+     * like {@link #countCustomers(DailyPartials, Map)}.
+     *
+     * @param partials The daily partials of the run, which receive the customer counts.
+     * @param customerDays The epoch days each customer key ordered on in the run, sorted and deduplicated.
+     */
+    public void countCustomers(DailyPartials partials, CustomerDayPairs customerDays) {
+        int pairCount = customerDays.size();
+        // Pairs are grouped by customer with days ascending, so each group runs from first to last day.
+        int chunkStart = 0;
+        while (chunkStart < pairCount) {
+            int chunkEnd = chunkStart;
+            int customerCount = 0;
+            while (chunkEnd < pairCount && customerCount < CHUNK_SIZE) {
+                long key = customerDays.key(chunkEnd);
+                while (chunkEnd < pairCount && customerDays.key(chunkEnd) == key) {
+                    chunkEnd++;
+                }
+                customerCount++;
+            }
+            long[] keys = new long[customerCount];
+            for (int i = chunkStart, customer = 0; i < chunkEnd; i++) {
+                if (i == chunkStart || customerDays.key(i) != customerDays.key(i - 1)) {
+                    keys[customer++] = customerDays.key(i);
+                }
+            }
+            Map<Long, int[]> known = lookup(keys);
+            Map<Long, int[]> seen = new HashMap<>();
+            int groupStart = chunkStart;
+            while (groupStart < chunkEnd) {
+                long key = customerDays.key(groupStart);
+                int groupEnd = groupStart + 1;
+                while (groupEnd < chunkEnd && customerDays.key(groupEnd) == key) {
+                    groupEnd++;
+                }
+                int knownFirst = firstDay(known, key);
+                int knownLast = lastDay(known, key);
+                int runFirst = customerDays.day(groupStart);
+                int runLast = customerDays.day(groupEnd - 1);
+                int first = firstOrderDay(partials, knownFirst, runFirst);
+                for (int i = groupStart; i < groupEnd; i++) {
+                    countDay(partials, customerDays.day(i), first, knownFirst, knownLast);
+                }
+                seen.put(key, new int[] {runFirst, runLast});
+                groupStart = groupEnd;
+            }
+            record(seen);
+            chunkStart = chunkEnd;
+        }
+    }
+
+    /**
+     * Returns a customer's first order day, including a run, and marks the known first day for recount if
+     * the run has an older order: that day must turn from new to repeat.
+     *
+     * @param partials The daily partials of the run.
+     * @param knownFirst The first day in the index, or {@link #UNKNOWN}.
+     * @param runFirst The customer's first order day in the run.
+     * @return The customer's first order day.
+     */
+    static int firstOrderDay(DailyPartials partials, int knownFirst, int runFirst) {
+        if (knownFirst == UNKNOWN) {
+            return runFirst;
+        }
+        if (runFirst < knownFirst) {
+            partials.markForRecount(LocalDate.ofEpochDay(knownFirst));
+            return runFirst;
+        }
+        return knownFirst;
+    }
+
+    /**
+     * Counts a customer on one day of a run as new or repeat, skips the day if an earlier run counted the
+     * customer on it, or marks it for recount if the index cannot tell.
+     *
+     * @param partials The daily partials of the run.
+     * @param day The epoch day the customer ordered on.
+     * @param first The customer's first order day, including this run.
+     * @param knownFirst The first day in the index, or {@link #UNKNOWN}.
+     * @param knownLast The last day in the index, or {@link #UNKNOWN}.
+     */
+    static void countDay(DailyPartials partials, int day, int first, int knownFirst, int knownLast) {
+        if (knownFirst != UNKNOWN && day >= knownFirst && day <= knownLast) {
+            if (day != knownFirst && day != knownLast) {
+                partials.markForRecount(LocalDate.ofEpochDay(day));
+            }
+            return; // the first and last day were already counted by an earlier run
+        }
+        if (day == first) {
+            partials.partialFor(LocalDate.ofEpochDay(day)).addNewCustomer();
+        } else {
+            partials.partialFor(LocalDate.ofEpochDay(day)).addRepeatCustomer();
+        }
+    }
+
+    /**
+     * Returns the known first day of a customer from a lookup result.
+     *
+     * @param known The result of {@link #lookup(long[])}.
+     * @param key The customer key.
+     * @return The first epoch day, or {@link #UNKNOWN}.
+     */
+    public static int firstDay(Map<Long, int[]> known, long key) {
+        int[] days = known.get(key);
+        return days == null ? UNKNOWN : days[0];
+    }
+
+    /**
+     * Returns the known last day of a customer from a lookup result.
+     *
+     * @param known The result of {@link #lookup(long[])}.
+     * @param key The customer key.
+     * @return The last epoch day, or {@link #UNKNOWN}.
+     */
+    public static int lastDay(Map<Long, int[]> known, long key) {
+        int[] days = known.get(key);
+        return days == null ? UNKNOWN : days[1];
+    }
+}
@@ -0,0 +1,103 @@
+package com.cloudkitchen.aggregation;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Per-day KPI partials produced by one scan over raw orders. Every other grain is derived
+ * from them with {@link #rollup(Grain)}, which touches one entry per day instead of one per order.
+ */
+public class DailyPartials {
+
+    /**
+     * The partial of each calendar day that has orders.
+     */
+    private final NavigableMap<LocalDate, KpiPartial> days = new TreeMap<>();
+
+    /**
+     * Days whose customer counts the scan could not settle from the customer index alone.
+     */
+    private final NavigableSet<LocalDate> recountDays = new TreeSet<>();
+
+    /**
+     * Returns the partial of the given day, creating an empty one if needed.
+     *
+     * @param day The calendar day.
+     * @return The day's partial.
+     */
+    public KpiPartial partialFor(LocalDate day) {
+        return days.computeIfAbsent(day, d -> new KpiPartial());
+    }
+
+    /**
+     * Merges the partials of another scan, e.g. of a different slice of orders, into these.
+     *
+     * @param other The partials to merge in.
+     */
+    public void merge(DailyPartials other) {
+        other.days.forEach((day, partial) -> partialFor(day).merge(partial));
+        recountDays.addAll(other.recountDays);
+    }
+
+    /**
+     * Marks a day whose customers must be recounted from all its orders, because an incremental scan
+     * cannot tell from the customer index whether an earlier run already counted a customer on it.
+     *
+     * @param day The calendar day.
+     */
+    public void markForRecount(LocalDate day) {
+        recountDays.add(day);
+    }
+
+    /**
+     * Returns the days marked with {@link #markForRecount(LocalDate)}.
+     * @return An unmodifiable view ordered by day.
+     */
+    public NavigableSet<LocalDate> getRecountDays() {
+        return Collections.unmodifiableNavigableSet(recountDays);
+    }
+
+    /**
+     * Returns the daily partials.
+     * @return An unmodifiable view keyed and ordered by day.
+     */
+    public NavigableMap<LocalDate, KpiPartial> getDays() {
+        return Collections.unmodifiableNavigableMap(days);
+    }
+
+    /**
+     * Returns whether no day has any orders.
+     * @return `true` if there are no partials.
+     */
+    public boolean isEmpty() {
+        return days.isEmpty();
+    }
+
+    /**
+     * Returns the number of orders aggregated into these partials.
+     * @return The total order count.
+     */
+    public long getOrderCount() {
+        return days.values().stream().mapToLong(KpiPartial::getOrderCount).sum();
+    }
+
+    /**
+     * Rolls the daily partials up to the given grain.
+     *
+     * @param grain The grain to roll up to.
+     * @return The merged partials keyed and ordered by period start; the daily partials themselves for `DAY`.
+     */
+    public NavigableMap<LocalDate, KpiPartial> rollup(Grain grain) {
+        if (grain == Grain.DAY) {
+            return getDays();
+        }
+        NavigableMap<LocalDate, KpiPartial> periods = new TreeMap<>();
+        days.forEach((day, partial) ->
+                periods.computeIfAbsent(grain.periodStart(day), start -> new KpiPartial()).merge(partial));
+        return periods;
+    }
+}
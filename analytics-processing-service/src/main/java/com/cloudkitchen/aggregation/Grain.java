@@ -0,0 +1,70 @@
+package com.cloudkitchen.aggregation;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * A reporting period length. Each grain maps a calendar day to the first day of the period containing it,
+ * which is the key KPI rows are stored under. Coarser grains are rolled up from daily partials,
+ * so adding a grain (quarter, year, ...) needs no extra pass over the orders.
+ */
+public enum Grain {
+    /**
+     * A single calendar day.
+     */
+    DAY {
+        @Override
+        public LocalDate periodStart(LocalDate day) {
+            return day;
+        }
+    },
+
+    /**
+     * An ISO week, starting on Monday.
+     */
+    WEEK {
+        @Override
+        public LocalDate periodStart(LocalDate day) {
+            return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+    },
+
+    /**
+     * A calendar month.
+     */
+    MONTH {
+        @Override
+        public LocalDate periodStart(LocalDate day) {
+            return day.withDayOfMonth(1);
+        }
+    },
+
+    /**
+     * A calendar quarter (January, April, July, October).
+     */
+    QUARTER {
+        @Override
+        public LocalDate periodStart(LocalDate day) {
+            return LocalDate.of(day.getYear(), day.getMonth().firstMonthOfQuarter(), 1);
+        }
+    },
+
+    /**
+     * A calendar year.
+     */
+    YEAR {
+        @Override
+        public LocalDate periodStart(LocalDate day) {
+            return day.withDayOfYear(1);
+        }
+    };
+
+    /**
+     * Returns the first day of the period of this grain that contains the given day.
+     *
+     * @param day A calendar day.
+     * @return The start of the enclosing period.
+     */
+    public abstract LocalDate periodStart(LocalDate day);
+}
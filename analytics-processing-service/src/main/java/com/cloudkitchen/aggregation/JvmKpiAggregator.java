@@ -0,0 +1,108 @@
+package com.cloudkitchen.aggregation;
+
+import com.cloudkitchen.config.AnalyticsProperties;
+import com.cloudkitchen.model.RawOrdersData;
+import com.cloudkitchen.repository.RawOrdersDataRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+/**
+ * Aggregates orders in the JVM: streams them as entities and folds each one into the partial of its day.
+ * <p>
+ * Orders are fetched in batches and detached once folded, so the heap holds one batch of orders, the
+ * daily partials and the customer days. The customer days grow with the data and are kept under
+ * `analytics.heap-budget` by a {@link SpillableCustomerDays}, which spills them to disk past the budget.
+ */
+@Component
+public class JvmKpiAggregator implements KpiAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(JvmKpiAggregator.class);
+
+    /**
+     * Repository for `RawOrdersData` entities, used to fetch raw order data for KPI calculations.
+     */
+    @Autowired
+    private RawOrdersDataRepository rawOrdersDataRepository;
+
+    /**
+     * Index of the days customers first and last ordered on in earlier runs.
+     */
+    @Autowired
+    private CustomerFirstSeenIndex customerFirstSeenIndex;
+
+    /**
+     * Analytics settings, used for the heap budget and the spill directory.
+     */
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    /**
+     * Entity manager the streamed orders are detached from once folded.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Returns the `JVM` engine.
+     * @return The aggregation engine.
+     */
+    @Override
+    public AggregationEngine getEngine() {
+        return AggregationEngine.JVM;
+    }
+
+    /**
+     * Streams the orders in `(afterId, upToId]` and folds them into daily partials in one pass,
+     * collecting the days each customer (by phone) ordered on along the way. New and repeat
+     * customers are then counted from those days and the customers' known days in the
+     * `CustomerFirstSeenIndex`, which is updated with the days seen; if the days were spilled,
+     * one hash partition of customers at a time. Must run inside a transaction.
+     * `Timestamp.toLocalDateTime()` reads the local date fields directly, giving the same day as
+     * converting through the system time zone without building a `ZonedDateTime` per order.
+     * @param afterId The exclusive lower id bound.
+     * @param upToId The inclusive upper id bound.
+     * @return The KPI partial of each day.
+     */
+    @Override
+    public DailyPartials aggregate(long afterId, long upToId) {
+        DailyPartials partials = new DailyPartials();
+        try (SpillableCustomerDays customerDays = new SpillableCustomerDays(
+                analyticsProperties.getHeapBudget().toBytes(), spillDirectory(), analyticsProperties.getSpillPartitions());
+             Stream<RawOrdersData> orders = rawOrdersDataRepository.streamByIdGreaterThanAndIdLessThanEqual(afterId, upToId)) {
+            orders.forEach(order -> {
+                LocalDate day = order.getDate().toLocalDateTime().toLocalDate();
+                partials.partialFor(day).addOrder(order.getNetSales(),
+                        Channel.classify(order.getOrderType(), order.getSubOrderType()));
+                if (order.getPhone() != null && !order.getPhone().isBlank()) {
+                    customerDays.add(CustomerFirstSeenIndex.hash(order.getPhone()), (int) day.toEpochDay());
+                }
+                entityManager.detach(order);
+            });
+            if (customerDays.getSpillCount() > 0) {
+                log.info("Customer days exceeded the {} heap budget and were spilled {} times",
+                        analyticsProperties.getHeapBudget(), customerDays.getSpillCount());
+            }
+            customerDays.forEachPartition(partition -> customerFirstSeenIndex.countCustomers(partials, partition));
+        }
+        return partials;
+    }
+
+    /**
+     * Returns the directory customer days are spilled to.
+     */
+    private Path spillDirectory() {
+        String spillDir = analyticsProperties.getSpillDir();
+        return spillDir == null || spillDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "analytics-spill")
+                : Paths.get(spillDir);
+    }
+}
@@ -0,0 +1,24 @@
+package com.cloudkitchen.aggregation;
+
+/**
+ * Groups raw orders into per-day KPI partials in a single scan.
+ * Coarser grains are rolled up from the result with {@link DailyPartials#rollup(Grain)}.
+ */
+public interface KpiAggregator {
+    /**
+     * Returns the engine this aggregator implements.
+     * @return The aggregation engine.
+     */
+    AggregationEngine getEngine();
+
+    /**
+     * Aggregates the orders whose id lies in `(afterId, upToId]`.
+     * Customers are classified as new or repeat against the `CustomerFirstSeenIndex`,
+     * which is updated with the days seen, in the caller's transaction.
+     *
+     * @param afterId The exclusive lower id bound; 0 to start from the first order.
+     * @param upToId The inclusive upper id bound.
+     * @return The KPI partial of each day that has orders.
+     */
+    DailyPartials aggregate(long afterId, long upToId);
+}
@@ -0,0 +1,174 @@
+package com.cloudkitchen.aggregation;
+
+import java.math.BigDecimal;
+
+/**
+ * Mergeable KPI accumulator for one period. Every metric is a sum, so the partials of
+ * several days (or of several scans) combine into the partial of a longer period with {@link #merge}.
+ * <p>
+ * Customer metrics are filled in by the aggregators, which know each customer's first order day:
+ * a customer is new on that day and repeat on every later day they order on. Rolled up to a
+ * longer period they count customer-days rather than distinct customers.
+ * <p>
+ * Revenue is accumulated as a `long` number of paise (see {@link Cents}), so adding an order
+ * allocates nothing; the getters convert back to `BigDecimal` for persisting.
+ */
+public class KpiPartial {
+
+    /**
+     * Sum of the net sales of the orders in the period, in paise.
+     */
+    private long totalRevenueCents;
+
+    /**
+     * Sum of the net sales per channel in paise, indexed by `Channel` ordinal.
+     */
+    private final long[] channelRevenueCents = new long[Channel.values().length];
+
+    /**
+     * Number of orders in the period.
+     */
+    private long orderCount;
+
+    /**
+     * Number of customers whose first order falls on the day.
+     */
+    private long newCustomerCount;
+
+    /**
+     * Number of customers ordering on the day who had ordered on an earlier day.
+     */
+    private long repeatCustomerCount;
+
+    /**
+     * Adds one order to the partial.
+     *
+     * @param netSales The order's net sales; `null` counts as zero.
+     * @param channel The order's sales channel.
+     * @throws ArithmeticException If the amount has a fraction of a paisa or a sum overflows.
+     */
+    public void addOrder(BigDecimal netSales, Channel channel) {
+        addOrderCents(Cents.of(netSales), channel);
+    }
+
+    /**
+     * Adds one order whose net sales are already in paise.
+     *
+     * @param netSalesCents The order's net sales in paise.
+     * @param channel The order's sales channel.
+     * @throws ArithmeticException If a sum overflows.
+     */
+    public void addOrderCents(long netSalesCents, Channel channel) {
+        orderCount++;
+        totalRevenueCents = Cents.add(totalRevenueCents, netSalesCents);
+        channelRevenueCents[channel.ordinal()] = Cents.add(channelRevenueCents[channel.ordinal()], netSalesCents);
+    }
+
+    /**
+     * Adds the already summed revenue and order count of one channel, e.g. as grouped by the database.
+     *
+     * @param channel The sales channel.
+     * @param revenue The channel's net sales in the period.
+     * @param orders The channel's number of orders in the period.
+     * @throws ArithmeticException If the revenue has a fraction of a paisa or a sum overflows.
+     */
+    public void addChannelTotals(Channel channel, BigDecimal revenue, long orders) {
+        addChannelTotalsCents(channel, Cents.of(revenue), orders);
+    }
+
+    /**
+     * Adds the already summed revenue, in paise, and order count of one channel.
+     *
+     * @param channel The sales channel.
+     * @param revenueCents The channel's net sales in the period, in paise.
+     * @param orders The channel's number of orders in the period.
+     * @throws ArithmeticException If a sum overflows.
+     */
+    public void addChannelTotalsCents(Channel channel, long revenueCents, long orders) {
+        orderCount += orders;
+        totalRevenueCents = Cents.add(totalRevenueCents, revenueCents);
+        channelRevenueCents[channel.ordinal()] = Cents.add(channelRevenueCents[channel.ordinal()], revenueCents);
+    }
+
+    /**
+     * Counts a customer as new in the period.
+     */
+    public void addNewCustomer() {
+        newCustomerCount++;
+    }
+
+    /**
+     * Counts a customer as repeat in the period.
+     */
+    public void addRepeatCustomer() {
+        repeatCustomerCount++;
+    }
+
+    /**
+     * Adds customer counts, e.g. as computed by the database.
+     *
+     * @param newCustomers The number of new customers to add.
+     * @param repeatCustomers The number of repeat customers to add.
+     */
+    public void addCustomers(long newCustomers, long repeatCustomers) {
+        newCustomerCount += newCustomers;
+        repeatCustomerCount += repeatCustomers;
+    }
+
+    /**
+     * Adds another partial's metrics to this one.
+     *
+     * @param other The partial to merge in.
+     * @throws ArithmeticException If a sum overflows.
+     */
+    public void merge(KpiPartial other) {
+        totalRevenueCents = Cents.add(totalRevenueCents, other.totalRevenueCents);
+        for (int i = 0; i < channelRevenueCents.length; i++) {
+            channelRevenueCents[i] = Cents.add(channelRevenueCents[i], other.channelRevenueCents[i]);
+        }
+        orderCount += other.orderCount;
+        newCustomerCount += other.newCustomerCount;
+        repeatCustomerCount += other.repeatCustomerCount;
+    }
+
+    /**
+     * Returns the total revenue accumulated so far.
+     * @return The sum of net sales.
+     */
+    public BigDecimal getTotalRevenue() {
+        return Cents.toBigDecimal(totalRevenueCents);
+    }
+
+    /**
+     * Returns the revenue of one channel accumulated so far.
+     * @param channel The sales channel.
+     * @return The sum of net sales of the channel's orders.
+     */
+    public BigDecimal getChannelRevenue(Channel channel) {
+        return Cents.toBigDecimal(channelRevenueCents[channel.ordinal()]);
+    }
+
+    /**
+     * Returns the number of orders accumulated so far.
+     * @return The order count.
+     */
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * Returns the number of customers whose first order falls in the period.
+     * @return The new customer count.
+     */
+    public long getNewCustomerCount() {
+        return newCustomerCount;
+    }
+
+    /**
+     * Returns the number of customers ordering in the period who had ordered before it.
+     * @return The repeat customer count.
+     */
+    public long getRepeatCustomerCount() {
+        return repeatCustomerCount;
+    }
+}
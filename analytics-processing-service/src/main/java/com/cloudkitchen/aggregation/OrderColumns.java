@@ -0,0 +1,470 @@
+package com.cloudkitchen.aggregation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * In-memory columnar copy of `raw_orders_data` used by the `COLUMNAR` engine. Each order is one index
+ * into a set of primitive arrays: its id, epoch day, net sales in paise, channel ordinal, customer key
+ * and dictionary codes for `area`, `order_type` and `payment_type`. That is about 40 bytes per order
+ * against several hundred for a `RawOrdersData` entity, so ten million orders take roughly 400 MB.
+ * <p>
+ * The columns are filled by {@link #loadUpTo(long)}, which appends only the orders above the highest id
+ * loaded so far, and rebuilt by {@link #reload(long)}. Like the watermark, appending relies on raw order
+ * ids growing with ingestion time: orders updated in place by an `UPSERT` upload are picked up by the
+ * next reload. Rows are kept in id order, so the orders of an id range are a contiguous slice.
+ * Orders without a date are skipped, as in the other engines.
+ */
+@Component
+public class OrderColumns {
+
+    /**
+     * Initial capacity of the columns; they double whenever full.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    /**
+     * Number of rows fetched per round trip while loading.
+     */
+    private static final int FETCH_SIZE = 10_000;
+
+    /**
+     * Reads the columns of the orders in `(afterId, upToId]` in id order.
+     */
+    private static final String LOAD_SQL = "SELECT id, CAST(date AS date) - DATE '1970-01-01' AS epoch_day, net_sales, "
+            + Channel.SQL_ORDINAL + " AS channel, " + CustomerFirstSeenIndex.SQL_HASH + " AS phone_hash, "
+            + "area, order_type, payment_type "
+            + "FROM raw_data_schema.raw_orders_data "
+            + "WHERE id > ? AND id <= ? AND date IS NOT NULL ORDER BY id";
+
+    /**
+     * JDBC template used to read the raw orders.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Number of orders held.
+     */
+    private int size;
+
+    /**
+     * Highest raw order id loaded so far.
+     */
+    private long loadedUpToId;
+
+    /**
+     * Raw order id of each row, ascending.
+     */
+    private long[] ids = new long[INITIAL_CAPACITY];
+
+    /**
+     * Order day of each row, as an epoch day.
+     */
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+
+    /**
+     * Net sales of each row, in paise.
+     */
+    private long[] netSalesCents = new long[INITIAL_CAPACITY];
+
+    /**
+     * `Channel` ordinal of each row.
+     */
+    private byte[] channels = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Customer key of each row (see `CustomerFirstSeenIndex`); only meaningful where {@link #hasPhone} is set.
+     */
+    private long[] phoneHashes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Rows that have a phone number.
+     */
+    private final BitSet hasPhone = new BitSet();
+
+    /**
+     * The rows of each month, in ascending row order, keyed by `year * 12 + month - 1`.
+     */
+    private final Map<Integer, RowList> monthRows = new TreeMap<>();
+
+    /**
+     * Dictionary code of each row's `area`.
+     */
+    private short[] areaCodes = new short[INITIAL_CAPACITY];
+
+    /**
+     * Dictionary code of each row's `order_type`.
+     */
+    private short[] orderTypeCodes = new short[INITIAL_CAPACITY];
+
+    /**
+     * Dictionary code of each row's `payment_type`.
+     */
+    private short[] paymentTypeCodes = new short[INITIAL_CAPACITY];
+
+    /**
+     * Distinct `area` values.
+     */
+    private final Dictionary areas = new Dictionary("area");
+
+    /**
+     * Distinct `order_type` values.
+     */
+    private final Dictionary orderTypes = new Dictionary("order_type");
+
+    /**
+     * Distinct `payment_type` values.
+     */
+    private final Dictionary paymentTypes = new Dictionary("payment_type");
+
+    /**
+     * Appends the orders above the highest id loaded so far, up to `upToId`.
+     *
+     * @param upToId The inclusive upper id bound.
+     */
+    public synchronized void loadUpTo(long upToId) {
+        if (upToId <= loadedUpToId) {
+            return;
+        }
+        jdbcTemplate.query(LOAD_SQL, ps -> {
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, loadedUpToId);
+            ps.setLong(2, upToId);
+        }, rs -> {
+            long phoneHash = rs.getLong("phone_hash");
+            append(rs.getLong("id"), rs.getInt("epoch_day"), Cents.of(rs.getBigDecimal("net_sales")),
+                    rs.getInt("channel"), rs.wasNull() ? null : phoneHash,
+                    rs.getString("area"), rs.getString("order_type"), rs.getString("payment_type"));
+        });
+        loadedUpToId = upToId;
+    }
+
+    /**
+     * Drops every loaded order and loads the orders up to `upToId` again, picking up in-place updates.
+     *
+     * @param upToId The inclusive upper id bound.
+     */
+    public synchronized void reload(long upToId) {
+        size = 0;
+        loadedUpToId = 0L;
+        hasPhone.clear();
+        monthRows.clear();
+        areas.clear();
+        orderTypes.clear();
+        paymentTypes.clear();
+        loadUpTo(upToId);
+    }
+
+    /**
+     * Returns the number of orders held.
+     * @return The row count.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Sums the orders in `(afterId, upToId]` per day and channel with loops over the columns, one month
+     * at a time, and collects the days each customer ordered on. Rows must have been loaded up to `upToId`.
+     * <p>
+     * Months never share a day, so each month is summed into its own accumulators and the monthly results
+     * only need to be put side by side; weeks spanning two months are rolled up from the merged days.
+     * Given a pool, the months are summed in parallel on it.
+     *
+     * @param afterId The exclusive lower id bound.
+     * @param upToId The inclusive upper id bound.
+     * @param customerDays Receives the epoch days each customer key ordered on, sorted and deduplicated.
+     * @param pool The pool to sum the months on, or `null` to sum them on the calling thread.
+     * @return The KPI partial of each day, without customer counts.
+     */
+    public synchronized DailyPartials aggregate(long afterId, long upToId, CustomerDayPairs customerDays,
+                                                ForkJoinPool pool) {
+        int from = firstRowAfter(afterId);
+        int to = firstRowAfter(upToId);
+        List<MonthAggregation> months = new ArrayList<>();
+        if (from < to) {
+            monthRows.forEach((month, rows) -> months.add(new MonthAggregation(month, rows, from, to)));
+        }
+        if (pool != null) {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(months);
+                }
+            });
+        } else {
+            months.forEach(MonthAggregation::invoke);
+        }
+        DailyPartials partials = new DailyPartials();
+        List<CustomerDayPairs> monthCustomerDays = new ArrayList<>(months.size());
+        for (MonthAggregation month : months) {
+            MonthResult result = month.join();
+            partials.merge(result.partials());
+            monthCustomerDays.add(result.customerDays());
+        }
+        customerDays.sortAndDedupe();
+        customerDays.mergeSorted(monthCustomerDays);
+        return partials;
+    }
+
+    /**
+     * Returns the `area` of a row.
+     *
+     * @param row The row index.
+     * @return The area, or `null`.
+     */
+    public synchronized String area(int row) {
+        return areas.decode(areaCodes[row]);
+    }
+
+    /**
+     * Returns the `order_type` of a row.
+     *
+     * @param row The row index.
+     * @return The order type, or `null`.
+     */
+    public synchronized String orderType(int row) {
+        return orderTypes.decode(orderTypeCodes[row]);
+    }
+
+    /**
+     * Returns the `payment_type` of a row.
+     *
+     * @param row The row index.
+     * @return The payment type, or `null`.
+     */
+    public synchronized String paymentType(int row) {
+        return paymentTypes.decode(paymentTypeCodes[row]);
+    }
+
+    /**
+     * Appends one order. Orders must be appended in ascending id order.
+     *
+     * @param id The raw order id.
+     * @param epochDay The order day, as an epoch day.
+     * @param netSalesCents The net sales in paise.
+     * @param channel The `Channel` ordinal.
+     * @param phoneHash The customer key, or `null` without a phone number.
+     * @param area The area, or `null`.
+     * @param orderType The order type, or `null`.
+     * @param paymentType The payment type, or `null`.
+     */
+    synchronized void append(long id, int epochDay, long netSalesCents, int channel, Long phoneHash,
+                             String area, String orderType, String paymentType) {
+        ensureCapacity(size + 1);
+        ids[size] = id;
+        epochDays[size] = epochDay;
+        this.netSalesCents[size] = netSalesCents;
+        channels[size] = (byte) channel;
+        phoneHashes[size] = phoneHash == null ? 0L : phoneHash;
+        hasPhone.set(size, phoneHash != null);
+        areaCodes[size] = areas.encode(area);
+        orderTypeCodes[size] = orderTypes.encode(orderType);
+        paymentTypeCodes[size] = paymentTypes.encode(paymentType);
+        LocalDate day = LocalDate.ofEpochDay(epochDay);
+        monthRows.computeIfAbsent(day.getYear() * 12 + day.getMonthValue() - 1, month -> new RowList()).add(size);
+        size++;
+    }
+
+    /**
+     * Returns the first row whose id is above `afterId`, or {@link #size} if there is none.
+     */
+    private int firstRowAfter(long afterId) {
+        int index = Arrays.binarySearch(ids, 0, size, afterId);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Grows every column to hold at least `capacity` rows.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        netSalesCents = Arrays.copyOf(netSalesCents, newCapacity);
+        channels = Arrays.copyOf(channels, newCapacity);
+        phoneHashes = Arrays.copyOf(phoneHashes, newCapacity);
+        areaCodes = Arrays.copyOf(areaCodes, newCapacity);
+        orderTypeCodes = Arrays.copyOf(orderTypeCodes, newCapacity);
+        paymentTypeCodes = Arrays.copyOf(paymentTypeCodes, newCapacity);
+    }
+
+    /**
+     * Growable list of row indexes.
+     */
+    private static final class RowList {
+
+        /**
+         * The row indexes; only the first {@link #size} entries are valid.
+         */
+        private int[] rows = new int[1024];
+
+        /**
+         * Number of row indexes held.
+         */
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+
+    /**
+     * KPI partials and customer days of one month.
+     */
+    private record MonthResult(DailyPartials partials, CustomerDayPairs customerDays) {
+    }
+
+    /**
+     * Sums the rows of one month that lie in a row range into accumulators of its own.
+     */
+    private final class MonthAggregation extends RecursiveTask<MonthResult> {
+
+        /**
+         * The month, as `year * 12 + month - 1`.
+         */
+        private final int month;
+
+        /**
+         * The month's rows.
+         */
+        private final RowList rows;
+
+        /**
+         * The inclusive first row to sum.
+         */
+        private final int fromRow;
+
+        /**
+         * The exclusive last row to sum.
+         */
+        private final int toRow;
+
+        MonthAggregation(int month, RowList rows, int fromRow, int toRow) {
+            this.month = month;
+            this.rows = rows;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected MonthResult compute() {
+            LocalDate firstDay = LocalDate.of(month / 12, month % 12 + 1, 1);
+            int firstEpochDay = (int) firstDay.toEpochDay();
+            // One slot per day of the month and channel; slots without orders stay at zero and are skipped below.
+            int channelCount = Channel.values().length;
+            long[] revenue = new long[firstDay.lengthOfMonth() * channelCount];
+            long[] orders = new long[revenue.length];
+            int start = Arrays.binarySearch(rows.rows, 0, rows.size, fromRow);
+            int end = Arrays.binarySearch(rows.rows, 0, rows.size, toRow);
+            start = start >= 0 ? start : -start - 1;
+            end = end >= 0 ? end : -end - 1;
+            // Customer days are collected as primitive pairs and deduplicated once the month is summed.
+            CustomerDayPairs customerDays = new CustomerDayPairs(end - start);
+            for (int i = start; i < end; i++) {
+                int row = rows.rows[i];
+                int slot = (epochDays[row] - firstEpochDay) * channelCount + channels[row];
+                revenue[slot] = Cents.add(revenue[slot], netSalesCents[row]);
+                orders[slot]++;
+                if (hasPhone.get(row)) {
+                    customerDays.add(phoneHashes[row], epochDays[row]);
+                }
+            }
+            DailyPartials partials = new DailyPartials();
+            for (int slot = 0; slot < orders.length; slot++) {
+                if (orders[slot] > 0) {
+                    partials.partialFor(firstDay.plusDays(slot / channelCount))
+                            .addChannelTotalsCents(Channel.ofOrdinal(slot % channelCount), revenue[slot], orders[slot]);
+                }
+            }
+            customerDays.sortAndDedupe();
+            return new MonthResult(partials, customerDays);
+        }
+    }
+
+    /**
+     * Maps the distinct values of a low-cardinality text column to `short` codes; `null` is code -1.
+     */
+    static final class Dictionary {
+
+        /**
+         * Code stored for a `null` value.
+         */
+        static final short NULL_CODE = -1;
+
+        /**
+         * Name of the column, for error messages.
+         */
+        private final String column;
+
+        /**
+         * The distinct values, indexed by code.
+         */
+        private final List<String> values = new ArrayList<>();
+
+        /**
+         * The code of each distinct value.
+         */
+        private final Map<String, Short> codes = new HashMap<>();
+
+        Dictionary(String column) {
+            this.column = column;
+        }
+
+        /**
+         * Returns the code of a value, assigning the next free code to a value not seen before.
+         *
+         * @throws IllegalStateException If the column has more distinct values than a `short` can code.
+         */
+        short encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Short code = codes.get(value);
+            if (code == null) {
+                if (values.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct values in " + column + " for a columnar dictionary");
+                }
+                code = (short) values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        /**
+         * Returns the value of a code.
+         */
+        String decode(short code) {
+            return code == NULL_CODE ? null : values.get(code);
+        }
+
+        /**
+         * Forgets every value.
+         */
+        void clear() {
+            values.clear();
+            codes.clear();
+        }
+    }
+}
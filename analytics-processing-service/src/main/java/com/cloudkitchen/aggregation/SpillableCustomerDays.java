@@ -0,0 +1,335 @@
+package com.cloudkitchen.aggregation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * The days each customer ordered on in a run, collected under a heap budget. Customer days are the one
+ * part of a JVM aggregation that grows with the data: daily partials hold one entry per calendar day,
+ * but this map holds one entry per customer and day. Its heap use is estimated as entries are added;
+ * once the estimate crosses the budget, the entries are hash-partitioned by customer key into temp files
+ * and the map starts over. {@link #forEachPartition(Consumer)} then merges one partition at a time, and
+ * since a customer's days always land in the same partition, each partition can be counted on its own.
+ * A partition file whose merged map could exceed the budget is first split again on other bits of the
+ * key, so the merge stays within the budget however much was spilled. Counting a partition reads it in
+ * place and adds only one chunk of index rows at a time (see
+ * {@link CustomerFirstSeenIndex#countCustomers(DailyPartials, Map)}), so the peak stays near the budget.
+ * <p>
+ * Without a spill, the collected map is handed over as is, so runs within the budget pay nothing extra.
+ */
+public class SpillableCustomerDays implements Closeable {
+
+    /**
+     * Estimated heap bytes of a customer entry: the map node, the boxed key, the day set and its map.
+     */
+    static final long CUSTOMER_BYTES = 112;
+
+    /**
+     * Estimated heap bytes of one day in a customer's day set: the tree entry and the boxed day.
+     */
+    static final long DAY_BYTES = 56;
+
+    /**
+     * The most files a partition is split into at once, which bounds the open output streams.
+     */
+    private static final int MAX_SPLIT_FILES = 256;
+
+    /**
+     * How often a partition is split again before it is read regardless; only a single customer with
+     * more days than the budget holds can still be too large after a few splits.
+     */
+    private static final int MAX_SPLIT_DEPTH = 4;
+
+    /**
+     * The heap budget in bytes; 0 or less never spills.
+     */
+    private final long budgetBytes;
+
+    /**
+     * The directory spill files are created in.
+     */
+    private final Path spillDir;
+
+    /**
+     * The number of hash partitions spilled entries are split into.
+     */
+    private final int partitionCount;
+
+    /**
+     * The customer days collected since the last spill.
+     */
+    private Map<Long, NavigableSet<Integer>> days = new HashMap<>();
+
+    /**
+     * Estimated heap bytes of {@link #days}.
+     */
+    private long estimatedBytes;
+
+    /**
+     * The spill file of each partition, or `null` until the first spill.
+     */
+    private Path[] files;
+
+    /**
+     * The number of spills so far.
+     */
+    private int spillCount;
+
+    /**
+     * Creates an empty collection.
+     *
+     * @param budgetBytes The heap budget in bytes; 0 or less never spills.
+     * @param spillDir The directory spill files are created in; created if missing.
+     * @param partitionCount The number of hash partitions spilled entries are split into.
+     */
+    public SpillableCustomerDays(long budgetBytes, Path spillDir, int partitionCount) {
+        this.budgetBytes = budgetBytes;
+        this.spillDir = spillDir;
+        this.partitionCount = Math.max(1, partitionCount);
+    }
+
+    /**
+     * Records that a customer ordered on a day, spilling to disk if the heap budget is crossed.
+     *
+     * @param key The customer key.
+     * @param epochDay The day the customer ordered on.
+     */
+    public void add(long key, int epochDay) {
+        NavigableSet<Integer> customerDays = days.get(key);
+        if (customerDays == null) {
+            customerDays = new TreeSet<>();
+            days.put(key, customerDays);
+            estimatedBytes += CUSTOMER_BYTES;
+        }
+        if (customerDays.add(epochDay)) {
+            estimatedBytes += DAY_BYTES;
+        }
+        if (budgetBytes > 0 && estimatedBytes > budgetBytes) {
+            spill();
+        }
+    }
+
+    /**
+     * Returns the estimated heap use of the days held in memory.
+     * @return The estimate in bytes.
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Returns how often the days were spilled to disk.
+     * @return The number of spills.
+     */
+    public int getSpillCount() {
+        return spillCount;
+    }
+
+    /**
+     * Hands all collected days to the consumer: in one map if nothing was spilled, otherwise one map per
+     * hash partition, each holding all days of its customers and estimated to fit the heap budget.
+     * Must be called once, after the last {@link #add(long, int)}.
+     *
+     * @param consumer Receives the days of each customer key.
+     */
+    public void forEachPartition(Consumer<Map<Long, NavigableSet<Integer>>> consumer) {
+        if (files == null) {
+            consumer.accept(days);
+            return;
+        }
+        spill();
+        for (Path file : files) {
+            merge(file, 1, consumer);
+        }
+    }
+
+    /**
+     * Deletes the spill files.
+     */
+    @Override
+    public void close() {
+        if (files == null) {
+            return;
+        }
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete spill file " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Appends every in-memory entry to its partition's file as key, day count and days, and empties the map.
+     */
+    private void spill() {
+        try {
+            if (files == null) {
+                Files.createDirectories(spillDir);
+                files = new Path[partitionCount];
+                for (int i = 0; i < partitionCount; i++) {
+                    files[i] = Files.createTempFile(spillDir, "customer-days-", ".spill");
+                }
+            }
+            DataOutputStream[] outs = new DataOutputStream[partitionCount];
+            try {
+                for (int i = 0; i < partitionCount; i++) {
+                    outs[i] = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(files[i], StandardOpenOption.APPEND)));
+                }
+                for (Map.Entry<Long, NavigableSet<Integer>> entry : days.entrySet()) {
+                    DataOutputStream out = outs[partition(entry.getKey(), partitionCount, 0)];
+                    out.writeLong(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (int day : entry.getValue()) {
+                        out.writeInt(day);
+                    }
+                }
+            } finally {
+                for (DataOutputStream out : outs) {
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill customer days to " + spillDir, e);
+        }
+        days = new HashMap<>();
+        estimatedBytes = 0;
+        spillCount++;
+    }
+
+    /**
+     * Hands the days in a partition file to the consumer, first splitting the file into smaller partitions
+     * if its merged map could exceed the budget. The split files are deleted once consumed.
+     *
+     * @param level How often the file's customers have been partitioned already.
+     */
+    private void merge(Path file, int level, Consumer<Map<Long, NavigableSet<Integer>>> consumer) {
+        long estimated = estimateBytes(file);
+        if (budgetBytes <= 0 || estimated <= budgetBytes || level > MAX_SPLIT_DEPTH) {
+            consumer.accept(read(file));
+            return;
+        }
+        // Twice as many parts as the estimate needs, so an unevenly hashed part rarely needs another split.
+        int partCount = (int) Math.min(MAX_SPLIT_FILES, 2 * (estimated / budgetBytes + 1));
+        Path[] parts = split(file, partCount, level);
+        try {
+            for (Path part : parts) {
+                merge(part, level + 1, consumer);
+            }
+        } finally {
+            for (Path part : parts) {
+                try {
+                    Files.deleteIfExists(part);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not delete spill file " + part, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams the entries of a partition file into new files by another hash of the customer key.
+     */
+    private Path[] split(Path file, int partCount, int level) {
+        Path[] parts = new Path[partCount];
+        DataOutputStream[] outs = new DataOutputStream[partCount];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            try {
+                for (int i = 0; i < partCount; i++) {
+                    parts[i] = Files.createTempFile(spillDir, "customer-days-", ".spill");
+                    outs[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(parts[i])));
+                }
+                while (true) {
+                    long key;
+                    try {
+                        key = in.readLong();
+                    } catch (EOFException end) {
+                        return parts;
+                    }
+                    DataOutputStream out = outs[partition(key, partCount, level)];
+                    int count = in.readInt();
+                    out.writeLong(key);
+                    out.writeInt(count);
+                    for (; count > 0; count--) {
+                        out.writeInt(in.readInt());
+                    }
+                }
+            } finally {
+                for (DataOutputStream out : outs) {
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            for (Path part : parts) {
+                if (part != null) {
+                    part.toFile().delete();
+                }
+            }
+            throw new UncheckedIOException("Could not split spill file " + file, e);
+        }
+    }
+
+    /**
+     * Estimates the heap a partition file takes once merged. An entry of `d` days takes `12 + 4d` bytes
+     * on disk and at most {@link #CUSTOMER_BYTES} plus `d` times {@link #DAY_BYTES} in the map, so
+     * {@link #DAY_BYTES} per four bytes on disk bounds it from above.
+     */
+    private static long estimateBytes(Path file) {
+        try {
+            return Files.size(file) / Integer.BYTES * DAY_BYTES;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read spill file " + file, e);
+        }
+    }
+
+    /**
+     * Reads one partition's file back, merging the days a customer got across several spills.
+     */
+    private static Map<Long, NavigableSet<Integer>> read(Path file) {
+        Map<Long, NavigableSet<Integer>> partition = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                long key;
+                try {
+                    key = in.readLong();
+                } catch (EOFException end) {
+                    return partition;
+                }
+                NavigableSet<Integer> customerDays = partition.computeIfAbsent(key, k -> new TreeSet<>());
+                for (int count = in.readInt(); count > 0; count--) {
+                    customerDays.add(in.readInt());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read spill file " + file, e);
+        }
+    }
+
+    /**
+     * Returns the partition of a customer key. The keys are MD5 bits, so any of their bits are evenly
+     * spread; each level of splitting rotates the key, so customers that shared a partition spread out.
+     */
+    private static int partition(long key, int partitionCount, int level) {
+        return (int) Math.floorMod(Long.rotateRight(key, 21 * level), (long) partitionCount);
+    }
+}
@@ -0,0 +1,217 @@
+package com.cloudkitchen.aggregation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Aggregates orders inside PostgreSQL with one query over `raw_orders_data`. Only one row per day and
+ * channel is streamed back, never the orders themselves; weeks and months are rolled up from those rows.
+ * <p>
+ * The query first groups the orders per day, customer and channel, joins the customers' known days
+ * from `customer_first_seen` and derives each customer's first order day with a window over those
+ * groups, then groups per day and channel. A data-modifying CTE merges the days seen into
+ * `customer_first_seen` in the same statement. The join, the window and the second grouping run over
+ * the much smaller grouped rows, so every metric comes from a single scan of the orders.
+ * <p>
+ * `raw_orders_data.date` is a `timestamp without time zone`, so the cast to `date` yields the same
+ * local calendar dates the JVM engine derives.
+ */
+@Component
+public class SqlKpiAggregator implements KpiAggregator {
+
+    /**
+     * Condition for a customer row to be counted: it has a customer, it is the customer's first channel
+     * row of the day, and the day lies outside the days `customer_first_seen` already spans. Days inside
+     * that span were counted by an earlier run or are left to {@link #RECOUNT_DAYS}.
+     */
+    private static final String COUNTABLE = "phone_hash IS NOT NULL AND customer_row = 1 "
+            + "AND (known_first IS NULL OR epoch_day < known_first OR epoch_day > known_last)";
+
+    /**
+     * Follows the totals of {@link #AGGREGATE_SQL} with one row without a channel per day whose customers
+     * must be recounted from all its orders: days strictly between a customer's known first and last day,
+     * and known first days that an older order turns from new to repeat (see `CustomerFirstSeenIndex`).
+     */
+    private static final String RECOUNT_DAYS =
+            " UNION ALL SELECT DATE '1970-01-01' + recount_day, NULL, NULL, NULL, NULL, NULL FROM ("
+                    + "SELECT epoch_day AS recount_day FROM ranked WHERE epoch_day > known_first AND epoch_day < known_last "
+                    + "UNION SELECT known_first FROM ranked WHERE first_day < known_first) r";
+
+    /**
+     * Condition for a customer row to be counted when whole days are recomputed: every customer of the
+     * day is counted once, on their first channel row.
+     */
+    private static final String COUNTABLE_IN_DAY = "phone_hash IS NOT NULL AND customer_row = 1";
+
+    /**
+     * Groups per day, customer and channel the orders in `(afterId, upToId]`.
+     */
+    private static final String CUSTOMER_DAYS_BY_ID =
+            "WITH customer_days AS ("
+                    + "SELECT CAST(date AS date) AS day, " + CustomerFirstSeenIndex.SQL_HASH + " AS phone_hash, "
+                    + Channel.SQL_ORDINAL + " AS channel, "
+                    + "COALESCE(SUM(net_sales), 0) AS revenue, COUNT(*) AS orders "
+                    + "FROM raw_data_schema.raw_orders_data "
+                    + "WHERE id > ? AND id <= ? AND date IS NOT NULL "
+                    + "GROUP BY 1, 2, 3), ";
+
+    /**
+     * Groups per day, customer and channel all orders up to an id on the days of a `date[]`, reading each
+     * day through the index on `raw_orders_data.date`.
+     */
+    private static final String CUSTOMER_DAYS_BY_DAY =
+            "WITH customer_days AS ("
+                    + "SELECT d.day, " + CustomerFirstSeenIndex.SQL_HASH + " AS phone_hash, "
+                    + Channel.SQL_ORDINAL + " AS channel, "
+                    + "COALESCE(SUM(net_sales), 0) AS revenue, COUNT(*) AS orders "
+                    + "FROM unnest(?) AS d(day) "
+                    + "JOIN raw_data_schema.raw_orders_data o ON o.date >= d.day AND o.date < d.day + 1 "
+                    + "WHERE o.id <= ? "
+                    + "GROUP BY 1, 2, 3), ";
+
+    /**
+     * Joins the customers' known days to the grouped rows and derives each customer's first order day.
+     */
+    private static final String RANKED =
+            "ranked AS ("
+                    + "SELECT c.day, c.day - DATE '1970-01-01' AS epoch_day, c.phone_hash, c.channel, c.revenue, c.orders, "
+                    + "k.first_day AS known_first, k.last_day AS known_last, "
+                    + "LEAST(k.first_day, MIN(c.day - DATE '1970-01-01') OVER (PARTITION BY c.phone_hash)) AS first_day, "
+                    + "ROW_NUMBER() OVER (PARTITION BY c.day, c.phone_hash ORDER BY c.channel) AS customer_row "
+                    + "FROM customer_days c "
+                    + "LEFT JOIN analytics_schema.customer_first_seen k ON k.phone_hash = c.phone_hash) ";
+
+    /**
+     * Follows {@link #RANKED} and merges the days seen into `customer_first_seen`.
+     */
+    private static final String RECORDED =
+            ", recorded AS ("
+                    + "INSERT INTO analytics_schema.customer_first_seen AS f (phone_hash, first_day, last_day) "
+                    + "SELECT phone_hash, MIN(epoch_day), MAX(epoch_day) FROM ranked "
+                    + "WHERE phone_hash IS NOT NULL GROUP BY phone_hash "
+                    + "ON CONFLICT (phone_hash) DO UPDATE SET first_day = LEAST(f.first_day, EXCLUDED.first_day), "
+                    + "last_day = GREATEST(f.last_day, EXCLUDED.last_day)) ";
+
+    /**
+     * Sums the orders of each day and channel and counts each customer once per day, on its first
+     * channel row, skipping days an earlier run already counted and returning the days to recount.
+     */
+    private static final String AGGREGATE_SQL = CUSTOMER_DAYS_BY_ID + RANKED + RECORDED + totals(COUNTABLE)
+            + RECOUNT_DAYS;
+
+    /**
+     * Recomputes whole days: sums all their orders per channel and counts every customer of each day.
+     */
+    private static final String AGGREGATE_DAYS_SQL = CUSTOMER_DAYS_BY_DAY + RANKED + RECORDED + totals(COUNTABLE_IN_DAY);
+
+    /**
+     * Recomputes whole days against a complete `customer_first_seen`, which it only reads.
+     */
+    private static final String AGGREGATE_INDEXED_DAYS_SQL = CUSTOMER_DAYS_BY_DAY + RANKED + totals(COUNTABLE_IN_DAY);
+
+    /**
+     * JDBC template used to run the aggregate query.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the `SQL` engine.
+     * @return The aggregation engine.
+     */
+    @Override
+    public AggregationEngine getEngine() {
+        return AggregationEngine.SQL;
+    }
+
+    /**
+     * Runs the grouped query over the orders in `(afterId, upToId]`. Days whose customers the query cannot
+     * count on its own are marked for recount.
+     * @param afterId The exclusive lower id bound.
+     * @param upToId The inclusive upper id bound.
+     * @return The KPI partial of each day.
+     */
+    @Override
+    public DailyPartials aggregate(long afterId, long upToId) {
+        DailyPartials partials = new DailyPartials();
+        jdbcTemplate.query(AGGREGATE_SQL, rs -> {
+            addRow(partials, rs);
+        }, afterId, upToId);
+        return partials;
+    }
+
+    /**
+     * Recomputes the given days from all their orders with ids up to `upToId`, e.g. after late or corrected
+     * orders were ingested for them. Every customer ordering on a day is counted once, as new if the day is
+     * their first order day and as repeat otherwise; the days are merged into `customer_first_seen`.
+     * @param days The days to recompute.
+     * @param upToId The inclusive upper id bound.
+     * @return The KPI partial of each of the days that has orders.
+     */
+    public DailyPartials aggregateDays(Collection<LocalDate> days, long upToId) {
+        return aggregateDays(AGGREGATE_DAYS_SQL, days, upToId);
+    }
+
+    /**
+     * Recomputes the given days like {@link #aggregateDays(Collection, long)}, but without writing to
+     * `customer_first_seen`: the index must already hold every order up to `upToId`, e.g. after
+     * {@link CustomerFirstSeenIndex#rebuild(long)}. Concurrent calls for different days therefore never
+     * contend for the same index rows.
+     * @param days The days to recompute.
+     * @param upToId The inclusive upper id bound.
+     * @return The KPI partial of each of the days that has orders.
+     */
+    public DailyPartials aggregateIndexedDays(Collection<LocalDate> days, long upToId) {
+        return aggregateDays(AGGREGATE_INDEXED_DAYS_SQL, days, upToId);
+    }
+
+    /**
+     * Runs a whole-day aggregate query over the given days.
+     */
+    private DailyPartials aggregateDays(String sql, Collection<LocalDate> days, long upToId) {
+        DailyPartials partials = new DailyPartials();
+        if (days.isEmpty()) {
+            return partials;
+        }
+        jdbcTemplate.query(sql, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("date", days.stream().map(Date::valueOf).toArray()));
+            ps.setLong(2, upToId);
+        }, rs -> {
+            addRow(partials, rs);
+        });
+        return partials;
+    }
+
+    /**
+     * Adds one day and channel row of an aggregate query to the partial of its day, or marks the day for
+     * recount if the row has no channel.
+     */
+    private static void addRow(DailyPartials partials, ResultSet rs) throws SQLException {
+        LocalDate day = rs.getDate("day").toLocalDate();
+        int channel = rs.getInt("channel");
+        if (rs.wasNull()) {
+            partials.markForRecount(day);
+            return;
+        }
+        KpiPartial partial = partials.partialFor(day);
+        partial.addChannelTotals(Channel.ofOrdinal(channel), rs.getBigDecimal("revenue"), rs.getLong("orders"));
+        partial.addCustomers(rs.getLong("new_customers"), rs.getLong("repeat_customers"));
+    }
+
+    /**
+     * Returns the final select of an aggregate query, counting the customer rows matching `countable`.
+     */
+    private static String totals(String countable) {
+        return "SELECT day, channel, SUM(revenue) AS revenue, SUM(orders) AS orders, "
+                + "COUNT(*) FILTER (WHERE " + countable + " AND epoch_day = first_day) AS new_customers, "
+                + "COUNT(*) FILTER (WHERE " + countable + " AND epoch_day > first_day) AS repeat_customers "
+                + "FROM ranked GROUP BY day, channel";
+    }
+}
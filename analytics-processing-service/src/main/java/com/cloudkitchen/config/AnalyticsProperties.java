@@ -0,0 +1,383 @@
+package com.cloudkitchen.config;
+
+import com.cloudkitchen.aggregation.AggregationEngine;
+import com.cloudkitchen.aggregation.Channel;
+import com.cloudkitchen.service.ProcessingMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for analytics processing.
+ * Bound from the `analytics.*` keys in `application.properties`.
+ */
+@Component
+@ConfigurationProperties(prefix = "analytics")
+public class AnalyticsProperties {
+
+    /**
+     * The processing mode used when a request does not specify one.
+     */
+    private ProcessingMode mode = ProcessingMode.FULL;
+
+    /**
+     * Where raw orders are grouped into period totals.
+     */
+    private AggregationEngine engine = AggregationEngine.SQL;
+
+    /**
+     * Whether the in-memory engines aggregate months in parallel.
+     */
+    private boolean parallel = false;
+
+    /**
+     * The number of threads used for parallel aggregation; 0 means one per available processor.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Heap the JVM engine may use for the days each customer ordered on before spilling them to disk; 0 never spills.
+     */
+    private DataSize heapBudget = DataSize.ofMegabytes(256);
+
+    /**
+     * Directory the JVM engine spills to; empty means a folder under `java.io.tmpdir`.
+     */
+    private String spillDir = "";
+
+    /**
+     * The number of hash partitions spilled customer days are split into; a partition that outgrows the
+     * heap budget is split again before it is merged.
+     */
+    private int spillPartitions = 16;
+
+    /**
+     * Commission charged by each channel, as a fraction of the order's net sales.
+     * Channels without a rate are charged nothing.
+     */
+    private Map<Channel, BigDecimal> commissionRates = new EnumMap<>(Map.of(
+            Channel.ZOMATO, new BigDecimal("0.25"),
+            Channel.SWIGGY, new BigDecimal("0.25")));
+
+    /**
+     * The number of analytics jobs processed concurrently by this instance.
+     */
+    private int jobThreads = 1;
+
+    /**
+     * The number of accepted jobs that may wait for a free job thread before new runs are rejected.
+     */
+    private int jobQueueCapacity = 4;
+
+    /**
+     * How long finished jobs stay queryable on the jobs endpoint.
+     */
+    private Duration jobRetention = Duration.ofHours(1);
+
+    /**
+     * Cron expression of scheduled runs; `-` disables scheduling.
+     */
+    private String scheduleCron = "-";
+
+    /**
+     * The processing mode of scheduled runs.
+     */
+    private ProcessingMode scheduleMode = ProcessingMode.INCREMENTAL;
+
+    /**
+     * Whether an instance resumes an interrupted partitioned rebuild when it starts.
+     */
+    private boolean resumeRebuild = true;
+
+    /**
+     * Whether incremental runs are triggered by `NOTIFY raw_data_changed` from data-ingestion-service.
+     */
+    private boolean listenEnabled = false;
+
+    /**
+     * How long ingestion has to stay quiet after a notification before the triggered run is queued.
+     */
+    private Duration listenQuietPeriod = Duration.ofSeconds(2);
+
+    /**
+     * The longest a notification waits for its run while ingestion keeps notifying.
+     */
+    private Duration listenMaxDelay = Duration.ofSeconds(10);
+
+    /**
+     * Returns the default processing mode.
+     * @return The default processing mode.
+     */
+    public ProcessingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the default processing mode.
+     * @param mode The processing mode to set.
+     */
+    public void setMode(ProcessingMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Returns where raw orders are grouped into period totals.
+     * @return The aggregation engine.
+     */
+    public AggregationEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Sets where raw orders are grouped into period totals.
+     * @param engine The aggregation engine to set.
+     */
+    public void setEngine(AggregationEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Returns whether the in-memory engines aggregate months in parallel.
+     * @return `true` if aggregation is parallel.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets whether the in-memory engines aggregate months in parallel.
+     * @param parallel `true` to aggregate in parallel.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns the configured number of parallel aggregation threads.
+     * @return The parallelism, or 0 for one thread per available processor.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of parallel aggregation threads.
+     * @param parallelism The parallelism to set, or 0 for one thread per available processor.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the heap budget of the JVM engine's customer days.
+     * @return The heap budget; 0 never spills.
+     */
+    public DataSize getHeapBudget() {
+        return heapBudget;
+    }
+
+    /**
+     * Sets the heap budget of the JVM engine's customer days.
+     * @param heapBudget The heap budget to set; 0 never spills.
+     */
+    public void setHeapBudget(DataSize heapBudget) {
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * Returns the directory the JVM engine spills to.
+     * @return The spill directory, or an empty string for the default under `java.io.tmpdir`.
+     */
+    public String getSpillDir() {
+        return spillDir;
+    }
+
+    /**
+     * Sets the directory the JVM engine spills to.
+     * @param spillDir The spill directory to set.
+     */
+    public void setSpillDir(String spillDir) {
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * Returns the number of hash partitions spilled customer days are split into.
+     * @return The number of partitions.
+     */
+    public int getSpillPartitions() {
+        return spillPartitions;
+    }
+
+    /**
+     * Sets the number of hash partitions spilled customer days are split into.
+     * @param spillPartitions The number of partitions to set.
+     */
+    public void setSpillPartitions(int spillPartitions) {
+        this.spillPartitions = spillPartitions;
+    }
+
+    /**
+     * Returns the number of analytics jobs processed concurrently.
+     * @return The number of job threads.
+     */
+    public int getJobThreads() {
+        return jobThreads;
+    }
+
+    /**
+     * Sets the number of analytics jobs processed concurrently.
+     * @param jobThreads The number of job threads to set.
+     */
+    public void setJobThreads(int jobThreads) {
+        this.jobThreads = jobThreads;
+    }
+
+    /**
+     * Returns the number of jobs that may wait for a free job thread.
+     * @return The job queue capacity.
+     */
+    public int getJobQueueCapacity() {
+        return jobQueueCapacity;
+    }
+
+    /**
+     * Sets the number of jobs that may wait for a free job thread.
+     * @param jobQueueCapacity The job queue capacity to set.
+     */
+    public void setJobQueueCapacity(int jobQueueCapacity) {
+        this.jobQueueCapacity = jobQueueCapacity;
+    }
+
+    /**
+     * Returns how long finished jobs stay queryable.
+     * @return The job retention.
+     */
+    public Duration getJobRetention() {
+        return jobRetention;
+    }
+
+    /**
+     * Sets how long finished jobs stay queryable.
+     * @param jobRetention The job retention to set.
+     */
+    public void setJobRetention(Duration jobRetention) {
+        this.jobRetention = jobRetention;
+    }
+
+    /**
+     * Returns the cron expression of scheduled runs.
+     * @return The cron expression, or `-` if scheduling is disabled.
+     */
+    public String getScheduleCron() {
+        return scheduleCron;
+    }
+
+    /**
+     * Sets the cron expression of scheduled runs.
+     * @param scheduleCron The cron expression to set, or `-` to disable scheduling.
+     */
+    public void setScheduleCron(String scheduleCron) {
+        this.scheduleCron = scheduleCron;
+    }
+
+    /**
+     * Returns the processing mode of scheduled runs.
+     * @return The scheduled processing mode.
+     */
+    public ProcessingMode getScheduleMode() {
+        return scheduleMode;
+    }
+
+    /**
+     * Sets the processing mode of scheduled runs.
+     * @param scheduleMode The scheduled processing mode to set.
+     */
+    public void setScheduleMode(ProcessingMode scheduleMode) {
+        this.scheduleMode = scheduleMode;
+    }
+
+    /**
+     * Returns whether an interrupted partitioned rebuild is resumed on startup.
+     * @return `true` if the rebuild is resumed.
+     */
+    public boolean isResumeRebuild() {
+        return resumeRebuild;
+    }
+
+    /**
+     * Sets whether an interrupted partitioned rebuild is resumed on startup.
+     * @param resumeRebuild `true` to resume the rebuild.
+     */
+    public void setResumeRebuild(boolean resumeRebuild) {
+        this.resumeRebuild = resumeRebuild;
+    }
+
+    /**
+     * Returns whether incremental runs are triggered by ingestion notifications.
+     * @return `true` if the notification listener is enabled.
+     */
+    public boolean isListenEnabled() {
+        return listenEnabled;
+    }
+
+    /**
+     * Sets whether incremental runs are triggered by ingestion notifications.
+     * @param listenEnabled `true` to enable the notification listener.
+     */
+    public void setListenEnabled(boolean listenEnabled) {
+        this.listenEnabled = listenEnabled;
+    }
+
+    /**
+     * Returns how long ingestion has to stay quiet before a triggered run is queued.
+     * @return The quiet period.
+     */
+    public Duration getListenQuietPeriod() {
+        return listenQuietPeriod;
+    }
+
+    /**
+     * Sets how long ingestion has to stay quiet before a triggered run is queued.
+     * @param listenQuietPeriod The quiet period.
+     */
+    public void setListenQuietPeriod(Duration listenQuietPeriod) {
+        this.listenQuietPeriod = listenQuietPeriod;
+    }
+
+    /**
+     * Returns the longest a notification waits for its run.
+     * @return The maximum delay.
+     */
+    public Duration getListenMaxDelay() {
+        return listenMaxDelay;
+    }
+
+    /**
+     * Sets the longest a notification waits for its run.
+     * @param listenMaxDelay The maximum delay.
+     */
+    public void setListenMaxDelay(Duration listenMaxDelay) {
+        this.listenMaxDelay = listenMaxDelay;
+    }
+
+    /**
+     * Returns the commission rate of each channel.
+     * @return The commission rates, as fractions of net sales.
+     */
+    public Map<Channel, BigDecimal> getCommissionRates() {
+        return commissionRates;
+    }
+
+    /**
+     * Sets the commission rate of each channel.
+     * @param commissionRates The commission rates to set, as fractions of net sales.
+     */
+    public void setCommissionRates(Map<Channel, BigDecimal> commissionRates) {
+        this.commissionRates = commissionRates;
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudkitchen.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pools used by analytics processing.
+ */
+@Configuration
+public class ProcessingExecutorConfig {
+
+    /**
+     * Bounded executor that runs analytics jobs.
+     * When all job threads are busy and the queue is full, new submissions are rejected
+     * with a `RejectedExecutionException` instead of piling up.
+     *
+     * @param analyticsProperties Supplies the job thread count and queue capacity.
+     * @return The job executor.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor analyticsJobExecutor(AnalyticsProperties analyticsProperties) {
+        int threads = Math.max(1, analyticsProperties.getJobThreads());
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "analytics-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, analyticsProperties.getJobQueueCapacity())),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Fork-join pool that aggregates the months of a run in parallel when `analytics.parallel` is set.
+     * It is kept separate from the common pool so aggregation cannot starve other work.
+     *
+     * @param analyticsProperties Supplies the configured parallelism.
+     * @return The aggregation pool.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool analyticsAggregationPool(AnalyticsProperties analyticsProperties) {
+        int parallelism = analyticsProperties.getParallelism() > 0
+                ? analyticsProperties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+}
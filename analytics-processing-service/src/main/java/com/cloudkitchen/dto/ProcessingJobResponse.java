@@ -0,0 +1,140 @@
+package com.cloudkitchen.dto;
+
+import com.cloudkitchen.service.ProcessingJob;
+import com.cloudkitchen.service.ProcessingJobStatus;
+import com.cloudkitchen.service.ProcessingMode;
+import com.cloudkitchen.service.ProcessingPhase;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) describing the state of a background analytics job.
+ * It is a point-in-time snapshot of the job and of the phases completed so far.
+ */
+public class ProcessingJobResponse {
+    /**
+     * The job id.
+     */
+    private final String jobId;
+    /**
+     * The processing mode of the run.
+     */
+    private final ProcessingMode mode;
+    /**
+     * What started the job, e.g. `api` or `schedule`.
+     */
+    private final String trigger;
+    /**
+     * The current lifecycle state.
+     */
+    private final ProcessingJobStatus status;
+    /**
+     * Timings and row counts of the phases completed so far.
+     */
+    private final List<ProcessingPhase> phases;
+    /**
+     * Why the job failed or was skipped, if it did not complete.
+     */
+    private final String error;
+    /**
+     * When the job was accepted.
+     */
+    private final Instant submittedAt;
+    /**
+     * When a job thread picked the job up.
+     */
+    private final Instant startedAt;
+    /**
+     * When the job finished.
+     */
+    private final Instant finishedAt;
+
+    /**
+     * Takes a snapshot of the given job.
+     * @param job The job to describe.
+     */
+    public ProcessingJobResponse(ProcessingJob job) {
+        this.jobId = job.getId();
+        this.mode = job.getMode();
+        this.trigger = job.getTrigger();
+        this.status = job.getStatus();
+        this.phases = job.getReport().getPhases();
+        this.error = job.getError();
+        this.submittedAt = job.getSubmittedAt();
+        this.startedAt = job.getStartedAt();
+        this.finishedAt = job.getFinishedAt();
+    }
+
+    /**
+     * Returns the job id.
+     * @return The job id.
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    /**
+     * Returns the processing mode of the run.
+     * @return The processing mode.
+     */
+    public ProcessingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns what started the job.
+     * @return The trigger.
+     */
+    public String getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * Returns the current lifecycle state.
+     * @return The job status.
+     */
+    public ProcessingJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the timings and row counts of the completed phases.
+     * @return The phases, in order.
+     */
+    public List<ProcessingPhase> getPhases() {
+        return phases;
+    }
+
+    /**
+     * Returns why the job did not complete.
+     * @return The error, or `null`.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Returns when the job was accepted.
+     * @return The submission time.
+     */
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * Returns when a job thread picked the job up.
+     * @return The start time, or `null` while queued.
+     */
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Returns when the job finished.
+     * @return The finish time, or `null` while queued or running.
+     */
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -1,36 +1,90 @@
 package com.cloudkitchen.listener;
 
-import com.cloudkitchen.service.AnalyticsService;
+import com.cloudkitchen.config.AnalyticsProperties;
+import com.cloudkitchen.dto.ProcessingJobResponse;
+import com.cloudkitchen.service.ProcessingJob;
+import com.cloudkitchen.service.ProcessingJobService;
+import com.cloudkitchen.service.ProcessingMode;
+import com.cloudkitchen.service.RebuildProgress;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * REST controller for triggering analytics processing.
  * This controller provides an endpoint to manually initiate the calculation
- * and aggregation of analytics data.
+ * and aggregation of analytics data, and one to follow the resulting job.
  */
 @RestController
 @RequestMapping("/api/analytics")
 public class AnalyticsController {
 
     /**
-     * Autowired instance of `AnalyticsService` to perform the analytics processing.
+     * Autowired instance of `ProcessingJobService` that runs analytics processing in the background.
+     */
+    @Autowired
+    private ProcessingJobService processingJobService;
+
+    /**
+     * Analytics settings, used for the default of the `mode` parameter.
      */
     @Autowired
-    private AnalyticsService analyticsService;
+    private AnalyticsProperties analyticsProperties;
 
     /**
      * Handles the POST request to trigger the analytics processing.
-     * Calls the `processAnalytics` method of the `AnalyticsService`.
+     * Queues a processing job and returns immediately.
      *
+     * @param mode Optional `ProcessingMode` overriding `analytics.mode` (`FULL`, `INCREMENTAL`, `SHADOW` or `PARTITIONED`).
      * @return A `ResponseEntity` indicating that analytics processing has started.
+     *         - `HttpStatus.ACCEPTED` with the job id (and a `Location` header) if the job was queued.
+     *         - `HttpStatus.SERVICE_UNAVAILABLE` if the job queue is full.
      */
     @PostMapping("/process")
-    public ResponseEntity<String> processAnalytics() {
-        analyticsService.processAnalytics();
-        return ResponseEntity.ok("Analytics processing started.");
+    public ResponseEntity<String> processAnalytics(@RequestParam(value = "mode", required = false) ProcessingMode mode) {
+        try {
+            ProcessingJob job = processingJobService.submit(mode != null ? mode : analyticsProperties.getMode(), "api");
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.LOCATION, "/api/analytics/jobs/" + job.getId());
+            return new ResponseEntity<>("Analytics processing started. Job id: " + job.getId(), headers, HttpStatus.ACCEPTED);
+        } catch (RejectedExecutionException e) {
+            return new ResponseEntity<>("Analytics job queue is full, please retry later.", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Handles the GET request for the state of an analytics job.
+     *
+     * @param id The job id returned when the run was accepted.
+     * @return A `ResponseEntity` with the job's status and the timings and row counts of its phases,
+     *         or `HttpStatus.NOT_FOUND` if the job is unknown or has expired.
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ProcessingJobResponse> getJob(@PathVariable String id) {
+        return processingJobService.getJob(id)
+                .map(job -> new ResponseEntity<>(new ProcessingJobResponse(job), HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Handles the GET request for the progress of a `PARTITIONED` rebuild.
+     *
+     * @return A `ResponseEntity` with the months and orders done so far, the throughput and the ETA,
+     *         or `HttpStatus.NOT_FOUND` if no rebuild is in progress.
+     */
+    @GetMapping("/rebuild")
+    public ResponseEntity<RebuildProgress> getRebuildProgress() {
+        return processingJobService.getRebuildProgress()
+                .map(progress -> new ResponseEntity<>(progress, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 }
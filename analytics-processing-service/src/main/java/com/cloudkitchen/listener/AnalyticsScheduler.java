@@ -0,0 +1,71 @@
+package com.cloudkitchen.listener;
+
+import com.cloudkitchen.config.AnalyticsProperties;
+import com.cloudkitchen.service.ProcessingJob;
+import com.cloudkitchen.service.ProcessingJobService;
+import com.cloudkitchen.service.ProcessingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Triggers analytics runs on the `analytics.schedule-cron` schedule.
+ * Scheduled runs go through the same job queue and processing lock as API-triggered ones,
+ * so when several instances share the schedule only one of them processes each tick.
+ * On startup it also resumes a partitioned rebuild that an earlier run left unfinished.
+ */
+@Component
+public class AnalyticsScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsScheduler.class);
+
+    /**
+     * Service that queues the runs.
+     */
+    @Autowired
+    private ProcessingJobService processingJobService;
+
+    /**
+     * Analytics settings, used for the mode of scheduled runs and the resume flag.
+     */
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    /**
+     * Queues a run in `analytics.schedule-mode`. Disabled while `analytics.schedule-cron` is `-`.
+     */
+    @Scheduled(cron = "${analytics.schedule-cron:-}")
+    public void processOnSchedule() {
+        try {
+            ProcessingJob job = processingJobService.submit(analyticsProperties.getScheduleMode(), "schedule");
+            log.info("Scheduled analytics job {} queued", job.getId());
+        } catch (RejectedExecutionException e) {
+            log.warn("Analytics job queue is full, skipping scheduled run");
+        }
+    }
+
+    /**
+     * Queues a `PARTITIONED` run on startup if a partitioned rebuild was interrupted, so it continues from
+     * its last finished month. Disabled by `analytics.resume-rebuild=false`.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRebuild() {
+        if (!analyticsProperties.isResumeRebuild()) {
+            return;
+        }
+        processingJobService.getRebuildProgress().ifPresent(progress -> {
+            try {
+                ProcessingJob job = processingJobService.submit(ProcessingMode.PARTITIONED, "resume");
+                log.info("Resuming partitioned rebuild at {} as job {}", progress, job.getId());
+            } catch (RejectedExecutionException e) {
+                log.warn("Analytics job queue is full, not resuming partitioned rebuild");
+            }
+        });
+    }
+}
@@ -0,0 +1,254 @@
+package com.cloudkitchen.listener;
+
+import com.cloudkitchen.config.AnalyticsProperties;
+import com.cloudkitchen.service.ProcessingJob;
+import com.cloudkitchen.service.ProcessingJobService;
+import com.cloudkitchen.service.ProcessingJobStatus;
+import com.cloudkitchen.service.ProcessingMode;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Queues incremental runs as soon as data-ingestion-service commits orders, instead of waiting for the
+ * next scheduled run. Ingestion writes a row to `raw_data_schema.ingestion_outbox` and sends
+ * `NOTIFY raw_data_changed` in each chunk's transaction (`ingestion.outbox-enabled`); this listener
+ * keeps a dedicated connection in `LISTEN` mode on a daemon thread, coalesces bursts of notifications
+ * with a {@link NotificationCoalescer} and submits one `INCREMENTAL` job per burst through the regular
+ * job queue and processing lock.
+ * <p>
+ * Notifications are not queued for sessions that are not listening, so the outbox is the durable
+ * record: on every (re)connect the listener treats leftover outbox rows as a pending notification.
+ * When it submits a run it reads the ids of the outbox rows committed so far, and it deletes exactly
+ * those rows once the run has completed; rows committed while the run was queued or running stay for
+ * the next run. Runs that are skipped, rejected or fail leave their rows in place and are retried
+ * after the next quiet period.
+ */
+@Component
+public class IngestionEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionEventListener.class);
+
+    /**
+     * The channel data-ingestion-service notifies on.
+     */
+    private static final String CHANNEL = "raw_data_changed";
+
+    /**
+     * The raw table whose changes trigger runs; other payloads are ignored.
+     */
+    private static final String ORDERS_TABLE = "raw_orders_data";
+
+    /**
+     * Finds the newest outbox row announcing orders.
+     */
+    private static final String MAX_ORDERS_EVENT_SQL = "SELECT max(id) FROM raw_data_schema.ingestion_outbox WHERE source_table = ?";
+
+    /**
+     * Lists the outbox rows committed so far, which a run submitted now covers.
+     */
+    private static final String EVENT_IDS_SQL = "SELECT id FROM raw_data_schema.ingestion_outbox";
+
+    /**
+     * Deletes the outbox rows a completed run covered.
+     */
+    private static final String DELETE_EVENTS_SQL = "DELETE FROM raw_data_schema.ingestion_outbox WHERE id = ANY(?)";
+
+    /**
+     * How long to wait for notifications while nothing is pending.
+     */
+    private static final Duration IDLE_WAIT = Duration.ofSeconds(30);
+
+    /**
+     * How often the state of a submitted job is checked.
+     */
+    private static final Duration JOB_POLL = Duration.ofMillis(500);
+
+    /**
+     * The longest wait before reconnecting after a connection failure.
+     */
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    /**
+     * Data source the listening connection is borrowed from.
+     */
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * JDBC template used to read and delete outbox rows.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Service that queues the triggered runs.
+     */
+    @Autowired
+    private ProcessingJobService processingJobService;
+
+    /**
+     * Analytics settings, used for the enable flag and the coalescing periods.
+     */
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    /**
+     * The listener thread, or `null` while the listener is disabled or stopped.
+     */
+    private volatile Thread thread;
+
+    /**
+     * The job submitted for the latest burst, or `null` if none is outstanding.
+     */
+    private ProcessingJob job;
+
+    /**
+     * The outbox rows covered by {@link #job}.
+     */
+    private Long[] jobEventIds;
+
+    /**
+     * Starts the listener thread once the application is ready, if `analytics.listen-enabled` is set.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!analyticsProperties.isListenEnabled()) {
+            return;
+        }
+        Thread listener = new Thread(this::listen, "ingestion-listener");
+        listener.setDaemon(true);
+        thread = listener;
+        listener.start();
+        log.info("Listening for ingestion notifications on {}", CHANNEL);
+    }
+
+    /**
+     * Stops the listener thread; its connection is returned to the pool as the thread exits.
+     */
+    @PreDestroy
+    public void stop() {
+        Thread listener = thread;
+        thread = null;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    /**
+     * Listens until stopped, reconnecting with an exponential backoff after connection failures.
+     */
+    private void listen() {
+        NotificationCoalescer coalescer = new NotificationCoalescer(
+                analyticsProperties.getListenQuietPeriod(), analyticsProperties.getListenMaxDelay());
+        Duration backoff = Duration.ofSeconds(1);
+        while (thread != null) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                backoff = Duration.ofSeconds(1);
+                // Catch up on orders committed while no instance was listening.
+                if (lastOrdersEventId() != null) {
+                    coalescer.onEvent(Instant.now());
+                }
+                poll(connection.unwrap(PGConnection.class), coalescer);
+            } catch (SQLException | DataAccessException e) {
+                if (thread == null) {
+                    return;
+                }
+                log.warn("Ingestion listener failed, reconnecting in {}s", backoff.toSeconds(), e);
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    /**
+     * Waits for notifications on the listening connection and submits a run whenever a burst is due.
+     */
+    private void poll(PGConnection connection, NotificationCoalescer coalescer) throws SQLException {
+        while (thread != null) {
+            Duration wait = coalescer.timeUntilDue(Instant.now(), IDLE_WAIT);
+            if (job != null && wait.compareTo(JOB_POLL) > 0) {
+                wait = JOB_POLL;
+            }
+            // A timeout of 0 would block until the next notification.
+            PGNotification[] notifications = connection.getNotifications((int) Math.max(1, wait.toMillis()));
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    if (ORDERS_TABLE.equals(notification.getParameter())) {
+                        coalescer.onEvent(Instant.now());
+                    }
+                }
+            }
+            if (job != null && job.isFinished()) {
+                finishJob(coalescer);
+            }
+            if (job == null && coalescer.isDue(Instant.now())) {
+                coalescer.clear();
+                submitJob(coalescer);
+            }
+        }
+    }
+
+    /**
+     * Queues an incremental run covering the outbox rows announced so far. The run is queued even if
+     * another instance already deleted those rows; it then finds no new orders and completes quickly.
+     */
+    private void submitJob(NotificationCoalescer coalescer) {
+        // Read before submitting, so every row listed was committed before the run reads the orders.
+        Long[] eventIds = jdbcTemplate.queryForList(EVENT_IDS_SQL, Long.class).toArray(new Long[0]);
+        try {
+            job = processingJobService.submit(ProcessingMode.INCREMENTAL, "notify");
+            jobEventIds = eventIds;
+            log.info("Analytics job {} queued for ingested orders", job.getId());
+        } catch (RejectedExecutionException e) {
+            log.warn("Analytics job queue is full, retrying notified run later");
+            coalescer.onEvent(Instant.now());
+        }
+    }
+
+    /**
+     * Deletes the outbox rows a completed run covered, or re-arms the coalescer if the run did not complete.
+     */
+    private void finishJob(NotificationCoalescer coalescer) {
+        if (job.getStatus() == ProcessingJobStatus.COMPLETED) {
+            if (jobEventIds.length > 0) {
+                jdbcTemplate.update(DELETE_EVENTS_SQL,
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", jobEventIds)));
+            }
+        } else {
+            coalescer.onEvent(Instant.now());
+        }
+        job = null;
+        jobEventIds = null;
+    }
+
+    /**
+     * Returns the id of the newest outbox row announcing orders, or `null` if there is none.
+     */
+    private Long lastOrdersEventId() {
+        return jdbcTemplate.queryForObject(MAX_ORDERS_EVENT_SQL, Long.class, ORDERS_TABLE);
+    }
+}
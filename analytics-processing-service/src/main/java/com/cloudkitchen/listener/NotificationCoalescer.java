@@ -0,0 +1,101 @@
+package com.cloudkitchen.listener;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Coalesces bursts of ingestion notifications into single runs. A run is due once no notification has
+ * arrived for the quiet period, so a large upload that commits hundreds of chunks triggers one run
+ * rather than hundreds; the maximum delay bounds how long a steady stream of notifications can hold
+ * its run back. Not thread-safe: it is owned by the listener thread.
+ */
+public class NotificationCoalescer {
+
+    /**
+     * How long notifications have to stop before a run is due.
+     */
+    private final Duration quietPeriod;
+
+    /**
+     * The longest the first pending notification waits for its run.
+     */
+    private final Duration maxDelay;
+
+    /**
+     * When the first notification since the last run arrived, or `null` if none is pending.
+     */
+    private Instant firstEvent;
+
+    /**
+     * When the latest pending notification arrived.
+     */
+    private Instant lastEvent;
+
+    /**
+     * Creates a coalescer.
+     *
+     * @param quietPeriod How long notifications have to stop before a run is due.
+     * @param maxDelay The longest the first pending notification waits for its run.
+     */
+    public NotificationCoalescer(Duration quietPeriod, Duration maxDelay) {
+        this.quietPeriod = quietPeriod;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Records a notification.
+     *
+     * @param now When the notification arrived.
+     */
+    public void onEvent(Instant now) {
+        if (firstEvent == null) {
+            firstEvent = now;
+        }
+        lastEvent = now;
+    }
+
+    /**
+     * Returns whether a notification is waiting for its run.
+     *
+     * @return `true` if a notification is pending.
+     */
+    public boolean isPending() {
+        return firstEvent != null;
+    }
+
+    /**
+     * Returns whether the pending notifications should be processed now.
+     *
+     * @param now The current time.
+     * @return `true` if a notification is pending and either the quiet period or the maximum delay has passed.
+     */
+    public boolean isDue(Instant now) {
+        return firstEvent != null
+                && (!now.isBefore(lastEvent.plus(quietPeriod)) || !now.isBefore(firstEvent.plus(maxDelay)));
+    }
+
+    /**
+     * Returns how long to wait for further notifications before the pending ones are due.
+     *
+     * @param now The current time.
+     * @param idle The wait to use when nothing is pending.
+     * @return The wait, never negative.
+     */
+    public Duration timeUntilDue(Instant now, Duration idle) {
+        if (firstEvent == null) {
+            return idle;
+        }
+        Instant due = lastEvent.plus(quietPeriod);
+        Instant deadline = firstEvent.plus(maxDelay);
+        Duration wait = Duration.between(now, due.isBefore(deadline) ? due : deadline);
+        return wait.isNegative() ? Duration.ZERO : wait;
+    }
+
+    /**
+     * Forgets the pending notifications once their run has been queued.
+     */
+    public void clear() {
+        firstEvent = null;
+        lastEvent = null;
+    }
+}
@@ -15,10 +15,11 @@ public class DailyKpis {
 
     /**
      * Unique identifier for the daily KPI record.
-     * This is an auto-generated primary key.
+     * This is an auto-generated primary key, drawn from a pooled sequence so Hibernate can batch inserts.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "daily_kpis_seq")
+    @SequenceGenerator(name = "daily_kpis_seq", sequenceName = "daily_kpis_seq", schema = "analytics_schema", allocationSize = 50)
     private Long id;
 
     /**
@@ -0,0 +1,80 @@
+package com.cloudkitchen.model;
+
+import jakarta.persistence.*;
+import java.sql.Timestamp;
+
+/**
+ * Records how far analytics processing has read a raw data table.
+ * Incremental runs only read rows with an id above `lastRawId` and advance it
+ * in the same transaction that updates the KPI tables.
+ */
+@Entity
+@Table(name = "processing_watermark", schema = "analytics_schema")
+public class ProcessingWatermark {
+
+    /**
+     * The name of the watermark, e.g. `raw_orders_data`.
+     */
+    @Id
+    private String name;
+
+    /**
+     * The largest raw row id already folded into the KPI tables.
+     */
+    @Column(name = "last_raw_id", nullable = false)
+    private Long lastRawId;
+
+    /**
+     * Timestamp indicating when the watermark was last advanced.
+     */
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+
+    /**
+     * Returns the name of the watermark.
+     * @return The watermark name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the watermark.
+     * @param name The watermark name to set.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the largest raw row id already processed.
+     * @return The last processed raw id.
+     */
+    public Long getLastRawId() {
+        return lastRawId;
+    }
+
+    /**
+     * Sets the largest raw row id already processed.
+     * @param lastRawId The last processed raw id to set.
+     */
+    public void setLastRawId(Long lastRawId) {
+        this.lastRawId = lastRawId;
+    }
+
+    /**
+     * Returns when the watermark was last advanced.
+     * @return The update timestamp.
+     */
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Sets when the watermark was last advanced.
+     * @param updatedAt The update timestamp to set.
+     */
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -9,7 +9,8 @@ import java.sql.Timestamp;
 public class RawItemsData {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "raw_items_data_seq")
+    @SequenceGenerator(name = "raw_items_data_seq", sequenceName = "raw_items_data_seq", schema = "raw_data_schema", allocationSize = 500)
     private Long id;
 
     private Timestamp date;
@@ -26,9 +27,6 @@ public class RawItemsData {
     private String variation;
     private String category;
 
-    @Column(name = "raw_line", columnDefinition = "TEXT")
-    private String rawLine;
-
     public Long getId() {
         return id;
     }
@@ -100,12 +98,4 @@ public class RawItemsData {
     public void setCategory(String category) {
         this.category = category;
     }
-
-    public String getRawLine() {
-        return rawLine;
-    }
-
-    public void setRawLine(String rawLine) {
-        this.rawLine = rawLine;
-    }
 }
@@ -9,7 +9,8 @@ import java.sql.Timestamp;
 public class RawOrdersData {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "raw_orders_data_seq")
+    @SequenceGenerator(name = "raw_orders_data_seq", sequenceName = "raw_orders_data_seq", schema = "raw_data_schema", allocationSize = 500)
     private Long id;
 
     @Column(name = "invoice_no")
@@ -69,9 +70,6 @@ public class RawOrdersData {
 
     private BigDecimal sgst;
 
-    @Column(name = "raw_line", columnDefinition = "TEXT")
-    private String rawLine;
-
     public Long getId() {
         return id;
     }
@@ -263,12 +261,4 @@ public class RawOrdersData {
     public void setSgst(BigDecimal sgst) {
         this.sgst = sgst;
     }
-
-    public String getRawLine() {
-        return rawLine;
-    }
-
-    public void setRawLine(String rawLine) {
-        this.rawLine = rawLine;
-    }
 }
@@ -0,0 +1,10 @@
+package com.cloudkitchen.repository;
+
+import com.cloudkitchen.model.ProcessingWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository interface for `ProcessingWatermark` entities, keyed by watermark name.
+ */
+public interface ProcessingWatermarkRepository extends JpaRepository<ProcessingWatermark, String> {
+}
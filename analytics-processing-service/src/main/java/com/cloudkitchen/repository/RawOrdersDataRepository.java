@@ -1,7 +1,14 @@
 package com.cloudkitchen.repository;
 
 import com.cloudkitchen.model.RawOrdersData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for `RawOrdersData` entities.
@@ -9,4 +16,20 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * and custom query capabilities for `RawOrdersData`.
  */
 public interface RawOrdersDataRepository extends JpaRepository<RawOrdersData, Long> {
+    /**
+     * Returns the largest id currently in `raw_orders_data`.
+     * @return An `Optional` containing the largest id, or empty if the table has no rows.
+     */
+    @Query("select max(o.id) from RawOrdersData o")
+    Optional<Long> findMaxId();
+
+    /**
+     * Streams the orders whose id lies in `(afterId, upToId]`, fetching them from the server in batches
+     * instead of materialising the whole range. Must be consumed and closed inside a transaction.
+     * @param afterId The exclusive lower bound, usually the processing watermark.
+     * @param upToId The inclusive upper bound.
+     * @return The matching orders.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    Stream<RawOrdersData> streamByIdGreaterThanAndIdLessThanEqual(Long afterId, Long upToId);
 }
@@ -7,9 +7,26 @@ package com.cloudkitchen.service;
  */
 public interface AnalyticsService {
     /**
-     * Initiates the process of calculating and aggregating analytics data.
+     * Initiates the process of calculating and aggregating analytics data
+     * using the configured default processing mode.
      * This method typically fetches raw data, performs various KPI calculations,
      * and persists the results into the analytics database.
      */
     void processAnalytics();
+
+    /**
+     * Initiates the process of calculating and aggregating analytics data.
+     *
+     * @param mode Whether to rebuild every period or only fold in orders ingested since the last run.
+     */
+    void processAnalytics(ProcessingMode mode);
+
+    /**
+     * Initiates the process of calculating and aggregating analytics data and records
+     * the duration and row count of each phase.
+     *
+     * @param mode Whether to rebuild every period or only fold in orders ingested since the last run.
+     * @param report Receives the timings and row counts of the phases as they complete.
+     */
+    void processAnalytics(ProcessingMode mode, ProcessingReport report);
 }
@@ -0,0 +1,167 @@
+package com.cloudkitchen.service;
+
+import java.time.Instant;
+
+/**
+ * An analytics run accepted for background processing, triggered by the API or the schedule.
+ * Phase timings are read from the shared `ProcessingReport`, which the pipeline updates while the job runs.
+ */
+public class ProcessingJob {
+
+    /**
+     * The job id returned to the client.
+     */
+    private final String id;
+
+    /**
+     * The processing mode of the run.
+     */
+    private final ProcessingMode mode;
+
+    /**
+     * What started the job, e.g. `api` or `schedule`.
+     */
+    private final String trigger;
+
+    /**
+     * When the job was accepted.
+     */
+    private final Instant submittedAt = Instant.now();
+
+    /**
+     * Live phase timings and row counts, updated by the pipeline.
+     */
+    private final ProcessingReport report = new ProcessingReport();
+
+    /**
+     * The current lifecycle state.
+     */
+    private volatile ProcessingJobStatus status = ProcessingJobStatus.QUEUED;
+
+    /**
+     * When a job thread picked the job up.
+     */
+    private volatile Instant startedAt;
+
+    /**
+     * When the job reached a final state.
+     */
+    private volatile Instant finishedAt;
+
+    /**
+     * Why the job failed or was skipped, if it did not complete.
+     */
+    private volatile String error;
+
+    /**
+     * Creates a queued job.
+     *
+     * @param id The job id returned to the client.
+     * @param mode The processing mode of the run.
+     * @param trigger What started the job.
+     */
+    public ProcessingJob(String id, ProcessingMode mode, String trigger) {
+        this.id = id;
+        this.mode = mode;
+        this.trigger = trigger;
+    }
+
+    /**
+     * Marks the job as picked up by a job thread.
+     */
+    public void markRunning() {
+        startedAt = Instant.now();
+        status = ProcessingJobStatus.RUNNING;
+    }
+
+    /**
+     * Marks the job as finished with the given final status.
+     * @param finalStatus `COMPLETED`, `SKIPPED` or `FAILED`.
+     * @param error Why the job did not complete, or `null`.
+     */
+    public void markFinished(ProcessingJobStatus finalStatus, String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = finalStatus;
+    }
+
+    /**
+     * Returns whether the job has reached a final state.
+     * @return `true` once the job has finished, successfully or not.
+     */
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    /**
+     * Returns the job id.
+     * @return The job id.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the processing mode of the run.
+     * @return The processing mode.
+     */
+    public ProcessingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns what started the job.
+     * @return The trigger, e.g. `api` or `schedule`.
+     */
+    public String getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * Returns when the job was accepted.
+     * @return The submission time.
+     */
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * Returns the live phase report.
+     * @return The processing report.
+     */
+    public ProcessingReport getReport() {
+        return report;
+    }
+
+    /**
+     * Returns the current lifecycle state.
+     * @return The job status.
+     */
+    public ProcessingJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns when a job thread picked the job up.
+     * @return The start time, or `null` while queued.
+     */
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Returns when the job reached a final state.
+     * @return The finish time, or `null` while queued or running.
+     */
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Returns why the job did not complete.
+     * @return The error, or `null` if the job is still running or completed.
+     */
+    public String getError() {
+        return error;
+    }
+}
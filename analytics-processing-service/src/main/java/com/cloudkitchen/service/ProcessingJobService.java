@@ -0,0 +1,35 @@
+package com.cloudkitchen.service;
+
+import java.util.Optional;
+
+/**
+ * Service interface for background analytics processing jobs.
+ * Runs are queued on a bounded executor and guarded by a database lock, so at most one run
+ * changes the KPI tables at a time across all instances of the service.
+ */
+public interface ProcessingJobService {
+    /**
+     * Queues an analytics run.
+     *
+     * @param mode The processing mode of the run.
+     * @param trigger What started the run, e.g. `api` or `schedule`.
+     * @return The queued job.
+     * @throws java.util.concurrent.RejectedExecutionException If the job queue is full.
+     */
+    ProcessingJob submit(ProcessingMode mode, String trigger);
+
+    /**
+     * Looks up a queued, running or recently finished job.
+     *
+     * @param id The job id.
+     * @return The job, or empty if it is unknown or has expired.
+     */
+    Optional<ProcessingJob> getJob(String id);
+
+    /**
+     * Returns the progress of the partitioned rebuild in progress, which any instance may be working on.
+     *
+     * @return The progress, or empty if no rebuild is in progress.
+     */
+    Optional<RebuildProgress> getRebuildProgress();
+}
@@ -0,0 +1,31 @@
+package com.cloudkitchen.service;
+
+/**
+ * Lifecycle states of a background analytics processing job.
+ */
+public enum ProcessingJobStatus {
+    /**
+     * The job is waiting for a free job thread.
+     */
+    QUEUED,
+
+    /**
+     * The job holds the processing lock and is computing KPIs.
+     */
+    RUNNING,
+
+    /**
+     * The KPI tables and the watermark were updated.
+     */
+    COMPLETED,
+
+    /**
+     * Another run, possibly on another instance, held the processing lock; nothing was changed.
+     */
+    SKIPPED,
+
+    /**
+     * The job stopped on an error; the transaction of the failed phase was rolled back.
+     */
+    FAILED
+}
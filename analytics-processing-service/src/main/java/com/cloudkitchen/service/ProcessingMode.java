@@ -0,0 +1,35 @@
+package com.cloudkitchen.service;
+
+/**
+ * How much of the raw order history an analytics run reads.
+ * The mode can be configured globally via `analytics.mode` or chosen per request.
+ */
+public enum ProcessingMode {
+    /**
+     * Clears the KPI tables and rebuilds every period from the whole of `raw_orders_data`.
+     * This is the original behaviour; its cost grows with the total order history.
+     */
+    FULL,
+
+    /**
+     * Reads only the orders ingested since the previous run (tracked by a watermark on the raw
+     * order id) and adds them to the KPI rows of the days, weeks and months they fall into.
+     * Periods without new orders are not touched, so the cost grows with the size of the new data.
+     */
+    INCREMENTAL,
+
+    /**
+     * Rebuilds every period like `FULL`, but into shadow copies of the KPI tables, and then swaps
+     * the result into the live tables in one short transaction. Dashboards keep reading the
+     * previous results during the rebuild and never see empty or half-written tables.
+     */
+    SHADOW,
+
+    /**
+     * Rebuilds every period like `FULL`, split into month partitions that every instance running a
+     * `PARTITIONED` job leases and processes concurrently; weeks spanning two months are merged at the end.
+     * A rebuild interrupted by a crash is resumed by the next `PARTITIONED` run, and other runs are skipped
+     * until it finishes.
+     */
+    PARTITIONED
+}
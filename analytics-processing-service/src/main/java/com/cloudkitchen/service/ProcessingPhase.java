@@ -0,0 +1,59 @@
+package com.cloudkitchen.service;
+
+/**
+ * A completed phase of an analytics run, such as aggregating orders or writing KPI rows.
+ */
+public class ProcessingPhase {
+
+    /**
+     * The phase name, e.g. `aggregate` or `write`.
+     */
+    private final String name;
+
+    /**
+     * The number of rows the phase read or wrote.
+     */
+    private final long rows;
+
+    /**
+     * How long the phase took in milliseconds.
+     */
+    private final long durationMillis;
+
+    /**
+     * Creates a completed phase.
+     *
+     * @param name The phase name.
+     * @param rows The number of rows the phase read or wrote.
+     * @param durationMillis How long the phase took in milliseconds.
+     */
+    public ProcessingPhase(String name, long rows, long durationMillis) {
+        this.name = name;
+        this.rows = rows;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Returns the phase name.
+     * @return The phase name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of rows the phase read or wrote.
+     * @return The row count.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns how long the phase took.
+     * @return The duration in milliseconds.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
@@ -0,0 +1,37 @@
+package com.cloudkitchen.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Phase timings and row counts of one analytics run.
+ * The processing pipeline appends to it while it runs, so a job's report can be read concurrently.
+ */
+public class ProcessingReport {
+
+    /**
+     * The phases completed so far, in order.
+     */
+    private final List<ProcessingPhase> phases = new CopyOnWriteArrayList<>();
+
+    /**
+     * Records a completed phase.
+     *
+     * @param name The phase name.
+     * @param rows The number of rows the phase read or wrote.
+     * @param startNanos The `System.nanoTime()` at which the phase started.
+     */
+    public void addPhase(String name, long rows, long startNanos) {
+        phases.add(new ProcessingPhase(name, rows, (System.nanoTime() - startNanos) / 1_000_000));
+    }
+
+    /**
+     * Returns the phases completed so far.
+     * @return An unmodifiable snapshot of the phases, in order.
+     */
+    public List<ProcessingPhase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<>(phases));
+    }
+}
@@ -0,0 +1,151 @@
+package com.cloudkitchen.service;
+
+/**
+ * Progress of a partitioned rebuild, derived from its month checkpoints in `analytics_schema.kpi_partitions`.
+ * Throughput is measured over the time workers actually spent on finished months, so downtime between
+ * a crash and the resumed run does not distort it; the ETA assumes the months whose lease is held right now
+ * keep being processed at that rate in parallel. Months a crashed worker started are reported as stalled
+ * instead of counting as workers, until another instance leases them.
+ */
+public class RebuildProgress {
+
+    /**
+     * The number of months in the rebuild.
+     */
+    private final int monthsTotal;
+
+    /**
+     * The number of months already rebuilt.
+     */
+    private final int monthsDone;
+
+    /**
+     * The number of orders in the rebuild.
+     */
+    private final long ordersTotal;
+
+    /**
+     * The number of orders in the months already rebuilt.
+     */
+    private final long ordersDone;
+
+    /**
+     * The number of months whose lease a worker holds right now.
+     */
+    private final int workers;
+
+    /**
+     * The number of unfinished months that were started but whose lease nobody holds, e.g. after a crash.
+     */
+    private final int stalledMonths;
+
+    /**
+     * Orders rebuilt per second by one worker, or 0 before the first month is done.
+     */
+    private final long ordersPerSecond;
+
+    /**
+     * Estimated seconds until every month is rebuilt, or `null` before the first month is done.
+     */
+    private final Long etaSeconds;
+
+    /**
+     * Creates the progress of a rebuild.
+     *
+     * @param monthsTotal The number of months in the rebuild.
+     * @param monthsDone The number of months already rebuilt.
+     * @param ordersTotal The number of orders in the rebuild.
+     * @param ordersDone The number of orders in the months already rebuilt.
+     * @param busyMillis The time workers spent on the months already rebuilt, in milliseconds.
+     * @param workers The number of months whose lease a worker holds right now.
+     * @param stalledMonths The number of unfinished months that were started but whose lease nobody holds.
+     */
+    public RebuildProgress(int monthsTotal, int monthsDone, long ordersTotal, long ordersDone, long busyMillis, int workers,
+                           int stalledMonths) {
+        this.monthsTotal = monthsTotal;
+        this.monthsDone = monthsDone;
+        this.ordersTotal = ordersTotal;
+        this.ordersDone = ordersDone;
+        this.workers = workers;
+        this.stalledMonths = stalledMonths;
+        this.ordersPerSecond = busyMillis > 0 ? ordersDone * 1000 / busyMillis : 0;
+        this.etaSeconds = ordersPerSecond > 0
+                ? (ordersTotal - ordersDone) / (ordersPerSecond * Math.max(1, workers))
+                : null;
+    }
+
+    /**
+     * Returns the number of months in the rebuild.
+     * @return The number of months.
+     */
+    public int getMonthsTotal() {
+        return monthsTotal;
+    }
+
+    /**
+     * Returns the number of months already rebuilt.
+     * @return The number of months done.
+     */
+    public int getMonthsDone() {
+        return monthsDone;
+    }
+
+    /**
+     * Returns the number of orders in the rebuild.
+     * @return The number of orders.
+     */
+    public long getOrdersTotal() {
+        return ordersTotal;
+    }
+
+    /**
+     * Returns the number of orders in the months already rebuilt.
+     * @return The number of orders done.
+     */
+    public long getOrdersDone() {
+        return ordersDone;
+    }
+
+    /**
+     * Returns the number of months whose lease a worker holds right now.
+     * @return The number of workers.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Returns the number of unfinished months that were started but whose lease nobody holds.
+     * @return The number of stalled months.
+     */
+    public int getStalledMonths() {
+        return stalledMonths;
+    }
+
+    /**
+     * Returns the orders rebuilt per second by one worker.
+     * @return The throughput, or 0 before the first month is done.
+     */
+    public long getOrdersPerSecond() {
+        return ordersPerSecond;
+    }
+
+    /**
+     * Returns the estimated seconds until every month is rebuilt.
+     * @return The ETA, or `null` before the first month is done.
+     */
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    /**
+     * Returns a one-line summary for the log.
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        return monthsDone + "/" + monthsTotal + " months, " + ordersDone + "/" + ordersTotal + " orders, "
+                + ordersPerSecond + " orders/s, " + workers + " workers, " + stalledMonths + " stalled, ETA "
+                + (etaSeconds == null ? "unknown" : etaSeconds + "s");
+    }
+}
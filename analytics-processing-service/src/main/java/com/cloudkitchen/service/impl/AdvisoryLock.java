@@ -0,0 +1,86 @@
+package com.cloudkitchen.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Runs work under a PostgreSQL session-level advisory lock, so it is mutually exclusive
+ * across every instance connected to the same database.
+ * <p>
+ * The lock is held on a dedicated pooled connection for the duration of the work; the work itself
+ * uses its own connections and transactions. If the instance dies, the database drops the session
+ * and the lock with it.
+ */
+@Component
+public class AdvisoryLock {
+
+    /**
+     * Data source the lock connection is borrowed from.
+     */
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Runs the work if the named lock is free, without waiting for it otherwise.
+     *
+     * @param name The lock name; hashed to the 64-bit advisory lock key space by the database.
+     * @param work The work to run while holding the lock.
+     * @return `true` if the work ran, `false` if another session held the lock.
+     */
+    public boolean runExclusively(String name, Runnable work) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!call(connection, "SELECT pg_try_advisory_lock(hashtext(?))", name)) {
+                return false;
+            }
+            try {
+                work.run();
+            } finally {
+                call(connection, "SELECT pg_advisory_unlock(hashtext(?))", name);
+            }
+            return true;
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Advisory lock " + name + " failed", e);
+        }
+    }
+
+    /**
+     * Runs the work once the named lock is free, waiting for the session holding it to release it.
+     *
+     * @param name The lock name; hashed to the 64-bit advisory lock key space by the database.
+     * @param work The work to run while holding the lock.
+     */
+    public void runWhenFree(String name, Runnable work) {
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_lock(hashtext(?))")) {
+                statement.setString(1, name);
+                statement.execute();
+            }
+            try {
+                work.run();
+            } finally {
+                call(connection, "SELECT pg_advisory_unlock(hashtext(?))", name);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Advisory lock " + name + " failed", e);
+        }
+    }
+
+    /**
+     * Runs a lock function and returns its boolean result.
+     */
+    private static boolean call(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
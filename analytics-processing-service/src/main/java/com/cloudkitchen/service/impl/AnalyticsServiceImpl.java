@@ -1,28 +1,25 @@
 package com.cloudkitchen.service.impl;
 
-import com.cloudkitchen.model.DailyKpis;
-import com.cloudkitchen.model.RawOrdersData;
-import com.cloudkitchen.model.WeeklyKpis;
-import com.cloudkitchen.model.MonthlyKpis;
+import com.cloudkitchen.aggregation.CustomerFirstSeenIndex;
+import com.cloudkitchen.aggregation.DailyPartials;
+import com.cloudkitchen.aggregation.KpiAggregator;
+import com.cloudkitchen.config.AnalyticsProperties;
+import com.cloudkitchen.model.ProcessingWatermark;
 import com.cloudkitchen.repository.DailyKpisRepository;
 import com.cloudkitchen.repository.MonthlyKpisRepository;
-import com.cloudkitchen.repository.RawOrdersDataRepository;
+import com.cloudkitchen.repository.ProcessingWatermarkRepository;
 import com.cloudkitchen.repository.WeeklyKpisRepository;
 import com.cloudkitchen.service.AnalyticsService;
+import com.cloudkitchen.service.ProcessingMode;
+import com.cloudkitchen.service.ProcessingReport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.YearMonth;
-import java.time.DayOfWeek;
-import java.time.temporal.WeekFields;
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of the `AnalyticsService` interface.
@@ -33,6 +30,11 @@ import java.util.stream.Collectors;
 @Service
 public class AnalyticsServiceImpl implements AnalyticsService {
 
+    /**
+     * Name of the watermark tracking how far `raw_orders_data` has been processed.
+     */
+    static final String RAW_ORDERS_WATERMARK = "raw_orders_data";
+
     /**
      * Repository for `DailyKpis` entities, used for database operations related to daily aggregated data.
      */
@@ -52,92 +54,196 @@ public class AnalyticsServiceImpl implements AnalyticsService {
     private MonthlyKpisRepository monthlyKpisRepository;
 
     /**
-     * Repository for `RawOrdersData` entities, used to fetch raw order data for KPI calculations.
+     * Repository for `ProcessingWatermark` entities, used to remember the last processed raw order id.
+     */
+    @Autowired
+    private ProcessingWatermarkRepository processingWatermarkRepository;
+
+    /**
+     * Analytics settings, used for the default processing mode.
+     */
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    /**
+     * Writer that upserts the computed period totals into the KPI tables in batches.
+     */
+    @Autowired
+    private KpiUpsertWriter kpiUpsertWriter;
+
+    /**
+     * Shadow KPI tables that `SHADOW` runs build into before swapping them in.
+     */
+    @Autowired
+    private KpiShadowTables kpiShadowTables;
+
+    /**
+     * Index of each customer's first and last order day, rebuilt by full and shadow runs.
+     */
+    @Autowired
+    private CustomerFirstSeenIndex customerFirstSeenIndex;
+
+    /**
+     * Recomputes the days data-ingestion-service logged as dirty.
+     */
+    @Autowired
+    private DirtyPeriodRecomputer dirtyPeriodRecomputer;
+
+    /**
+     * Coordinates `PARTITIONED` rebuilds across instances.
      */
     @Autowired
-    private RawOrdersDataRepository rawOrdersDataRepository;
+    private PartitionedRebuild partitionedRebuild;
+
+    /**
+     * Transaction template that scopes each run.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * The available aggregation engines; the one matching `analytics.engine` is used.
+     */
+    @Autowired
+    private List<KpiAggregator> kpiAggregators;
+
+    /**
+     * Processes raw order data using the configured default processing mode.
+     */
+    @Override
+    public void processAnalytics() {
+        processAnalytics(analyticsProperties.getMode());
+    }
 
     /**
      * Processes raw order data to calculate and persist daily, weekly, and monthly KPIs.
-     * This method fetches all raw order data, groups it by date, week, and month,
-     * calculates total revenue for each period, and saves the results.
+     * A full run clears the KPI tables and reads every order; an incremental run reads only
+     * the orders above the watermark and adds their totals to the periods they fall into;
+     * a shadow run rebuilds every period into shadow tables and swaps them in at the end.
+     * Full and shadow runs also rebuild the customer first-seen index and discard the dirty dates
+     * logged by ingestion. All periods are written with a few batched upserts, and a full run empties
+     * the tables with one `DELETE` per table. Every mode advances the watermark to the largest id read,
+     * in the same transaction that makes the KPI updates visible, so a failed run is simply retried
+     * from the previous watermark.
+     * <p>
+     * The watermark relies on raw order ids growing with ingestion time. Orders updated in place
+     * by an `UPSERT` upload keep their id; an incremental run picks them up by recomputing the
+     * report dates ingestion logged as dirty, together with their weeks and months.
      * Future enhancements will include more detailed KPI calculations as per LLD.
      */
     @Override
-    public void processAnalytics() {
-        dailyKpisRepository.deleteAll();
-        weeklyKpisRepository.deleteAll();
-        monthlyKpisRepository.deleteAll();
-
-        // Fetch all raw order data from the database.
-        List<RawOrdersData> allOrders = rawOrdersDataRepository.findAll();
-
-        // Group orders by date to calculate daily KPIs.
-        Map<LocalDate, List<RawOrdersData>> ordersByDate = allOrders.stream()
-                .collect(Collectors.groupingBy(order -> order.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate()));
-
-        // Iterate through daily grouped orders to calculate and save daily KPIs.
-        ordersByDate.forEach((date, orders) -> {
-            // Calculate total revenue for the current day.
-            BigDecimal totalRevenue = orders.stream()
-                    .map(RawOrdersData::getNetSales)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Retrieve existing DailyKpis for the date or create a new one.
-            DailyKpis dailyKpis = dailyKpisRepository.findByReportDate(Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()))
-                    .orElse(new DailyKpis());
-            // Set report date, total revenue, and last updated timestamp.
-            dailyKpis.setReportDate(Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
-            dailyKpis.setTotalRevenue(totalRevenue);
-            dailyKpis.setLastUpdated(new Timestamp(System.currentTimeMillis()));
-            // Save the daily KPIs to the database.
-            dailyKpisRepository.save(dailyKpis);
-        });
-
-        // Weekly KPI calculations: Group orders by the start of the week (Monday).
-        Map<LocalDate, List<RawOrdersData>> ordersByWeek = allOrders.stream()
-                .collect(Collectors.groupingBy(order -> {
-                    LocalDate orderDate = order.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-                    // Determine the Monday of the week for the given order date.
-                    return orderDate.with(WeekFields.ISO.dayOfWeek(), DayOfWeek.MONDAY.getValue());
-                }));
-
-        // Iterate through weekly grouped orders to calculate and save weekly KPIs.
-        ordersByWeek.forEach((weekStartDate, orders) -> {
-            // Calculate total revenue for the current week.
-            BigDecimal totalRevenue = orders.stream()
-                    .map(RawOrdersData::getNetSales)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Retrieve existing WeeklyKpis for the week or create a new one.
-            WeeklyKpis weeklyKpis = weeklyKpisRepository.findByWeekStartDate(Date.from(weekStartDate.atStartOfDay(ZoneId.systemDefault()).toInstant()))
-                    .orElse(new WeeklyKpis());
-            // Set week start date and total revenue.
-            weeklyKpis.setWeekStartDate(Date.from(weekStartDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
-            weeklyKpis.setTotalRevenue(totalRevenue);
-            // Save the weekly KPIs to the database.
-            weeklyKpisRepository.save(weeklyKpis);
-        });
-
-        // Monthly KPI calculations: Group orders by year and month.
-        Map<YearMonth, List<RawOrdersData>> ordersByMonth = allOrders.stream()
-                .collect(Collectors.groupingBy(order -> YearMonth.from(order.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate())));
-
-        // Iterate through monthly grouped orders to calculate and save monthly KPIs.
-        ordersByMonth.forEach((yearMonth, orders) -> {
-            // Calculate total revenue for the current month.
-            BigDecimal totalRevenue = orders.stream()
-                    .map(RawOrdersData::getNetSales)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Retrieve existing MonthlyKpis for the month or create a new one.
-            MonthlyKpis monthlyKpis = monthlyKpisRepository.findByMonthStartDate(Date.from(yearMonth.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant()))
-                    .orElse(new MonthlyKpis());
-            // Set month start date and total revenue.
-            monthlyKpis.setMonthStartDate(Date.from(yearMonth.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant()));
-            monthlyKpis.setTotalRevenue(totalRevenue);
-            // Save the monthly KPIs to the database.
-            monthlyKpisRepository.save(monthlyKpis);
-        });
+    public void processAnalytics(ProcessingMode mode) {
+        processAnalytics(mode, new ProcessingReport());
+    }
+
+    /**
+     * Processes raw order data like {@link #processAnalytics(ProcessingMode)}, recording the
+     * `aggregate` (orders read), `write` (KPI rows written) and, for incremental runs, `recompute`
+     * (KPI rows rebuilt for dirty dates) or, for shadow runs, `swap` phases. Partitioned runs record
+     * `plan`, `partitions` and `merge` phases instead.
+     *
+     * @param mode The processing mode.
+     * @param report Receives the phase timings and row counts.
+     */
+    @Override
+    public void processAnalytics(ProcessingMode mode, ProcessingReport report) {
+        long upToId = dirtyPeriodRecomputer.committedUpToId();
+        switch (mode) {
+            case INCREMENTAL -> transactionTemplate.executeWithoutResult(status -> {
+                ProcessingWatermark watermark = loadWatermark();
+                Collection<LocalDate> recountDays = List.of();
+                if (upToId > watermark.getLastRawId()) {
+                    // Aggregate only the orders ingested since the previous run.
+                    DailyPartials partials = aggregate(watermark.getLastRawId(), upToId, report);
+                    write(partials, "", report);
+                    advance(watermark, upToId);
+                    recountDays = partials.getRecountDays();
+                } else {
+                    report.addPhase("aggregate", 0, System.nanoTime());
+                }
+                // Then rebuild the days that late or corrected orders touched, and those whose customers
+                // the scan could not count, up to the orders processed so far.
+                long start = System.nanoTime();
+                report.addPhase("recompute", dirtyPeriodRecomputer.recompute(watermark.getLastRawId(), recountDays), start);
+            });
+            case SHADOW -> transactionTemplate.executeWithoutResult(status -> {
+                // Build outside the live tables: readers keep seeing the previous results meanwhile,
+                // and the live rows are only locked by the swap at the very end of the transaction.
+                kpiShadowTables.recreate();
+                customerFirstSeenIndex.clear();
+                dirtyPeriodRecomputer.discard();
+                write(aggregate(0L, upToId, report), KpiShadowTables.SUFFIX, report);
+                long start = System.nanoTime();
+                int rows = kpiShadowTables.swapIn();
+                advance(loadWatermark(), upToId);
+                report.addPhase("swap", rows, start);
+            });
+            // Each month commits on its own; see PartitionedRebuild.
+            case PARTITIONED -> partitionedRebuild.run(report);
+            default -> transactionTemplate.executeWithoutResult(status -> {
+                dailyKpisRepository.deleteAllInBatch();
+                weeklyKpisRepository.deleteAllInBatch();
+                monthlyKpisRepository.deleteAllInBatch();
+                customerFirstSeenIndex.clear();
+                dirtyPeriodRecomputer.discard();
+                write(aggregate(0L, upToId, report), "", report);
+                advance(loadWatermark(), upToId);
+            });
+        }
+    }
+
+    /**
+     * Aggregates the orders in `(afterId, upToId]` with the configured engine and records the phase.
+     */
+    private DailyPartials aggregate(long afterId, long upToId, ProcessingReport report) {
+        long start = System.nanoTime();
+        DailyPartials partials = aggregator().aggregate(afterId, upToId);
+        report.addPhase("aggregate", partials.getOrderCount(), start);
+        return partials;
+    }
+
+    /**
+     * Writes daily partials and their rollups to the KPI tables with the given suffix and records the phase.
+     */
+    private void write(DailyPartials partials, String tableSuffix, ProcessingReport report) {
+        long start = System.nanoTime();
+        int rows = kpiUpsertWriter.write(partials, tableSuffix);
+        report.addPhase("write", rows, start);
+    }
+
+    /**
+     * Loads the raw orders watermark, or a new one at 0 for a database that has never been processed.
+     */
+    private ProcessingWatermark loadWatermark() {
+        return processingWatermarkRepository.findById(RAW_ORDERS_WATERMARK).orElseGet(this::newWatermark);
+    }
+
+    /**
+     * Moves the watermark to the given raw order id.
+     */
+    private void advance(ProcessingWatermark watermark, long upToId) {
+        watermark.setLastRawId(upToId);
+        watermark.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        processingWatermarkRepository.save(watermark);
+    }
+
+    /**
+     * Returns the aggregator for the configured `analytics.engine`.
+     */
+    private KpiAggregator aggregator() {
+        return kpiAggregators.stream()
+                .filter(aggregator -> aggregator.getEngine() == analyticsProperties.getEngine())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No aggregator for engine " + analyticsProperties.getEngine()));
+    }
+
+    /**
+     * Creates the raw orders watermark for a database that has never been processed.
+     */
+    private ProcessingWatermark newWatermark() {
+        ProcessingWatermark watermark = new ProcessingWatermark();
+        watermark.setName(RAW_ORDERS_WATERMARK);
+        watermark.setLastRawId(0L);
+        return watermark;
     }
-}
\ No newline at end of file
+}
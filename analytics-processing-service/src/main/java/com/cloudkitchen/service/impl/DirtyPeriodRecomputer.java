@@ -0,0 +1,115 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.aggregation.DailyPartials;
+import com.cloudkitchen.aggregation.SqlKpiAggregator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Recomputes the report dates data-ingestion-service logged in `raw_data_schema.dirty_report_dates`
+ * because late or corrected orders were ingested for them. Each dirty day is rebuilt from all its
+ * orders, and its ISO week and month from the daily rows, so the cost of a correction is proportional
+ * to the days it touched rather than to the whole history.
+ * <p>
+ * Days are always recomputed in PostgreSQL, whatever the configured engine: reading a few days
+ * through the index on `raw_orders_data.date` is cheaper than loading them into the JVM.
+ * <p>
+ * Runs must take their upper order id from {@link #committedUpToId()}, which agrees with data-ingestion-service
+ * on which late commits get logged.
+ */
+@Component
+public class DirtyPeriodRecomputer {
+
+    /**
+     * Takes every logged dirty date off the log.
+     */
+    private static final String DRAIN_SQL = "DELETE FROM raw_data_schema.dirty_report_dates RETURNING report_date";
+
+    /**
+     * Advisory lock data-ingestion-service holds in shared mode from deciding which dates of a chunk to log
+     * until the chunk commits.
+     */
+    static final String COMMIT_LOCK = "raw_orders_commit";
+
+    /**
+     * JDBC template used to drain the log.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Lock that keeps chunks from committing while the largest order id is read.
+     */
+    @Autowired
+    private AdvisoryLock advisoryLock;
+
+    /**
+     * Aggregator used to recompute the dirty days.
+     */
+    @Autowired
+    private SqlKpiAggregator sqlKpiAggregator;
+
+    /**
+     * Writer that replaces the recomputed days and rebuilds their weeks and months.
+     */
+    @Autowired
+    private KpiUpsertWriter kpiUpsertWriter;
+
+    /**
+     * Drains the dirty dates and recomputes them, together with the days an incremental scan marked for
+     * recount, from the orders with ids up to `upToId`; orders above it are added by a later incremental
+     * run. Runs in the caller's transaction, so a failed run leaves the dates logged.
+     *
+     * @param upToId The inclusive upper id bound.
+     * @param recountDays Days whose customers the incremental scan could not count, see
+     *                    {@link DailyPartials#markForRecount(LocalDate)}.
+     * @return The number of KPI rows written.
+     */
+    public int recompute(long upToId, Collection<LocalDate> recountDays) {
+        NavigableSet<LocalDate> days = drain();
+        days.addAll(recountDays);
+        if (days.isEmpty()) {
+            return 0;
+        }
+        DailyPartials partials = sqlKpiAggregator.aggregateDays(days, upToId);
+        return kpiUpsertWriter.replaceDays(partials, days);
+    }
+
+    /**
+     * Returns the largest committed order id, read while no ingestion chunk is between its dirty-date check
+     * and its commit. A chunk that commits later sees this id or a larger one as committed, so it logs the
+     * dates of every row it commits below it, and its other rows lie above it.
+     *
+     * @return The largest order id, or 0 if there are no orders.
+     */
+    public long committedUpToId() {
+        long[] upToId = {0L};
+        advisoryLock.runWhenFree(COMMIT_LOCK, () -> upToId[0] = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM raw_data_schema.raw_orders_data", Long.class));
+        return upToId[0];
+    }
+
+    /**
+     * Discards the dirty dates, before a run that rebuilds every period anyway. Runs in the caller's transaction.
+     */
+    public void discard() {
+        jdbcTemplate.update("DELETE FROM raw_data_schema.dirty_report_dates");
+    }
+
+    /**
+     * Takes the distinct dirty dates off the log.
+     */
+    private NavigableSet<LocalDate> drain() {
+        NavigableSet<LocalDate> days = new TreeSet<>();
+        jdbcTemplate.query(DRAIN_SQL, rs -> {
+            days.add(rs.getDate("report_date").toLocalDate());
+        });
+        return days;
+    }
+}
@@ -0,0 +1,65 @@
+package com.cloudkitchen.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Shadow copies of the KPI tables used by `SHADOW` rebuilds. A rebuild writes every period into the
+ * shadows while readers keep querying the live tables, then {@link #swapIn()} replaces the live rows
+ * as the last step of the same transaction, so the live rows are only locked for the swap itself.
+ * <p>
+ * The swap copies rows instead of renaming tables: `DELETE` and `INSERT` only take row-level locks,
+ * so concurrent readers never wait on it and, under MVCC, see either the old or the new rows in full.
+ * KPI tables hold one row per period, so the copy takes milliseconds even for years of history.
+ */
+@Component
+public class KpiShadowTables {
+
+    /**
+     * Suffix of the shadow table names, e.g. `daily_kpis_shadow`.
+     */
+    public static final String SUFFIX = "_shadow";
+
+    /**
+     * The KPI tables that have shadows.
+     */
+    private static final List<String> TABLES = List.of("daily_kpis", "weekly_kpis", "monthly_kpis");
+
+    /**
+     * JDBC template used to run the DDL and the swap.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Drops and recreates the empty shadow tables from the current live table definitions, so columns
+     * added to the live tables since the last rebuild are picked up. The shadows are `UNLOGGED`: they
+     * are rebuilt from raw data on every run and need no crash safety.
+     */
+    public void recreate() {
+        for (String table : TABLES) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS analytics_schema." + table + SUFFIX);
+            jdbcTemplate.execute("CREATE UNLOGGED TABLE analytics_schema." + table + SUFFIX
+                    + " (LIKE analytics_schema." + table + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING INDEXES)");
+        }
+    }
+
+    /**
+     * Replaces the rows of every live KPI table with the rows of its shadow and empties the shadows.
+     * Must run inside the caller's transaction so all three tables switch at once.
+     *
+     * @return The number of KPI rows swapped in.
+     */
+    public int swapIn() {
+        int rows = 0;
+        for (String table : TABLES) {
+            jdbcTemplate.update("DELETE FROM analytics_schema." + table);
+            rows += jdbcTemplate.update("INSERT INTO analytics_schema." + table + " SELECT * FROM analytics_schema." + table + SUFFIX);
+            jdbcTemplate.execute("TRUNCATE analytics_schema." + table + SUFFIX);
+        }
+        return rows;
+    }
+}
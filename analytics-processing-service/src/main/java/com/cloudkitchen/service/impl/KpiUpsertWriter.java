@@ -0,0 +1,292 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.aggregation.Channel;
+import com.cloudkitchen.aggregation.DailyPartials;
+import com.cloudkitchen.aggregation.Grain;
+import com.cloudkitchen.aggregation.KpiPartial;
+import com.cloudkitchen.config.AnalyticsProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes KPI partials into the KPI tables with batched `INSERT ... ON CONFLICT` statements,
+ * one batch per table, instead of a lookup and a save per period.
+ * Daily partials are rolled up to each grain that has a table. Totals are added to the values
+ * already stored for a period, so the same writer serves full rebuilds (into emptied tables)
+ * and incremental runs. Days recomputed after late or corrected orders are replaced instead, with
+ * their weeks and months rebuilt from the daily rows.
+ */
+@Component
+public class KpiUpsertWriter {
+
+    /**
+     * Number of periods sent to the server per JDBC batch.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Upsert for `daily_kpis` (or its shadow, substituted for `%s`); also stamps `last_updated`.
+     */
+    private static final String DAILY_UPSERT_SQL = "INSERT INTO analytics_schema.%s AS k "
+            + "(report_date, total_revenue, aggregator_revenue_zomato, aggregator_revenue_swiggy, "
+            + "aggregator_revenue_pickup, estimated_aggregator_commission, total_order_count, "
+            + "new_customer_count, repeat_customer_count, last_updated) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (report_date) DO UPDATE SET "
+            + "total_revenue = COALESCE(k.total_revenue, 0) + EXCLUDED.total_revenue, "
+            + "aggregator_revenue_zomato = COALESCE(k.aggregator_revenue_zomato, 0) + EXCLUDED.aggregator_revenue_zomato, "
+            + "aggregator_revenue_swiggy = COALESCE(k.aggregator_revenue_swiggy, 0) + EXCLUDED.aggregator_revenue_swiggy, "
+            + "aggregator_revenue_pickup = COALESCE(k.aggregator_revenue_pickup, 0) + EXCLUDED.aggregator_revenue_pickup, "
+            + "estimated_aggregator_commission = COALESCE(k.estimated_aggregator_commission, 0) "
+            + "+ EXCLUDED.estimated_aggregator_commission, "
+            + "total_order_count = COALESCE(k.total_order_count, 0) + EXCLUDED.total_order_count, "
+            + "new_customer_count = COALESCE(k.new_customer_count, 0) + EXCLUDED.new_customer_count, "
+            + "repeat_customer_count = COALESCE(k.repeat_customer_count, 0) + EXCLUDED.repeat_customer_count, "
+            + "last_updated = EXCLUDED.last_updated";
+
+    /**
+     * Upsert for `weekly_kpis` (or its shadow, substituted for `%s`).
+     */
+    private static final String WEEKLY_UPSERT_SQL = "INSERT INTO analytics_schema.%s AS k "
+            + "(week_start_date, total_revenue) VALUES (?, ?) "
+            + "ON CONFLICT (week_start_date) DO UPDATE SET "
+            + "total_revenue = COALESCE(k.total_revenue, 0) + EXCLUDED.total_revenue";
+
+    /**
+     * Upsert for `monthly_kpis` (or its shadow, substituted for `%s`).
+     */
+    private static final String MONTHLY_UPSERT_SQL = "INSERT INTO analytics_schema.%s AS k "
+            + "(month_start_date, total_revenue) VALUES (?, ?) "
+            + "ON CONFLICT (month_start_date) DO UPDATE SET "
+            + "total_revenue = COALESCE(k.total_revenue, 0) + EXCLUDED.total_revenue";
+
+    /**
+     * Deletes the daily rows of a `date[]` of days.
+     */
+    private static final String DELETE_DAYS_SQL = "DELETE FROM analytics_schema.daily_kpis WHERE report_date = ANY(?)";
+
+    /**
+     * Deletes the weekly rows of a `date[]` of week starts.
+     */
+    private static final String DELETE_WEEKS_SQL = "DELETE FROM analytics_schema.weekly_kpis WHERE week_start_date = ANY(?)";
+
+    /**
+     * Deletes the monthly rows of a `date[]` of month starts.
+     */
+    private static final String DELETE_MONTHS_SQL = "DELETE FROM analytics_schema.monthly_kpis WHERE month_start_date = ANY(?)";
+
+    /**
+     * Rebuilds the weekly rows of a `date[]` of week starts from their daily rows.
+     */
+    private static final String ROLLUP_WEEKS_SQL = "INSERT INTO analytics_schema.weekly_kpis (week_start_date, total_revenue) "
+            + "SELECT p.period_start, SUM(d.total_revenue) FROM unnest(?) AS p(period_start) "
+            + "JOIN analytics_schema.daily_kpis d ON d.report_date >= p.period_start AND d.report_date < p.period_start + 7 "
+            + "GROUP BY p.period_start";
+
+    /**
+     * Rebuilds the monthly rows of a `date[]` of month starts from their daily rows.
+     */
+    private static final String ROLLUP_MONTHS_SQL = "INSERT INTO analytics_schema.monthly_kpis (month_start_date, total_revenue) "
+            + "SELECT p.period_start, SUM(d.total_revenue) FROM unnest(?) AS p(period_start) "
+            + "JOIN analytics_schema.daily_kpis d ON d.report_date >= p.period_start "
+            + "AND d.report_date < CAST(p.period_start + INTERVAL '1 month' AS date) "
+            + "GROUP BY p.period_start";
+
+    /**
+     * Deletes the daily rows of one month.
+     */
+    private static final String DELETE_MONTH_DAYS_SQL = "DELETE FROM analytics_schema.daily_kpis "
+            + "WHERE report_date >= ? AND report_date < ?";
+
+    /**
+     * Deletes the daily rows outside a `date[]` of month starts.
+     */
+    private static final String DELETE_OTHER_MONTHS_DAYS_SQL = "DELETE FROM analytics_schema.daily_kpis "
+            + "WHERE CAST(date_trunc('month', report_date) AS date) <> ALL(?)";
+
+    /**
+     * Deletes the monthly rows outside a `date[]` of month starts.
+     */
+    private static final String DELETE_OTHER_MONTHS_SQL = "DELETE FROM analytics_schema.monthly_kpis WHERE month_start_date <> ALL(?)";
+
+    /**
+     * Rebuilds every weekly row from the daily rows; `date_trunc('week', ...)` yields the ISO week's Monday.
+     */
+    private static final String ROLLUP_ALL_WEEKS_SQL = "INSERT INTO analytics_schema.weekly_kpis (week_start_date, total_revenue) "
+            + "SELECT CAST(date_trunc('week', report_date) AS date), SUM(total_revenue) "
+            + "FROM analytics_schema.daily_kpis GROUP BY 1";
+
+    /**
+     * JDBC template used to run the batched upserts.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Analytics settings, used for the per-channel commission rates.
+     */
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    /**
+     * Adds the given partials to the daily KPI rows and their weekly and monthly rollups to the
+     * weekly and monthly rows, inserting rows for new periods. Runs in the caller's transaction.
+     *
+     * @param partials The daily partials to write.
+     * @return The number of KPI rows written.
+     */
+    public int write(DailyPartials partials) {
+        return write(partials, "");
+    }
+
+    /**
+     * Like {@link #write(DailyPartials)}, but into the KPI tables whose names end with the given suffix,
+     * e.g. the shadow tables of a `SHADOW` rebuild.
+     *
+     * @param partials The daily partials to write.
+     * @param tableSuffix The suffix appended to `daily_kpis`, `weekly_kpis` and `monthly_kpis`.
+     * @return The number of KPI rows written.
+     */
+    public int write(DailyPartials partials, String tableSuffix) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return upsertDaily(String.format(DAILY_UPSERT_SQL, "daily_kpis" + tableSuffix), partials.rollup(Grain.DAY), now)
+                + upsert(String.format(WEEKLY_UPSERT_SQL, "weekly_kpis" + tableSuffix), partials.rollup(Grain.WEEK))
+                + upsert(String.format(MONTHLY_UPSERT_SQL, "monthly_kpis" + tableSuffix), partials.rollup(Grain.MONTH));
+    }
+
+    /**
+     * Replaces the daily rows of the given days with the given partials, then rebuilds the weekly and
+     * monthly rows of the weeks and months containing those days from their daily rows. Days without a
+     * partial lose their row. Runs in the caller's transaction.
+     *
+     * @param partials The recomputed partials of the days.
+     * @param days The days being replaced.
+     * @return The number of KPI rows written.
+     */
+    public int replaceDays(DailyPartials partials, Collection<LocalDate> days) {
+        Set<LocalDate> weeks = new TreeSet<>();
+        Set<LocalDate> months = new TreeSet<>();
+        for (LocalDate day : days) {
+            weeks.add(Grain.WEEK.periodStart(day));
+            months.add(Grain.MONTH.periodStart(day));
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        updateWithDates(DELETE_DAYS_SQL, days);
+        int rows = upsertDaily(String.format(DAILY_UPSERT_SQL, "daily_kpis"), partials.rollup(Grain.DAY), now);
+        updateWithDates(DELETE_WEEKS_SQL, weeks);
+        rows += updateWithDates(ROLLUP_WEEKS_SQL, weeks);
+        updateWithDates(DELETE_MONTHS_SQL, months);
+        rows += updateWithDates(ROLLUP_MONTHS_SQL, months);
+        return rows;
+    }
+
+    /**
+     * Replaces the daily rows of one month with the given partials and rebuilds the month's row from them.
+     * Weeks are left alone, because a week spanning two months would otherwise be written by both months'
+     * partitions; {@link #rebuildWeeks()} rebuilds them once all months are written. Runs in the caller's
+     * transaction.
+     *
+     * @param partials The recomputed partials of the month's days.
+     * @param monthStart The first day of the month.
+     * @return The number of KPI rows written.
+     */
+    public int replaceMonth(DailyPartials partials, LocalDate monthStart) {
+        jdbcTemplate.update(DELETE_MONTH_DAYS_SQL, Date.valueOf(monthStart), Date.valueOf(monthStart.plusMonths(1)));
+        int rows = upsertDaily(String.format(DAILY_UPSERT_SQL, "daily_kpis"), partials.rollup(Grain.DAY),
+                new Timestamp(System.currentTimeMillis()));
+        updateWithDates(DELETE_MONTHS_SQL, List.of(monthStart));
+        return rows + updateWithDates(ROLLUP_MONTHS_SQL, List.of(monthStart));
+    }
+
+    /**
+     * Deletes the daily and monthly rows of every month not in the given list, before the listed months
+     * are replaced one by one. Runs in the caller's transaction.
+     *
+     * @param monthStarts The first days of the months to keep.
+     */
+    public void retainMonths(Collection<LocalDate> monthStarts) {
+        updateWithDates(DELETE_OTHER_MONTHS_DAYS_SQL, monthStarts);
+        updateWithDates(DELETE_OTHER_MONTHS_SQL, monthStarts);
+    }
+
+    /**
+     * Rebuilds every weekly row from the daily rows. Runs in the caller's transaction.
+     *
+     * @return The number of weekly rows written.
+     */
+    public int rebuildWeeks() {
+        jdbcTemplate.update("DELETE FROM analytics_schema.weekly_kpis");
+        return jdbcTemplate.update(ROLLUP_ALL_WEEKS_SQL);
+    }
+
+    /**
+     * Runs a statement whose only parameter is a `date[]`. Returns the number of rows it changed.
+     */
+    private int updateWithDates(String sql, Collection<LocalDate> dates) {
+        return jdbcTemplate.update(sql, ps ->
+                ps.setArray(1, ps.getConnection().createArrayOf("date", dates.stream().map(Date::valueOf).toArray())));
+    }
+
+    /**
+     * Sends the batched daily upsert with the full daily column set. Returns the number of days sent.
+     */
+    private int upsertDaily(String sql, Map<LocalDate, KpiPartial> days, Timestamp lastUpdated) {
+        if (days.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<LocalDate, KpiPartial>> rows = new ArrayList<>(days.entrySet());
+        jdbcTemplate.batchUpdate(sql, rows, BATCH_SIZE, (ps, row) -> {
+            KpiPartial partial = row.getValue();
+            ps.setDate(1, Date.valueOf(row.getKey()));
+            ps.setBigDecimal(2, partial.getTotalRevenue());
+            ps.setBigDecimal(3, partial.getChannelRevenue(Channel.ZOMATO));
+            ps.setBigDecimal(4, partial.getChannelRevenue(Channel.SWIGGY));
+            ps.setBigDecimal(5, partial.getChannelRevenue(Channel.PICKUP));
+            ps.setBigDecimal(6, commission(partial));
+            ps.setInt(7, Math.toIntExact(partial.getOrderCount()));
+            ps.setInt(8, Math.toIntExact(partial.getNewCustomerCount()));
+            ps.setInt(9, Math.toIntExact(partial.getRepeatCustomerCount()));
+            ps.setTimestamp(10, lastUpdated);
+        });
+        return rows.size();
+    }
+
+    /**
+     * Sends one batched revenue upsert for a weekly or monthly table. Returns the number of periods sent.
+     */
+    private int upsert(String sql, Map<LocalDate, KpiPartial> periods) {
+        if (periods.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<LocalDate, KpiPartial>> rows = new ArrayList<>(periods.entrySet());
+        jdbcTemplate.batchUpdate(sql, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setDate(1, Date.valueOf(row.getKey()));
+            ps.setBigDecimal(2, row.getValue().getTotalRevenue());
+        });
+        return rows.size();
+    }
+
+    /**
+     * Estimates the commission of a day as the sum of each channel's revenue times its configured rate.
+     */
+    private BigDecimal commission(KpiPartial partial) {
+        BigDecimal commission = BigDecimal.ZERO;
+        for (Map.Entry<Channel, BigDecimal> rate : analyticsProperties.getCommissionRates().entrySet()) {
+            commission = commission.add(partial.getChannelRevenue(rate.getKey()).multiply(rate.getValue()));
+        }
+        return commission.setScale(2, RoundingMode.HALF_UP);
+    }
+}
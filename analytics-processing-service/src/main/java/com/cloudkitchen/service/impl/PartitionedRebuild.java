@@ -0,0 +1,324 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.aggregation.CustomerFirstSeenIndex;
+import com.cloudkitchen.aggregation.DailyPartials;
+import com.cloudkitchen.aggregation.SqlKpiAggregator;
+import com.cloudkitchen.model.ProcessingWatermark;
+import com.cloudkitchen.repository.ProcessingWatermarkRepository;
+import com.cloudkitchen.service.ProcessingReport;
+import com.cloudkitchen.service.RebuildProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rebuilds every KPI period split into month partitions that several instances of the service process
+ * concurrently, for `PARTITIONED` runs.
+ * <p>
+ * The first instance to start a run plans it under the `analytics_processing` lock: it fixes the largest
+ * raw order id, rebuilds the customer first-seen index from all orders up to it, so new and repeat customers
+ * no longer depend on the order months are processed in, and records one row per month with orders in
+ * `analytics_schema.kpi_partitions`. Every instance running a `PARTITIONED` job then leases pending months
+ * with a per-month advisory lock and replaces each month's daily and monthly rows in its own transaction.
+ * The lease lives on a database session, so the months of an instance that dies are released with its
+ * session and picked up by the instances still working. Weeks spanning two months are merged at the end,
+ * when the last instance rebuilds all weeks from the daily rows and advances the watermark.
+ * <p>
+ * While a rebuild is planned, other runs are skipped, so no incremental run changes periods under it.
+ * Dashboards see each month switch to its rebuilt values as its partition commits.
+ * <p>
+ * The partition rows double as checkpoints for long backfills: each month is marked done in the
+ * transaction that writes it, so a rebuild interrupted by a crash, a deploy or a database failover
+ * resumes with the first month not done yet and never leaves the KPI tables empty. Each row records
+ * its order count and when it was started and finished, from which {@link #progress()} derives the
+ * throughput and ETA that are logged after every month.
+ */
+@Component
+public class PartitionedRebuild {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionedRebuild.class);
+
+    /**
+     * Prefix of the advisory lock leasing one month, followed by the month's first day.
+     */
+    private static final String PARTITION_LOCK_PREFIX = "analytics_partition:";
+
+    /**
+     * How long to wait before retrying when every pending month is leased by another instance.
+     */
+    private static final long LEASE_RETRY_MILLIS = 1000;
+
+    /**
+     * Identifies this instance in `kpi_partitions.owner`, as `pid@host`.
+     */
+    private static final String OWNER = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * Counts the orders of each month up to an id.
+     */
+    private static final String MONTHS_SQL = "SELECT CAST(date_trunc('month', date) AS date) AS month_start, COUNT(*) AS orders "
+            + "FROM raw_data_schema.raw_orders_data WHERE id <= ? AND date IS NOT NULL GROUP BY 1 ORDER BY 1";
+
+    /**
+     * Records a pending month.
+     */
+    private static final String INSERT_PARTITION_SQL = "INSERT INTO analytics_schema.kpi_partitions "
+            + "(month_start, up_to_id, order_count) VALUES (?, ?, ?)";
+
+    /**
+     * Marks a pending month as started by this instance, for the progress of the rebuild.
+     */
+    private static final String START_PARTITION_SQL = "UPDATE analytics_schema.kpi_partitions "
+            + "SET owner = ?, started_at = now() WHERE month_start = ? AND finished_at IS NULL";
+
+    /**
+     * Lists the pending months, oldest first.
+     */
+    private static final String PENDING_SQL = "SELECT month_start FROM analytics_schema.kpi_partitions "
+            + "WHERE finished_at IS NULL ORDER BY month_start";
+
+    /**
+     * Returns the id bound of a month if it is still pending.
+     */
+    private static final String PENDING_UP_TO_ID_SQL = "SELECT up_to_id FROM analytics_schema.kpi_partitions "
+            + "WHERE month_start = ? AND finished_at IS NULL";
+
+    /**
+     * Sums the checkpoints of the rebuild; the busy time only counts finished months. `started_at` commits
+     * before the month's work and outlives a crashed worker, so workers are counted from the month leases
+     * held in `pg_locks` instead: an advisory lock on a `hashtext` key shows the key's high and low 32 bits
+     * as `classid` and `objid`.
+     */
+    private static final String PROGRESS_SQL = "SELECT COUNT(*) AS months, COUNT(finished_at) AS months_done, "
+            + "COALESCE(SUM(order_count), 0) AS orders, "
+            + "COALESCE(SUM(order_count) FILTER (WHERE finished_at IS NOT NULL), 0) AS orders_done, "
+            + "CAST(COALESCE(SUM(EXTRACT(EPOCH FROM finished_at - started_at)), 0) * 1000 AS bigint) AS busy_millis, "
+            + "COUNT(*) FILTER (WHERE finished_at IS NULL AND leased) AS workers, "
+            + "COUNT(*) FILTER (WHERE started_at IS NOT NULL AND finished_at IS NULL AND NOT leased) AS stalled_months "
+            + "FROM (SELECT p.*, EXISTS (SELECT 1 FROM pg_locks l WHERE l.locktype = 'advisory' AND l.granted "
+            + "AND l.objsubid = 1 AND l.database = (SELECT oid FROM pg_database WHERE datname = current_database()) "
+            + "AND ((CAST(l.classid AS bigint) << 32) | CAST(l.objid AS bigint)) "
+            + "= hashtext('" + PARTITION_LOCK_PREFIX + "' || to_char(p.month_start, 'YYYY-MM-DD'))) AS leased "
+            + "FROM analytics_schema.kpi_partitions p) p";
+
+    /**
+     * Marks a month done.
+     */
+    private static final String FINISH_PARTITION_SQL = "UPDATE analytics_schema.kpi_partitions "
+            + "SET owner = ?, finished_at = now() WHERE month_start = ?";
+
+    /**
+     * JDBC template used to read and write the partitions.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Transaction template that scopes the plan, each month and the merge.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Cross-instance locks for the plan, the merge and the month leases.
+     */
+    @Autowired
+    private AdvisoryLock advisoryLock;
+
+    /**
+     * Aggregator used to recompute the days of each month.
+     */
+    @Autowired
+    private SqlKpiAggregator sqlKpiAggregator;
+
+    /**
+     * Writer that replaces each month's rows and merges the weeks.
+     */
+    @Autowired
+    private KpiUpsertWriter kpiUpsertWriter;
+
+    /**
+     * Index of each customer's first and last order day, rebuilt when a rebuild is planned.
+     */
+    @Autowired
+    private CustomerFirstSeenIndex customerFirstSeenIndex;
+
+    /**
+     * Dirty dates logged by ingestion, discarded when a rebuild is planned.
+     */
+    @Autowired
+    private DirtyPeriodRecomputer dirtyPeriodRecomputer;
+
+    /**
+     * Repository for `ProcessingWatermark` entities, advanced when the rebuild finishes.
+     */
+    @Autowired
+    private ProcessingWatermarkRepository processingWatermarkRepository;
+
+    /**
+     * Returns whether a rebuild is planned and not finished yet.
+     *
+     * @return `true` while `kpi_partitions` has rows.
+     */
+    public boolean isInProgress() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM analytics_schema.kpi_partitions)", Boolean.class));
+    }
+
+    /**
+     * Returns the progress of the rebuild in progress.
+     *
+     * @return The progress, or empty if no rebuild is in progress.
+     */
+    public Optional<RebuildProgress> progress() {
+        return jdbcTemplate.query(PROGRESS_SQL, (rs, rowNum) -> new RebuildProgress(rs.getInt("months"), rs.getInt("months_done"),
+                        rs.getLong("orders"), rs.getLong("orders_done"), rs.getLong("busy_millis"), rs.getInt("workers"),
+                        rs.getInt("stalled_months")))
+                .stream()
+                .filter(progress -> progress.getMonthsTotal() > 0)
+                .findFirst();
+    }
+
+    /**
+     * Takes part in the current rebuild, planning one first if none is in progress: processes pending months
+     * until none is left, waiting for months leased by other instances, then merges the weeks unless another
+     * instance already did. Records the `plan` (months planned), `partitions` (KPI rows written by this
+     * instance) and `merge` (weekly rows rebuilt) phases.
+     *
+     * @param report Receives the phase timings and row counts.
+     */
+    public void run(ProcessingReport report) {
+        long start = System.nanoTime();
+        AtomicInteger planned = new AtomicInteger();
+        advisoryLock.runWhenFree(ProcessingJobServiceImpl.PROCESSING_LOCK, () -> {
+            if (!isInProgress()) {
+                planned.set(plan());
+            }
+        });
+        report.addPhase("plan", planned.get(), start);
+
+        start = System.nanoTime();
+        AtomicInteger rows = new AtomicInteger();
+        List<LocalDate> pending;
+        while (!(pending = pendingMonths()).isEmpty()) {
+            boolean leased = false;
+            for (LocalDate month : pending) {
+                leased |= advisoryLock.runExclusively(PARTITION_LOCK_PREFIX + month, () -> rows.addAndGet(processMonth(month)));
+            }
+            if (!leased) {
+                // Every pending month is leased elsewhere: wait for those instances, or for the database
+                // to drop the session, and with it the leases, of one that died.
+                sleep();
+            }
+        }
+        report.addPhase("partitions", rows.get(), start);
+
+        start = System.nanoTime();
+        AtomicInteger weeks = new AtomicInteger();
+        advisoryLock.runWhenFree(ProcessingJobServiceImpl.PROCESSING_LOCK, () -> {
+            if (isInProgress() && pendingMonths().isEmpty()) {
+                weeks.set(transactionTemplate.execute(status -> finish(jdbcTemplate.queryForObject(
+                        "SELECT MAX(up_to_id) FROM analytics_schema.kpi_partitions", Long.class))));
+            }
+        });
+        report.addPhase("merge", weeks.get(), start);
+    }
+
+    /**
+     * Plans a rebuild of all orders up to the current largest id. Returns the number of months planned.
+     */
+    private int plan() {
+        return transactionTemplate.execute(status -> {
+            long upToId = dirtyPeriodRecomputer.committedUpToId();
+            Map<LocalDate, Long> months = new TreeMap<>();
+            jdbcTemplate.query(MONTHS_SQL, rs -> {
+                months.put(rs.getDate("month_start").toLocalDate(), rs.getLong("orders"));
+            }, upToId);
+            customerFirstSeenIndex.rebuild(upToId);
+            dirtyPeriodRecomputer.discard();
+            kpiUpsertWriter.retainMonths(months.keySet());
+            if (months.isEmpty()) {
+                finish(upToId);
+                return 0;
+            }
+            List<Map.Entry<LocalDate, Long>> rows = new ArrayList<>(months.entrySet());
+            jdbcTemplate.batchUpdate(INSERT_PARTITION_SQL, rows, rows.size(), (ps, month) -> {
+                ps.setDate(1, Date.valueOf(month.getKey()));
+                ps.setLong(2, upToId);
+                ps.setLong(3, month.getValue());
+            });
+            log.info("Planned partitioned rebuild of {} months up to raw order {}", months.size(), upToId);
+            return months.size();
+        });
+    }
+
+    /**
+     * Replaces the rows of a leased month unless another instance finished it meanwhile, checkpointing the
+     * month as done in the same transaction. Returns the number of KPI rows written.
+     */
+    private int processMonth(LocalDate month) {
+        jdbcTemplate.update(START_PARTITION_SQL, OWNER, Date.valueOf(month));
+        int written = transactionTemplate.execute(status -> {
+            List<Long> upToId = jdbcTemplate.queryForList(PENDING_UP_TO_ID_SQL, Long.class, Date.valueOf(month));
+            if (upToId.isEmpty()) {
+                return 0;
+            }
+            DailyPartials partials = sqlKpiAggregator.aggregateIndexedDays(
+                    month.datesUntil(month.plusMonths(1)).toList(), upToId.get(0));
+            int rows = kpiUpsertWriter.replaceMonth(partials, month);
+            jdbcTemplate.update(FINISH_PARTITION_SQL, OWNER, Date.valueOf(month));
+            log.info("Rebuilt partition {}: {} orders, {} KPI rows", month, partials.getOrderCount(), rows);
+            return rows;
+        });
+        progress().ifPresent(progress -> log.info("Partitioned rebuild progress: {}", progress));
+        return written;
+    }
+
+    /**
+     * Merges the weeks, advances the watermark and closes the rebuild. Returns the number of weekly rows.
+     */
+    private int finish(long upToId) {
+        int weeks = kpiUpsertWriter.rebuildWeeks();
+        ProcessingWatermark watermark = processingWatermarkRepository.findById(AnalyticsServiceImpl.RAW_ORDERS_WATERMARK)
+                .orElseGet(ProcessingWatermark::new);
+        watermark.setName(AnalyticsServiceImpl.RAW_ORDERS_WATERMARK);
+        watermark.setLastRawId(upToId);
+        watermark.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        processingWatermarkRepository.save(watermark);
+        jdbcTemplate.update("DELETE FROM analytics_schema.kpi_partitions");
+        return weeks;
+    }
+
+    /**
+     * Returns the months still to be processed, oldest first.
+     */
+    private List<LocalDate> pendingMonths() {
+        return jdbcTemplate.query(PENDING_SQL, (rs, rowNum) -> rs.getDate("month_start").toLocalDate());
+    }
+
+    /**
+     * Waits before retrying to lease a month.
+     */
+    private static void sleep() {
+        try {
+            Thread.sleep(LEASE_RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for leased partitions", e);
+        }
+    }
+}
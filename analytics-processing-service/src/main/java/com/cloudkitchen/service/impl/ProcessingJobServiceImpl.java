@@ -0,0 +1,157 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.config.AnalyticsProperties;
+import com.cloudkitchen.service.AnalyticsService;
+import com.cloudkitchen.service.ProcessingJob;
+import com.cloudkitchen.service.ProcessingJobService;
+import com.cloudkitchen.service.ProcessingJobStatus;
+import com.cloudkitchen.service.ProcessingMode;
+import com.cloudkitchen.service.RebuildProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Implementation of the `ProcessingJobService` interface.
+ * Every run takes the `analytics_processing` advisory lock first; a run that finds it taken, or finds a
+ * partitioned rebuild in progress, is marked `SKIPPED` rather than racing the active run's writes.
+ * `PARTITIONED` runs take the lock only to plan and merge, so the instances can share the months. Jobs are kept in an in-memory
+ * registry, so they are only visible on the instance that accepted them.
+ */
+@Service
+public class ProcessingJobServiceImpl implements ProcessingJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessingJobServiceImpl.class);
+
+    /**
+     * Name of the advisory lock shared by all instances of the service.
+     */
+    static final String PROCESSING_LOCK = "analytics_processing";
+
+    /**
+     * Service that computes the KPIs.
+     */
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    /**
+     * Analytics settings, used for the job retention.
+     */
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    /**
+     * Cross-instance lock that makes runs single-flight.
+     */
+    @Autowired
+    private AdvisoryLock advisoryLock;
+
+    /**
+     * Coordinates `PARTITIONED` rebuilds, which block other runs until they finish.
+     */
+    @Autowired
+    private PartitionedRebuild partitionedRebuild;
+
+    /**
+     * Bounded executor the jobs run on.
+     */
+    @Autowired
+    private ThreadPoolExecutor analyticsJobExecutor;
+
+    /**
+     * Queued, running and recently finished jobs by id.
+     */
+    private final Map<String, ProcessingJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Queues an analytics run on the job executor.
+     *
+     * @param mode The processing mode of the run.
+     * @param trigger What started the run.
+     * @return The queued job.
+     */
+    @Override
+    public ProcessingJob submit(ProcessingMode mode, String trigger) {
+        evictExpiredJobs();
+        ProcessingJob job = new ProcessingJob(UUID.randomUUID().toString(), mode, trigger);
+        jobs.put(job.getId(), job);
+        try {
+            analyticsJobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Looks up a job in the in-memory registry.
+     *
+     * @param id The job id.
+     * @return The job, or empty if it is unknown or has expired.
+     */
+    @Override
+    public Optional<ProcessingJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Reads the progress of the partitioned rebuild from its checkpoints.
+     *
+     * @return The progress, or empty if no rebuild is in progress.
+     */
+    @Override
+    public Optional<RebuildProgress> getRebuildProgress() {
+        return partitionedRebuild.progress();
+    }
+
+    /**
+     * Runs a job on a job thread under the processing lock, or, for `PARTITIONED` jobs, as one of the rebuild's workers.
+     */
+    private void run(ProcessingJob job) {
+        job.markRunning();
+        try {
+            if (job.getMode() == ProcessingMode.PARTITIONED) {
+                analyticsService.processAnalytics(job.getMode(), job.getReport());
+                job.markFinished(ProcessingJobStatus.COMPLETED, null);
+                return;
+            }
+            AtomicBoolean rebuilding = new AtomicBoolean();
+            boolean ran = advisoryLock.runExclusively(PROCESSING_LOCK, () -> {
+                if (partitionedRebuild.isInProgress()) {
+                    rebuilding.set(true);
+                } else {
+                    analyticsService.processAnalytics(job.getMode(), job.getReport());
+                }
+            });
+            if (!ran) {
+                job.markFinished(ProcessingJobStatus.SKIPPED, "Another analytics run is in progress.");
+            } else if (rebuilding.get()) {
+                job.markFinished(ProcessingJobStatus.SKIPPED, "A partitioned rebuild is in progress.");
+            } else {
+                job.markFinished(ProcessingJobStatus.COMPLETED, null);
+            }
+        } catch (RuntimeException e) {
+            log.error("Analytics job {} failed", job.getId(), e);
+            job.markFinished(ProcessingJobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops finished jobs older than `analytics.job-retention` so the registry does not grow without bound.
+     */
+    private void evictExpiredJobs() {
+        Instant cutoff = Instant.now().minus(analyticsProperties.getJobRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+}
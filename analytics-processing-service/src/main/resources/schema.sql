@@ -1,8 +1,11 @@
 
 CREATE SCHEMA IF NOT EXISTS analytics_schema;
 
+-- Ids come from pooled sequences (allocationSize 50 in the entities) so Hibernate can batch inserts.
+CREATE SEQUENCE IF NOT EXISTS analytics_schema.daily_kpis_seq INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS analytics_schema.daily_kpis (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY DEFAULT nextval('analytics_schema.daily_kpis_seq'),
     report_date DATE UNIQUE,
     total_revenue NUMERIC(10, 2),
     aggregator_revenue_zomato NUMERIC(10, 2),
@@ -17,16 +20,55 @@ CREATE TABLE IF NOT EXISTS analytics_schema.daily_kpis (
     last_updated TIMESTAMP
 );
 
+CREATE SEQUENCE IF NOT EXISTS analytics_schema.weekly_kpis_seq INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS analytics_schema.weekly_kpis (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY DEFAULT nextval('analytics_schema.weekly_kpis_seq'),
     week_start_date DATE UNIQUE,
     total_revenue NUMERIC(10, 2)
     -- ... other aggregated metrics
 );
 
+CREATE SEQUENCE IF NOT EXISTS analytics_schema.monthly_kpis_seq INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS analytics_schema.monthly_kpis (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY DEFAULT nextval('analytics_schema.monthly_kpis_seq'),
     month_start_date DATE UNIQUE,
     total_revenue NUMERIC(10, 2)
     -- ... other aggregated metrics
 );
+
+-- How far analytics processing has read each raw table; INCREMENTAL runs only read rows above last_raw_id.
+CREATE TABLE IF NOT EXISTS analytics_schema.processing_watermark (
+    name VARCHAR(255) PRIMARY KEY,
+    last_raw_id BIGINT NOT NULL,
+    updated_at TIMESTAMP
+);
+
+-- SHADOW runs rebuild into UNLOGGED copies of the KPI tables and then swap the rows into the live tables
+-- in one transaction. The copies are dropped and recreated from the live definitions on each run, e.g.:
+-- CREATE UNLOGGED TABLE analytics_schema.daily_kpis_shadow
+--     (LIKE analytics_schema.daily_kpis INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING INDEXES);
+
+-- First and last order day (days since 1970-01-01) of each customer, keyed by the first 64 bits of the
+-- MD5 of the trimmed phone number. Lets incremental runs tell new from repeat customers without
+-- rescanning the order history; rebuilt by FULL and SHADOW runs.
+CREATE TABLE IF NOT EXISTS analytics_schema.customer_first_seen (
+    phone_hash BIGINT PRIMARY KEY,
+    first_day INTEGER NOT NULL,
+    last_day INTEGER NOT NULL
+);
+
+-- Month partitions of a PARTITIONED rebuild. One instance plans the rebuild; every instance running a
+-- PARTITIONED job then leases pending months with an advisory lock, so a dead instance's lease is
+-- released with its session. Each month is marked finished in the transaction that writes it, so an
+-- interrupted rebuild resumes from the first unfinished month; order_count and the start and finish times
+-- give the rebuild's throughput and ETA. Rows are deleted once all months are done and the weeks merged.
+CREATE TABLE IF NOT EXISTS analytics_schema.kpi_partitions (
+    month_start DATE PRIMARY KEY,
+    up_to_id BIGINT NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    owner VARCHAR(255),
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP
+);
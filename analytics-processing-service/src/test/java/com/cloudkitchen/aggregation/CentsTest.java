@@ -0,0 +1,40 @@
+package com.cloudkitchen.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CentsTest {
+
+    @Test
+    void convertsAmountsToPaiseAndBack() {
+        assertThat(Cents.of(new BigDecimal("123.45"))).isEqualTo(12_345L);
+        assertThat(Cents.of(new BigDecimal("7"))).isEqualTo(700L);
+        assertThat(Cents.of(new BigDecimal("-0.50"))).isEqualTo(-50L);
+        assertThat(Cents.of(null)).isZero();
+        assertThat(Cents.toBigDecimal(12_345L)).isEqualTo(new BigDecimal("123.45"));
+    }
+
+    @Test
+    void sumsExactlyLikeBigDecimal() {
+        KpiPartial partial = new KpiPartial();
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < 1_000; i++) {
+            BigDecimal amount = new BigDecimal("0.10").add(BigDecimal.valueOf(i, 2));
+            partial.addOrder(amount, Channel.SWIGGY);
+            expected = expected.add(amount);
+        }
+
+        assertThat(partial.getTotalRevenue()).isEqualTo(expected);
+        assertThat(partial.getChannelRevenue(Channel.SWIGGY)).isEqualTo(expected);
+    }
+
+    @Test
+    void rejectsFractionsOfAPaisaAndOverflow() {
+        assertThatThrownBy(() -> Cents.of(new BigDecimal("1.005"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Cents.add(Long.MAX_VALUE, 1L)).isInstanceOf(ArithmeticException.class);
+    }
+}
@@ -0,0 +1,30 @@
+package com.cloudkitchen.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelTest {
+
+    @Test
+    void classifiesBySubOrderTypeThenOrderType() {
+        assertThat(Channel.classify("Delivery", "Zomato")).isEqualTo(Channel.ZOMATO);
+        assertThat(Channel.classify("Delivery", "SWIGGY Instamart")).isEqualTo(Channel.SWIGGY);
+        assertThat(Channel.classify("Pick Up", null)).isEqualTo(Channel.PICKUP);
+        assertThat(Channel.classify("Delivery", "Pickup")).isEqualTo(Channel.PICKUP);
+        assertThat(Channel.classify("Dine In", "")).isEqualTo(Channel.OTHER);
+        assertThat(Channel.classify(null, null)).isEqualTo(Channel.OTHER);
+    }
+
+    @Test
+    void sqlExpressionUsesTheEnumOrdinals() {
+        assertThat(Channel.SQL_ORDINAL)
+                .contains("'%zomato%' THEN " + Channel.ZOMATO.ordinal())
+                .contains("'%swiggy%' THEN " + Channel.SWIGGY.ordinal())
+                .contains("'%pick%' THEN " + Channel.PICKUP.ordinal())
+                .contains("ELSE " + Channel.OTHER.ordinal());
+        for (Channel channel : Channel.values()) {
+            assertThat(Channel.ofOrdinal(channel.ordinal())).isEqualTo(channel);
+        }
+    }
+}
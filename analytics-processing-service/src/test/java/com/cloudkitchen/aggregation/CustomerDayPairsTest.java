@@ -0,0 +1,58 @@
+package com.cloudkitchen.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerDayPairsTest {
+
+    @Test
+    void sortsByKeyThenDayAndDropsDuplicates() {
+        CustomerDayPairs pairs = new CustomerDayPairs(1);
+        TreeSet<Pair> expected = new TreeSet<>(Comparator.comparingLong(Pair::key).thenComparingInt(Pair::day));
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            long key = random.nextInt(40) - 20;
+            int day = 19_000 + random.nextInt(30);
+            pairs.add(key, day);
+            expected.add(new Pair(key, day));
+        }
+
+        pairs.sortAndDedupe();
+
+        assertThat(pairsOf(pairs)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void mergesSortedListsIntoOne() {
+        CustomerDayPairs january = new CustomerDayPairs(4);
+        january.add(2L, 10);
+        january.add(1L, 11);
+        january.add(1L, 10);
+        january.sortAndDedupe();
+        CustomerDayPairs february = new CustomerDayPairs(4);
+        february.add(3L, 40);
+        february.add(1L, 41);
+        february.sortAndDedupe();
+        CustomerDayPairs merged = new CustomerDayPairs(0);
+        merged.add(2L, 70);
+
+        merged.mergeSorted(List.of(january, february, new CustomerDayPairs(0)));
+
+        assertThat(pairsOf(merged)).containsExactly(
+                new Pair(1L, 10), new Pair(1L, 11), new Pair(1L, 41), new Pair(2L, 10), new Pair(2L, 70), new Pair(3L, 40));
+    }
+
+    private static List<Pair> pairsOf(CustomerDayPairs pairs) {
+        return IntStream.range(0, pairs.size()).mapToObj(i -> new Pair(pairs.key(i), pairs.day(i))).toList();
+    }
+
+    private record Pair(long key, int day) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.cloudkitchen.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerFirstSeenIndexTest {
+
+    @Test
+    void hashMatchesTheLeading64BitsOfTheMd5OfTheTrimmedPhone() {
+        // SELECT CAST(CAST(('x' || substr(md5('9876543210'), 1, 16)) AS bit(64)) AS bigint)
+        assertThat(CustomerFirstSeenIndex.hash(" 9876543210 ")).isEqualTo(-2051176574668426246L);
+        assertThat(CustomerFirstSeenIndex.hash("9876543210")).isNotEqualTo(CustomerFirstSeenIndex.hash("9876543211"));
+    }
+
+    @Test
+    void reportsUnknownCustomers() {
+        Map<Long, int[]> known = Map.of(7L, new int[] {19_000, 19_010});
+
+        assertThat(CustomerFirstSeenIndex.firstDay(known, 7L)).isEqualTo(19_000);
+        assertThat(CustomerFirstSeenIndex.lastDay(known, 7L)).isEqualTo(19_010);
+        assertThat(CustomerFirstSeenIndex.firstDay(known, 8L)).isEqualTo(CustomerFirstSeenIndex.UNKNOWN);
+        assertThat(CustomerFirstSeenIndex.lastDay(known, 8L)).isEqualTo(CustomerFirstSeenIndex.UNKNOWN);
+    }
+
+    @Test
+    void countsDaysOutsideTheKnownSpanAndMarksTheDaysItCannotSettle() {
+        DailyPartials partials = new DailyPartials();
+        // Known on days 100 and 110; this run adds an older order on day 95 and orders inside and after the span.
+        int first = CustomerFirstSeenIndex.firstOrderDay(partials, 100, 95);
+        for (int day : new int[] {95, 100, 105, 110, 120}) {
+            CustomerFirstSeenIndex.countDay(partials, day, first, 100, 110);
+        }
+
+        assertThat(first).isEqualTo(95);
+        assertThat(partials.getDays().keySet()).containsExactly(LocalDate.ofEpochDay(95), LocalDate.ofEpochDay(120));
+        assertThat(partials.partialFor(LocalDate.ofEpochDay(95)).getNewCustomerCount()).isEqualTo(1);
+        assertThat(partials.partialFor(LocalDate.ofEpochDay(120)).getRepeatCustomerCount()).isEqualTo(1);
+        // Day 105 may or may not have been counted before, and day 100 was counted as new.
+        assertThat(partials.getRecountDays()).containsExactly(LocalDate.ofEpochDay(100), LocalDate.ofEpochDay(105));
+    }
+
+    @Test
+    void countsAnUnknownCustomerOnEveryDay() {
+        DailyPartials partials = new DailyPartials();
+        int unknown = CustomerFirstSeenIndex.UNKNOWN;
+        int first = CustomerFirstSeenIndex.firstOrderDay(partials, unknown, 100);
+        for (int day : new int[] {100, 105}) {
+            CustomerFirstSeenIndex.countDay(partials, day, first, unknown, unknown);
+        }
+
+        assertThat(partials.partialFor(LocalDate.ofEpochDay(100)).getNewCustomerCount()).isEqualTo(1);
+        assertThat(partials.partialFor(LocalDate.ofEpochDay(105)).getRepeatCustomerCount()).isEqualTo(1);
+        assertThat(partials.getRecountDays()).isEmpty();
+    }
+
+    @Test
+    void looksUpAndRecordsAChunkOfCustomersAtATimeHoweverLargeThePartition() {
+        List<Integer> lookups = new ArrayList<>();
+        List<Integer> records = new ArrayList<>();
+        CustomerFirstSeenIndex index = new CustomerFirstSeenIndex() {
+            @Override
+            public Map<Long, int[]> lookup(long[] keys) {
+                lookups.add(keys.length);
+                return Map.of();
+            }
+
+            @Override
+            public void record(Map<Long, int[]> days) {
+                records.add(days.size());
+            }
+        };
+        int chunk = CustomerFirstSeenIndex.CHUNK_SIZE;
+        int customers = 2 * chunk + 1;
+        Map<Long, NavigableSet<Integer>> partition = new HashMap<>();
+        CustomerDayPairs pairs = new CustomerDayPairs(2 * customers);
+        for (long key = 0; key < customers; key++) {
+            partition.put(key, new TreeSet<>(List.of(100, 101)));
+            pairs.add(key, 100);
+            pairs.add(key, 101);
+        }
+        pairs.sortAndDedupe();
+
+        DailyPartials fromMap = new DailyPartials();
+        index.countCustomers(fromMap, partition);
+        DailyPartials fromPairs = new DailyPartials();
+        index.countCustomers(fromPairs, pairs);
+
+        // The lookup and record maps never hold more than a chunk, so the peak stays at the partition plus one chunk.
+        assertThat(lookups).containsExactly(chunk, chunk, 1, chunk, chunk, 1);
+        assertThat(records).containsExactly(chunk, chunk, 1, chunk, chunk, 1);
+        for (DailyPartials partials : List.of(fromMap, fromPairs)) {
+            assertThat(partials.partialFor(LocalDate.ofEpochDay(100)).getNewCustomerCount()).isEqualTo(customers);
+            assertThat(partials.partialFor(LocalDate.ofEpochDay(101)).getRepeatCustomerCount()).isEqualTo(customers);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.cloudkitchen.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DailyPartialsTest {
+
+    @Test
+    void rollsDailyPartialsUpToEveryGrain() {
+        DailyPartials partials = new DailyPartials();
+        // Sunday 2024-03-31 closes ISO week 13 and Q1; Monday 2024-04-01 opens week 14, April and Q2.
+        partials.partialFor(LocalDate.of(2024, 3, 30)).addOrder(new BigDecimal("10.00"), Channel.ZOMATO);
+        partials.partialFor(LocalDate.of(2024, 3, 31)).addOrder(new BigDecimal("20.50"), Channel.ZOMATO);
+        partials.partialFor(LocalDate.of(2024, 3, 31)).addOrder(null, Channel.ZOMATO);
+        partials.partialFor(LocalDate.of(2024, 4, 1)).addOrder(new BigDecimal("5.25"), Channel.ZOMATO);
+
+        assertThat(revenue(partials.rollup(Grain.DAY))).containsExactly(
+                Map.entry(LocalDate.of(2024, 3, 30), new BigDecimal("10.00")),
+                Map.entry(LocalDate.of(2024, 3, 31), new BigDecimal("20.50")),
+                Map.entry(LocalDate.of(2024, 4, 1), new BigDecimal("5.25")));
+        assertThat(revenue(partials.rollup(Grain.WEEK))).containsExactly(
+                Map.entry(LocalDate.of(2024, 3, 25), new BigDecimal("30.50")),
+                Map.entry(LocalDate.of(2024, 4, 1), new BigDecimal("5.25")));
+        assertThat(revenue(partials.rollup(Grain.MONTH))).containsExactly(
+                Map.entry(LocalDate.of(2024, 3, 1), new BigDecimal("30.50")),
+                Map.entry(LocalDate.of(2024, 4, 1), new BigDecimal("5.25")));
+        assertThat(revenue(partials.rollup(Grain.QUARTER))).containsExactly(
+                Map.entry(LocalDate.of(2024, 1, 1), new BigDecimal("30.50")),
+                Map.entry(LocalDate.of(2024, 4, 1), new BigDecimal("5.25")));
+        assertThat(revenue(partials.rollup(Grain.YEAR))).containsExactly(
+                Map.entry(LocalDate.of(2024, 1, 1), new BigDecimal("35.75")));
+    }
+
+    @Test
+    void mergesPartialsOfSeparateScans() {
+        DailyPartials first = new DailyPartials();
+        first.partialFor(LocalDate.of(2024, 1, 1)).addOrder(new BigDecimal("1.00"), Channel.ZOMATO);
+        DailyPartials second = new DailyPartials();
+        second.partialFor(LocalDate.of(2024, 1, 1)).addOrder(new BigDecimal("2.00"), Channel.ZOMATO);
+        second.partialFor(LocalDate.of(2024, 1, 2)).addOrder(new BigDecimal("3.00"), Channel.ZOMATO);
+
+        first.merge(second);
+
+        assertThat(revenue(first.getDays())).containsExactly(
+                Map.entry(LocalDate.of(2024, 1, 1), new BigDecimal("3.00")),
+                Map.entry(LocalDate.of(2024, 1, 2), new BigDecimal("3.00")));
+        KpiPartial firstDay = first.getDays().get(LocalDate.of(2024, 1, 1));
+        assertThat(firstDay.getOrderCount()).isEqualTo(2);
+        assertThat(firstDay.getChannelRevenue(Channel.ZOMATO)).isEqualByComparingTo("3.00");
+        assertThat(firstDay.getChannelRevenue(Channel.SWIGGY)).isEqualByComparingTo("0");
+        assertThat(first.getOrderCount()).isEqualTo(3);
+    }
+
+    @Test
+    void mergeKeepsTheDaysMarkedForRecountOnBothSides() {
+        DailyPartials partials = new DailyPartials();
+        partials.markForRecount(LocalDate.of(2024, 3, 31));
+        DailyPartials other = new DailyPartials();
+        other.markForRecount(LocalDate.of(2024, 3, 30));
+        other.markForRecount(LocalDate.of(2024, 3, 31));
+
+        partials.merge(other);
+
+        assertThat(partials.getRecountDays()).containsExactly(LocalDate.of(2024, 3, 30), LocalDate.of(2024, 3, 31));
+        assertThat(partials.isEmpty()).isTrue();
+    }
+
+    private static Map<LocalDate, BigDecimal> revenue(Map<LocalDate, KpiPartial> periods) {
+        Map<LocalDate, BigDecimal> revenue = new LinkedHashMap<>();
+        periods.forEach((start, partial) -> revenue.put(start, partial.getTotalRevenue()));
+        return revenue;
+    }
+}
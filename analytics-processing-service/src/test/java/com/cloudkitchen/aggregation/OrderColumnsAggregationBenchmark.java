@@ -0,0 +1,86 @@
+package com.cloudkitchen.aggregation;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how aggregating the {@link OrderColumns} scales with the number of fork-join threads.
+ * <p>
+ * Fills the columns with synthetic orders spread over three years, then aggregates them sequentially
+ * and with pools of 1, 2, 4, ... threads up to the number of available processors, printing the best
+ * time of several runs, the heap allocated per run and the speedup over the sequential run. The months
+ * are summed independently, so the speedup is bounded by the processors, the memory bandwidth and the
+ * sequential merge of the monthly customer days; only a machine with several cores shows how far it goes.
+ * The allocation column shows that the per-order loop allocates nothing of its own: what a run allocates
+ * is the customer day pair arrays and their sort and merge buffers, about 40 bytes per order at most,
+ * whatever the thread count.
+ * <p>
+ * It needs no database and is not part of the test suite. Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -Xmx4g -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     -Dbenchmark.orders=10000000 \
+ *     com.cloudkitchen.aggregation.OrderColumnsAggregationBenchmark
+ * </pre>
+ */
+public class OrderColumnsAggregationBenchmark {
+
+    private static final int DAYS = 3 * 365;
+
+    private static final int RUNS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int orders = Integer.getInteger("benchmark.orders", 10_000_000);
+        OrderColumns columns = new OrderColumns();
+        int firstDay = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+        for (int i = 0; i < orders; i++) {
+            // Ids grow with ingestion time, so days mostly ascend with the id, with some late orders.
+            int day = firstDay + (int) ((long) i * DAYS / orders) - (i % 97 == 0 ? 3 : 0);
+            columns.append(i + 1, day, 10_000 + i % 90_000, i % 4, i % 5 == 0 ? null : (long) (i % 200_000),
+                    "Area " + i % 12, i % 2 == 0 ? "Delivery" : "Pick Up", i % 3 == 0 ? "Online" : "Cash");
+        }
+
+        double[] sequential = best(columns, null);
+        report("sequential", orders, sequential, sequential[0]);
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                report(threads + " thread(s)", orders, best(columns, pool), sequential[0]);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Returns the best time in milliseconds and the fewest bytes allocated by all threads over the runs.
+     */
+    private static double[] best(OrderColumns columns, ForkJoinPool pool) {
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE};
+        for (int run = 0; run < RUNS; run++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            DailyPartials partials = columns.aggregate(0L, Long.MAX_VALUE, new CustomerDayPairs(0), pool);
+            best[0] = Math.min(best[0], (System.nanoTime() - start) / 1_000_000.0);
+            best[1] = Math.min(best[1], allocatedBytes() - allocatedBefore);
+            if (partials.getOrderCount() != columns.size()) {
+                throw new IllegalStateException("Aggregated " + partials.getOrderCount() + " of " + columns.size() + " orders");
+            }
+        }
+        return best;
+    }
+
+    private static long allocatedBytes() {
+        return Arrays.stream(THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())).filter(bytes -> bytes > 0).sum();
+    }
+
+    private static void report(String label, int orders, double[] best, double sequentialMillis) {
+        System.out.printf("%-14s %,12d orders  %,10.1f ms  %,14.0f orders/s  %,8.1f MB allocated  %5.2fx%n",
+                label, orders, best[0], orders / (best[0] / 1000), best[1] / (1024 * 1024), sequentialMillis / best[0]);
+    }
+}
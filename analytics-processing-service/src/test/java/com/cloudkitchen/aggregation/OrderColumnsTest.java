@@ -0,0 +1,70 @@
+package com.cloudkitchen.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderColumnsTest {
+
+    @Test
+    void dictionaryCodesDistinctValuesInOrderOfFirstSight() {
+        OrderColumns.Dictionary dictionary = new OrderColumns.Dictionary("payment_type");
+
+        assertThat(dictionary.encode("Cash")).isEqualTo((short) 0);
+        assertThat(dictionary.encode("Card")).isEqualTo((short) 1);
+        assertThat(dictionary.encode("Cash")).isEqualTo((short) 0);
+        assertThat(dictionary.encode(null)).isEqualTo(OrderColumns.Dictionary.NULL_CODE);
+        assertThat(dictionary.decode((short) 1)).isEqualTo("Card");
+        assertThat(dictionary.decode(OrderColumns.Dictionary.NULL_CODE)).isNull();
+    }
+
+    @Test
+    void aggregatesMonthsInParallelLikeSequentially() {
+        OrderColumns columns = new OrderColumns();
+        int firstDay = (int) LocalDate.of(2024, 1, 20).toEpochDay();
+        for (int i = 0; i < 1_000; i++) {
+            columns.append(i + 1, firstDay + i % 60, 100 + i, i % 4, i % 3 == 0 ? null : (long) (i % 50),
+                    "Area " + i % 5, "Delivery", "Cash");
+        }
+
+        CustomerDayPairs sequentialCustomers = new CustomerDayPairs(0);
+        DailyPartials sequential = columns.aggregate(100, 900, sequentialCustomers, null);
+        CustomerDayPairs parallelCustomers = new CustomerDayPairs(0);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        DailyPartials parallel;
+        try {
+            parallel = columns.aggregate(100, 900, parallelCustomers, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(parallel.getOrderCount()).isEqualTo(800);
+        assertThat(parallel.getDays().keySet()).isEqualTo(sequential.getDays().keySet());
+        sequential.getDays().forEach((day, partial) -> {
+            KpiPartial other = parallel.getDays().get(day);
+            assertThat(other.getTotalRevenue()).isEqualTo(partial.getTotalRevenue());
+            for (Channel channel : Channel.values()) {
+                assertThat(other.getChannelRevenue(channel)).isEqualTo(partial.getChannelRevenue(channel));
+            }
+        });
+        // Weeks spanning January and February still roll up from the merged days.
+        assertThat(parallel.rollup(Grain.WEEK).get(LocalDate.of(2024, 1, 29)).getOrderCount())
+                .isEqualTo(sequential.rollup(Grain.WEEK).get(LocalDate.of(2024, 1, 29)).getOrderCount());
+        assertThat(pairs(parallelCustomers)).isEqualTo(pairs(sequentialCustomers));
+        // Keys repeat every 50 orders and days every 60, so the orders with a phone span 200 distinct pairs.
+        assertThat(pairs(sequentialCustomers)).isSorted().doesNotHaveDuplicates().hasSize(200);
+    }
+
+    private static List<String> pairs(CustomerDayPairs customerDays) {
+        List<String> pairs = new ArrayList<>();
+        for (int i = 0; i < customerDays.size(); i++) {
+            pairs.add(String.format("%03d/%d", customerDays.key(i), customerDays.day(i)));
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,101 @@
+package com.cloudkitchen.aggregation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpillableCustomerDaysTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void handsOverTheMapUnchangedWithinTheBudget() throws Exception {
+        SpillableCustomerDays days = new SpillableCustomerDays(1_000_000, spillDir, 4);
+        days.add(7L, 100);
+        days.add(7L, 100);
+        days.add(7L, 101);
+
+        assertThat(days.getEstimatedBytes())
+                .isEqualTo(SpillableCustomerDays.CUSTOMER_BYTES + 2 * SpillableCustomerDays.DAY_BYTES);
+        List<Map<Long, NavigableSet<Integer>>> partitions = new ArrayList<>();
+        days.forEachPartition(partitions::add);
+        days.close();
+
+        assertThat(days.getSpillCount()).isZero();
+        assertThat(partitions).containsExactly(Map.of(7L, new TreeSet<>(List.of(100, 101))));
+        try (var files = Files.list(spillDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void spillsOverTheBudgetAndMergesEachCustomerInOnePartition() throws Exception {
+        Map<Long, NavigableSet<Integer>> expected = new HashMap<>();
+        // Spills once midway; each of the four partitions then still fits the budget and is merged as is.
+        SpillableCustomerDays days = new SpillableCustomerDays(300_000, spillDir, 4);
+        for (int i = 0; i < 5_000; i++) {
+            long key = (i % 700) * 0x9E3779B97F4A7C15L;
+            int day = 19_000 + i % 37;
+            days.add(key, day);
+            expected.computeIfAbsent(key, k -> new TreeSet<>()).add(day);
+        }
+
+        Map<Long, NavigableSet<Integer>> merged = new HashMap<>();
+        List<Integer> partitionSizes = new ArrayList<>();
+        days.forEachPartition(partition -> {
+            partitionSizes.add(partition.size());
+            partition.forEach((key, customerDays) -> assertThat(merged.put(key, customerDays)).isNull());
+        });
+
+        assertThat(days.getSpillCount()).isGreaterThan(1);
+        assertThat(partitionSizes).hasSize(4);
+        assertThat(merged).isEqualTo(expected);
+
+        days.close();
+        try (var files = Files.list(spillDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void splitsAPartitionLargerThanTheBudgetBeforeMergingIt() throws Exception {
+        Map<Long, NavigableSet<Integer>> expected = new HashMap<>();
+        // A single partition, so everything spilled lands in one file many times the budget.
+        SpillableCustomerDays days = new SpillableCustomerDays(50_000, spillDir, 1);
+        for (int i = 0; i < 20_000; i++) {
+            long key = (i % 3_000) * 0x9E3779B97F4A7C15L;
+            int day = 19_000 + i % 37;
+            days.add(key, day);
+            expected.computeIfAbsent(key, k -> new TreeSet<>()).add(day);
+        }
+
+        Map<Long, NavigableSet<Integer>> merged = new HashMap<>();
+        List<Long> partitionBytes = new ArrayList<>();
+        days.forEachPartition(partition -> {
+            partitionBytes.add(partition.size() * SpillableCustomerDays.CUSTOMER_BYTES
+                    + partition.values().stream().mapToLong(Set::size).sum() * SpillableCustomerDays.DAY_BYTES);
+            partition.forEach((key, customerDays) -> assertThat(merged.put(key, customerDays)).isNull());
+        });
+
+        assertThat(partitionBytes).hasSizeGreaterThan(1)
+                .allSatisfy(bytes -> assertThat(bytes).isLessThanOrEqualTo(50_000L));
+        assertThat(merged).isEqualTo(expected);
+
+        days.close();
+        try (var files = Files.list(spillDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
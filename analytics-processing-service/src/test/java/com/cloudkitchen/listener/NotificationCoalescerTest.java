@@ -0,0 +1,45 @@
+package com.cloudkitchen.listener;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationCoalescerTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final NotificationCoalescer coalescer = new NotificationCoalescer(Duration.ofSeconds(2), Duration.ofSeconds(10));
+
+    @Test
+    void isDueOnceNotificationsStopForTheQuietPeriod() {
+        assertThat(coalescer.isPending()).isFalse();
+        assertThat(coalescer.isDue(T0)).isFalse();
+        assertThat(coalescer.timeUntilDue(T0, Duration.ofMinutes(1))).isEqualTo(Duration.ofMinutes(1));
+
+        coalescer.onEvent(T0);
+        coalescer.onEvent(T0.plusSeconds(1));
+        assertThat(coalescer.isPending()).isTrue();
+        assertThat(coalescer.isDue(T0.plusMillis(2_500))).isFalse();
+        assertThat(coalescer.timeUntilDue(T0.plusMillis(2_500), Duration.ofMinutes(1))).isEqualTo(Duration.ofMillis(500));
+        assertThat(coalescer.isDue(T0.plusSeconds(3))).isTrue();
+
+        coalescer.clear();
+        assertThat(coalescer.isPending()).isFalse();
+        assertThat(coalescer.isDue(T0.plusSeconds(3))).isFalse();
+    }
+
+    @Test
+    void isDueAfterTheMaxDelayWhileNotificationsKeepArriving() {
+        for (int second = 0; second < 10; second++) {
+            coalescer.onEvent(T0.plusSeconds(second));
+            assertThat(coalescer.isDue(T0.plusSeconds(second))).isFalse();
+        }
+        assertThat(coalescer.timeUntilDue(T0.plusSeconds(9), Duration.ofMinutes(1))).isEqualTo(Duration.ofSeconds(1));
+        coalescer.onEvent(T0.plusSeconds(10));
+        assertThat(coalescer.isDue(T0.plusSeconds(10))).isTrue();
+        assertThat(coalescer.timeUntilDue(T0.plusSeconds(11), Duration.ofMinutes(1))).isZero();
+    }
+}
@@ -0,0 +1,43 @@
+package com.cloudkitchen.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RebuildProgressTest {
+
+    @Test
+    void hasNoEtaBeforeTheFirstMonthIsDone() {
+        RebuildProgress progress = new RebuildProgress(12, 0, 1_200_000, 0, 0, 1, 0);
+
+        assertThat(progress.getOrdersPerSecond()).isZero();
+        assertThat(progress.getEtaSeconds()).isNull();
+        assertThat(progress).hasToString("0/12 months, 0/1200000 orders, 0 orders/s, 1 workers, 0 stalled, ETA unknown");
+    }
+
+    @Test
+    void estimatesRemainingTimeFromBusyTimeAndParallelWorkers() {
+        // 300k orders took 30s of worker time: 10k orders/s per worker.
+        RebuildProgress progress = new RebuildProgress(12, 3, 1_200_000, 300_000, 30_000, 1, 0);
+
+        assertThat(progress.getOrdersPerSecond()).isEqualTo(10_000);
+        assertThat(progress.getEtaSeconds()).isEqualTo(90);
+
+        RebuildProgress threeWorkers = new RebuildProgress(12, 3, 1_200_000, 300_000, 30_000, 3, 0);
+        assertThat(threeWorkers.getEtaSeconds()).isEqualTo(30);
+
+        RebuildProgress noneInProgress = new RebuildProgress(12, 3, 1_200_000, 300_000, 30_000, 0, 0);
+        assertThat(noneInProgress.getEtaSeconds()).isEqualTo(90);
+    }
+
+    @Test
+    void doesNotCountTheMonthOfACrashedWorkerAsParallelWork() {
+        // Two months were started, but the worker of one crashed and the database released its lease.
+        RebuildProgress progress = new RebuildProgress(12, 3, 1_200_000, 300_000, 30_000, 1, 1);
+
+        assertThat(progress.getWorkers()).isEqualTo(1);
+        assertThat(progress.getStalledMonths()).isEqualTo(1);
+        assertThat(progress.getEtaSeconds()).isEqualTo(90);
+        assertThat(progress).hasToString("3/12 months, 300000/1200000 orders, 10000 orders/s, 1 workers, 1 stalled, ETA 90s");
+    }
+}
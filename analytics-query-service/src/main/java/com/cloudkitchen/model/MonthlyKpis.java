@@ -14,10 +14,11 @@ public class MonthlyKpis {
 
     /**
      * Unique identifier for the monthly KPI record.
-     * This is an auto-generated primary key.
+     * This is an auto-generated primary key, drawn from a pooled sequence so Hibernate can batch inserts.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "monthly_kpis_seq")
+    @SequenceGenerator(name = "monthly_kpis_seq", sequenceName = "monthly_kpis_seq", schema = "analytics_schema", allocationSize = 50)
     private Long id;
 
     /**
@@ -30,10 +30,51 @@ public class DataIngestionServiceApplication {
 		SpringApplication.run(DataIngestionServiceApplication.class, args);
 	}
 
+	/**
+	 * Creates the raw data schema and the objects Hibernate's `ddl-auto` cannot express.
+	 * Tables created before the switch to sequence-generated ids are moved onto their pooled
+	 * sequence, so JPA inserts and `COPY` share one id source. `raw_lines` is the cold side table
+	 * used by the `side_table` raw line policy. `dirty_report_dates` logs the dates each orders chunk touched,
+	 * and the index on `raw_orders_data.date` lets analytics processing recompute just those dates.
+	 * `ingestion_outbox` announces committed chunks when `ingestion.outbox-enabled` is set.
+	 * The index on `invoice_no` lets `UPSERT` ingestion find stored invoices. It is deliberately not
+	 * unique, so the other modes keep loading exports that repeat an invoice; a unique index created by
+	 * an earlier version is replaced by it.
+	 * @param jdbcTemplate The JDBC template used to run the DDL.
+	 * @return The runner.
+	 */
 	@Bean
 	public CommandLineRunner createSchema(JdbcTemplate jdbcTemplate) {
 		return args -> {
 			jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS raw_data_schema");
+			useIdSequence(jdbcTemplate, "raw_data_schema.raw_orders_data", 500);
+			useIdSequence(jdbcTemplate, "raw_data_schema.raw_items_data", 500);
+			jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS raw_data_schema.raw_lines (source_table VARCHAR(64) NOT NULL, "
+					+ "source_id BIGINT NOT NULL, raw_line TEXT, PRIMARY KEY (source_table, source_id))");
+			jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS raw_data_schema.dirty_report_dates (id BIGSERIAL PRIMARY KEY, "
+					+ "report_date DATE NOT NULL, marked_at TIMESTAMP NOT NULL DEFAULT now())");
+			jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS raw_orders_data_date_idx ON raw_data_schema.raw_orders_data (date)");
+			jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS raw_data_schema.ingestion_outbox (id BIGSERIAL PRIMARY KEY, "
+					+ "source_table VARCHAR(64) NOT NULL, row_count INTEGER NOT NULL, created_at TIMESTAMP NOT NULL DEFAULT now())");
+			jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS raw_orders_data_invoice_no_idx "
+					+ "ON raw_data_schema.raw_orders_data (invoice_no)");
+			jdbcTemplate.execute("DROP INDEX IF EXISTS raw_data_schema.raw_orders_data_invoice_no_key");
 		};
 	}
+
+	/**
+	 * Points the `id` column of a table at its `<table>_seq` sequence instead of an identity column,
+	 * and moves the sequence past the largest existing id.
+	 * @param jdbcTemplate The JDBC template used to run the DDL.
+	 * @param table The schema-qualified table name.
+	 * @param allocationSize The increment matching the entity's `@SequenceGenerator`.
+	 */
+	private static void useIdSequence(JdbcTemplate jdbcTemplate, String table, int allocationSize) {
+		String sequence = table + "_seq";
+		jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " INCREMENT BY " + allocationSize);
+		jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+		jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+		jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', GREATEST((SELECT COALESCE(MAX(id), 0) FROM "
+				+ table + "), (SELECT last_value FROM " + sequence + ")))", Long.class);
+	}
 }
@@ -0,0 +1,55 @@
+package com.cloudkitchen.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pools used by the ingestion pipeline.
+ */
+@Configuration
+public class IngestionExecutorConfig {
+
+    /**
+     * Fork-join pool that parses and persists the byte ranges of an upload in parallel.
+     * It is kept separate from the common pool so ingestion cannot starve other work.
+     *
+     * @param ingestionProperties Supplies the configured parallelism.
+     * @return The parse pool.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool ingestionParsePool(IngestionProperties ingestionProperties) {
+        int parallelism = ingestionProperties.getParallelism() > 0
+                ? ingestionProperties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Bounded executor that runs asynchronous ingestion jobs.
+     * When all job threads are busy and the queue is full, new submissions are rejected
+     * with a `RejectedExecutionException` instead of piling up spooled uploads on disk.
+     *
+     * @param ingestionProperties Supplies the job thread count and queue capacity.
+     * @return The job executor.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor ingestionJobExecutor(IngestionProperties ingestionProperties) {
+        int threads = Math.max(1, ingestionProperties.getJobThreads());
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "ingestion-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, ingestionProperties.getJobQueueCapacity())),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,248 @@
+package com.cloudkitchen.config;
+
+import com.cloudkitchen.service.IngestionMode;
+import com.cloudkitchen.service.RawLinePolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the data ingestion pipeline.
+ * Bound from the `ingestion.*` keys in `application.properties`.
+ */
+@Component
+@ConfigurationProperties(prefix = "ingestion")
+public class IngestionProperties {
+
+    /**
+     * The ingestion mode used when a request does not specify one.
+     */
+    private IngestionMode mode = IngestionMode.STREAMING;
+
+    /**
+     * The number of rows persisted per transaction in streaming mode.
+     */
+    private int chunkSize = 5000;
+
+    /**
+     * Whether uploads are parsed on several cores when a request does not specify it.
+     */
+    private boolean parallel = false;
+
+    /**
+     * The number of worker threads used for parallel parsing; 0 means one per available processor.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Whether uploads are accepted as background jobs when a request does not specify it.
+     */
+    private boolean async = false;
+
+    /**
+     * Directory asynchronous uploads are spooled to; empty means a folder under `java.io.tmpdir`.
+     */
+    private String spoolDir = "";
+
+    /**
+     * The number of ingestion jobs processed concurrently.
+     */
+    private int jobThreads = 2;
+
+    /**
+     * The number of accepted jobs that may wait for a free job thread before new uploads are rejected.
+     */
+    private int jobQueueCapacity = 16;
+
+    /**
+     * How long finished jobs stay queryable on the jobs endpoint.
+     */
+    private Duration jobRetention = Duration.ofHours(1);
+
+    /**
+     * How the original CSV line of each row is retained.
+     */
+    private RawLinePolicy rawLinePolicy = RawLinePolicy.FULL;
+
+    /**
+     * Whether each committed chunk is announced through the ingestion outbox and `NOTIFY`.
+     */
+    private boolean outboxEnabled = false;
+
+    /**
+     * Returns the default ingestion mode.
+     * @return The default ingestion mode.
+     */
+    public IngestionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the default ingestion mode.
+     * @param mode The ingestion mode to set.
+     */
+    public void setMode(IngestionMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Returns the number of rows persisted per transaction in streaming mode.
+     * @return The chunk size.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of rows persisted per transaction in streaming mode.
+     * @param chunkSize The chunk size to set.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns whether uploads are parsed in parallel by default.
+     * @return `true` if parallel parsing is the default.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets whether uploads are parsed in parallel by default.
+     * @param parallel `true` to make parallel parsing the default.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns the configured number of parallel parsing threads.
+     * @return The parallelism, or 0 for one thread per available processor.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of parallel parsing threads.
+     * @param parallelism The parallelism to set, or 0 for one thread per available processor.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns whether uploads are accepted as background jobs by default.
+     * @return `true` if asynchronous ingestion is the default.
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Sets whether uploads are accepted as background jobs by default.
+     * @param async `true` to make asynchronous ingestion the default.
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * Returns the directory asynchronous uploads are spooled to.
+     * @return The spool directory, or an empty string for the default under `java.io.tmpdir`.
+     */
+    public String getSpoolDir() {
+        return spoolDir;
+    }
+
+    /**
+     * Sets the directory asynchronous uploads are spooled to.
+     * @param spoolDir The spool directory to set.
+     */
+    public void setSpoolDir(String spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    /**
+     * Returns the number of ingestion jobs processed concurrently.
+     * @return The number of job threads.
+     */
+    public int getJobThreads() {
+        return jobThreads;
+    }
+
+    /**
+     * Sets the number of ingestion jobs processed concurrently.
+     * @param jobThreads The number of job threads to set.
+     */
+    public void setJobThreads(int jobThreads) {
+        this.jobThreads = jobThreads;
+    }
+
+    /**
+     * Returns the number of jobs that may wait for a free job thread.
+     * @return The job queue capacity.
+     */
+    public int getJobQueueCapacity() {
+        return jobQueueCapacity;
+    }
+
+    /**
+     * Sets the number of jobs that may wait for a free job thread.
+     * @param jobQueueCapacity The job queue capacity to set.
+     */
+    public void setJobQueueCapacity(int jobQueueCapacity) {
+        this.jobQueueCapacity = jobQueueCapacity;
+    }
+
+    /**
+     * Returns how long finished jobs stay queryable.
+     * @return The job retention.
+     */
+    public Duration getJobRetention() {
+        return jobRetention;
+    }
+
+    /**
+     * Sets how long finished jobs stay queryable.
+     * @param jobRetention The job retention to set.
+     */
+    public void setJobRetention(Duration jobRetention) {
+        this.jobRetention = jobRetention;
+    }
+
+    /**
+     * Returns how the original CSV line of each row is retained.
+     * @return The raw line policy.
+     */
+    public RawLinePolicy getRawLinePolicy() {
+        return rawLinePolicy;
+    }
+
+    /**
+     * Sets how the original CSV line of each row is retained.
+     * @param rawLinePolicy The raw line policy to set.
+     */
+    public void setRawLinePolicy(RawLinePolicy rawLinePolicy) {
+        this.rawLinePolicy = rawLinePolicy;
+    }
+
+    /**
+     * Returns whether committed chunks are announced through the ingestion outbox.
+     * @return `true` if the outbox is enabled.
+     */
+    public boolean isOutboxEnabled() {
+        return outboxEnabled;
+    }
+
+    /**
+     * Sets whether committed chunks are announced through the ingestion outbox.
+     * @param outboxEnabled `true` to enable the outbox.
+     */
+    public void setOutboxEnabled(boolean outboxEnabled) {
+        this.outboxEnabled = outboxEnabled;
+    }
+}
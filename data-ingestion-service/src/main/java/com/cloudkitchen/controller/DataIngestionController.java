@@ -1,9 +1,20 @@
 package com.cloudkitchen.controller;
 
+import com.cloudkitchen.config.IngestionProperties;
+import com.cloudkitchen.dto.IngestionJobResponse;
 import com.cloudkitchen.service.DataIngestionService;
+import com.cloudkitchen.service.IngestionJob;
+import com.cloudkitchen.service.IngestionJobService;
+import com.cloudkitchen.service.IngestionMode;
+import com.cloudkitchen.service.IngestionOptions;
+import com.cloudkitchen.service.IngestionReport;
+import com.cloudkitchen.service.ReportType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -11,11 +22,12 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST controller for handling data ingestion related API requests.
  * This controller provides endpoints for uploading CSV files containing
- * items reports and orders reports.
+ * items reports and orders reports, and for tracking asynchronous ingestion jobs.
  */
 @RestController
 @RequestMapping("/api/raw-data")
@@ -28,28 +40,41 @@ public class DataIngestionController {
     @Autowired
     private DataIngestionService dataIngestionService;
 
+    /**
+     * Autowired instance of `IngestionJobService` that runs uploads in the background.
+     */
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    /**
+     * Ingestion settings, used for the default of the `async` parameter.
+     */
+    @Autowired
+    private IngestionProperties ingestionProperties;
+
     /**
      * Handles the POST request for uploading an items report CSV file.
      * The file is processed by the `DataIngestionService`.
      *
      * @param file The `MultipartFile` representing the uploaded CSV file.
+     * @param mode Optional `IngestionMode` overriding the configured default (`BATCH`, `STREAMING`, `COPY`
+     *             or `UPSERT`, which deduplicates orders by `invoice_no` and loads items reports as `COPY` does).
+     * @param parallel Optional flag overriding `ingestion.parallel`; parses and persists the file on several cores.
+     * @param async Optional flag overriding `ingestion.async`; processes the file as a background job.
      * @return A `ResponseEntity` indicating the success or failure of the upload.
      *         - `HttpStatus.OK` with a success message if the file is processed successfully.
+     *         - `HttpStatus.ACCEPTED` with the job id if the file was queued as a background job.
      *         - `HttpStatus.BAD_REQUEST` if no file is selected.
-     *         - `HttpStatus.INTERNAL_SERVER_ERROR` if an error occurs during processing.
+     *         - `HttpStatus.SERVICE_UNAVAILABLE` if the job queue is full.
+     *         - `HttpStatus.INTERNAL_SERVER_ERROR` if an error occurs during processing, or if some
+     *           byte ranges failed in parallel mode (the message lists them).
      */
     @PostMapping("/items-report")
-    public ResponseEntity<String> uploadItemsReport(@RequestParam("file") MultipartFile file) {
-        if (file.isEmpty()) {
-            return new ResponseEntity<>("Please select a file to upload.", HttpStatus.BAD_REQUEST);
-        }
-
-        try {
-            int recordsProcessed = dataIngestionService.processItemsReport(file);
-            return new ResponseEntity<>("Items report uploaded and processed successfully. Records processed: " + recordsProcessed, HttpStatus.OK);
-        } catch (IOException e) {
-            return new ResponseEntity<>("Failed to upload items report: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public ResponseEntity<String> uploadItemsReport(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(value = "mode", required = false) IngestionMode mode,
+                                                    @RequestParam(value = "parallel", required = false) Boolean parallel,
+                                                    @RequestParam(value = "async", required = false) Boolean async) {
+        return upload(ReportType.ITEMS, "Items report", file, mode, parallel, async);
     }
 
     /**
@@ -57,22 +82,72 @@ public class DataIngestionController {
      * The file is processed by the `DataIngestionService`.
      *
      * @param file The `MultipartFile` representing the uploaded CSV file.
+     * @param mode Optional `IngestionMode` overriding the configured default (`BATCH`, `STREAMING`, `COPY`
+     *             or `UPSERT`, which deduplicates orders by `invoice_no`).
+     * @param parallel Optional flag overriding `ingestion.parallel`; parses and persists the file on several cores.
+     * @param async Optional flag overriding `ingestion.async`; processes the file as a background job.
      * @return A `ResponseEntity` indicating the success or failure of the upload.
      *         - `HttpStatus.OK` with a success message if the file is processed successfully.
+     *         - `HttpStatus.ACCEPTED` with the job id if the file was queued as a background job.
      *         - `HttpStatus.BAD_REQUEST` if no file is selected.
-     *         - `HttpStatus.INTERNAL_SERVER_ERROR` if an error occurs during processing.
+     *         - `HttpStatus.SERVICE_UNAVAILABLE` if the job queue is full.
+     *         - `HttpStatus.INTERNAL_SERVER_ERROR` if an error occurs during processing, or if some
+     *           byte ranges failed in parallel mode (the message lists them).
      */
     @PostMapping("/orders-report")
-    public ResponseEntity<String> uploadOrdersReport(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<String> uploadOrdersReport(@RequestParam("file") MultipartFile file,
+                                                     @RequestParam(value = "mode", required = false) IngestionMode mode,
+                                                     @RequestParam(value = "parallel", required = false) Boolean parallel,
+                                                     @RequestParam(value = "async", required = false) Boolean async) {
+        return upload(ReportType.ORDERS, "Orders report", file, mode, parallel, async);
+    }
+
+    /**
+     * Handles the GET request for the progress of an asynchronous ingestion job.
+     *
+     * @param id The job id returned when the upload was accepted.
+     * @return A `ResponseEntity` with the job's rows parsed and persisted, errors, throughput and ETA,
+     *         or `HttpStatus.NOT_FOUND` if the job is unknown or has expired.
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<IngestionJobResponse> getJob(@PathVariable String id) {
+        return ingestionJobService.getJob(id)
+                .map(job -> new ResponseEntity<>(new IngestionJobResponse(job), HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Processes an upload synchronously, or queues it as a job when asynchronous ingestion is requested.
+     */
+    private ResponseEntity<String> upload(ReportType reportType, String label, MultipartFile file,
+                                          IngestionMode mode, Boolean parallel, Boolean async) {
         if (file.isEmpty()) {
             return new ResponseEntity<>("Please select a file to upload.", HttpStatus.BAD_REQUEST);
         }
 
+        IngestionOptions options = new IngestionOptions();
+        options.setMode(mode);
+        options.setParallel(parallel);
         try {
-            int recordsProcessed = dataIngestionService.processOrdersReport(file);
-            return new ResponseEntity<>("Orders report uploaded and processed successfully. Records processed: " + recordsProcessed, HttpStatus.OK);
+            if (async != null ? async : ingestionProperties.isAsync()) {
+                IngestionJob job = ingestionJobService.submit(reportType, file, options);
+                HttpHeaders headers = new HttpHeaders();
+                headers.add(HttpHeaders.LOCATION, "/api/raw-data/jobs/" + job.getId());
+                return new ResponseEntity<>(label + " accepted for processing. Job id: " + job.getId(), headers, HttpStatus.ACCEPTED);
+            }
+
+            IngestionReport report = reportType == ReportType.ITEMS
+                    ? dataIngestionService.processItemsReport(file, options)
+                    : dataIngestionService.processOrdersReport(file, options);
+            if (report.hasErrors()) {
+                return new ResponseEntity<>(label + " partially processed. Records processed: " + report.getRowsPersisted()
+                        + ". Errors: " + String.join("; ", report.getErrors()), HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            return new ResponseEntity<>(label + " uploaded and processed successfully. Records processed: " + report.getRowsPersisted(), HttpStatus.OK);
+        } catch (RejectedExecutionException e) {
+            return new ResponseEntity<>("Ingestion queue is full, please retry later.", HttpStatus.SERVICE_UNAVAILABLE);
         } catch (IOException e) {
-            return new ResponseEntity<>("Failed to upload orders report: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            return new ResponseEntity<>("Failed to upload " + label.toLowerCase() + ": " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 }
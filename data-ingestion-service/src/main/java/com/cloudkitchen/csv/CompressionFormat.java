@@ -0,0 +1,95 @@
+package com.cloudkitchen.csv;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression formats accepted for uploaded reports.
+ * Compressed uploads are inflated as a stream on their way into the tokenizer, so the
+ * uncompressed CSV never lands on disk.
+ */
+public enum CompressionFormat {
+    /**
+     * Plain CSV.
+     */
+    NONE,
+
+    /**
+     * Gzip, recognised by the magic bytes `1f 8b`.
+     */
+    GZIP,
+
+    /**
+     * Zstandard, recognised by the magic bytes `28 b5 2f fd`.
+     */
+    ZSTD;
+
+    /**
+     * Number of leading bytes needed to recognise every format.
+     */
+    public static final int MAGIC_LENGTH = 4;
+
+    /**
+     * Size of the buffer the decompressors read compressed input in.
+     */
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Resolves a declared content type or content encoding, such as `application/gzip` or `zstd`.
+     *
+     * @param contentType The declared type or encoding; may be `null`.
+     * @return The declared format, or `NONE` if the value does not name a supported compression.
+     */
+    public static CompressionFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return NONE;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.contains("gzip")) {
+            return GZIP;
+        }
+        if (type.contains("zstd")) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Recognises a format from the first bytes of the upload.
+     *
+     * @param head The first bytes of the upload, ideally `MAGIC_LENGTH` of them.
+     * @return The detected format, or `NONE` for anything else.
+     */
+    public static CompressionFormat fromMagicBytes(byte[] head) {
+        if (head.length >= 2 && (head[0] & 0xFF) == 0x1F && (head[1] & 0xFF) == 0x8B) {
+            return GZIP;
+        }
+        if (head.length >= 4 && (head[0] & 0xFF) == 0x28 && (head[1] & 0xFF) == 0xB5
+                && (head[2] & 0xFF) == 0x2F && (head[3] & 0xFF) == 0xFD) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Wraps a stream of this format in a streaming decompressor.
+     *
+     * @param in The compressed stream.
+     * @return A stream of the uncompressed bytes; `in` itself for `NONE`.
+     * @throws IOException If the stream header is invalid.
+     */
+    public InputStream decompress(InputStream in) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, INPUT_BUFFER_SIZE);
+            case ZSTD:
+                return new ZstdInputStream(in);
+            default:
+                return in;
+        }
+    }
+}
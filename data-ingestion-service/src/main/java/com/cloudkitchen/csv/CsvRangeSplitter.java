@@ -0,0 +1,95 @@
+package com.cloudkitchen.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a CSV file into byte ranges that start and end on record boundaries,
+ * so each range can be tokenized independently and in parallel.
+ * <p>
+ * Boundaries are found with a single sequential, quote-aware pass over the file
+ * (see {@link CsvRecordScanner}), so quoted fields containing line feeds never straddle
+ * two ranges. That pass only inspects quotes, commas and line feeds and runs at close
+ * to disk speed, far below the cost of tokenizing and mapping the records themselves.
+ */
+public final class CsvRangeSplitter {
+
+    /**
+     * Size of the blocks the file is read in while looking for boundaries.
+     */
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private CsvRangeSplitter() {
+    }
+
+    /**
+     * Returns the offset just after the first record (the header) of the file.
+     *
+     * @param channel The file to scan.
+     * @return The offset of the first data record, or the file size if the file has a single record.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long findHeaderEnd(FileChannel channel) throws IOException {
+        List<Long> boundaries = scan(channel, 0, channel.size(), Long.MAX_VALUE, true);
+        return boundaries.get(1);
+    }
+
+    /**
+     * Splits `[start, end)` into ranges of roughly `targetRangeSize` bytes, each ending on a record boundary.
+     *
+     * @param channel The file to split.
+     * @param start The offset of the first record to include; must be a record boundary.
+     * @param end The end offset (exclusive), usually the file size.
+     * @param targetRangeSize The desired size of each range in bytes.
+     * @return The ordered boundary offsets: range `i` is `[boundaries[i], boundaries[i + 1])`.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long[] split(FileChannel channel, long start, long end, long targetRangeSize) throws IOException {
+        List<Long> boundaries = scan(channel, start, end, Math.max(1, targetRangeSize), false);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Walks the file recording a boundary after the first record terminator past each target offset.
+     */
+    private static List<Long> scan(FileChannel channel, long start, long end, long targetRangeSize,
+                                   boolean firstRecordOnly) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        CsvRecordScanner scanner = new CsvRecordScanner();
+        byte[] block = new byte[(int) Math.min(BLOCK_SIZE, Math.max(1, end - start))];
+        ByteBuffer view = ByteBuffer.wrap(block);
+        long nextTarget = firstRecordOnly ? start : start + targetRangeSize;
+        long offset = start;
+        while (offset < end) {
+            view.clear();
+            view.limit((int) Math.min(block.length, end - offset));
+            int read = channel.read(view, offset);
+            if (read <= 0) {
+                break;
+            }
+            int from = 0;
+            while (from < read) {
+                int lineFeed = scanner.findRecordEnd(block, from, read);
+                if (lineFeed < 0) {
+                    break;
+                }
+                long boundary = offset + lineFeed + 1;
+                if (boundary >= nextTarget && boundary < end) {
+                    boundaries.add(boundary);
+                    if (firstRecordOnly) {
+                        return boundaries;
+                    }
+                    nextTarget = boundary + targetRangeSize;
+                }
+                from = lineFeed + 1;
+            }
+            offset += read;
+        }
+        boundaries.add(end);
+        return boundaries;
+    }
+}
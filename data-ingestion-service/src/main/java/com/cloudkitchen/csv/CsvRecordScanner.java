@@ -0,0 +1,73 @@
+package com.cloudkitchen.csv;
+
+import java.io.IOException;
+
+/**
+ * Finds record terminators in CSV bytes while honouring quoting, so line feeds inside
+ * quoted fields are not mistaken for the end of a record.
+ * <p>
+ * A quote only opens a quoted section at the start of a field (or directly after a closing
+ * quote, which makes it an escaped quote), so stray quotes inside unquoted fields are literal,
+ * as in commons-csv. The scan state carries over between calls, which lets callers feed
+ * a file through in blocks.
+ * <p>
+ * Records end with LF or CRLF. commons-csv also ended records on a bare CR (classic Mac line
+ * endings); without this check such a file would scan as one giant record, so a CR outside
+ * quotes that is not followed by LF is rejected instead.
+ */
+final class CsvRecordScanner {
+
+    private boolean quoted;
+    private boolean fieldStart = true;
+    private boolean afterClosingQuote;
+    /** Whether the last byte scanned was a CR outside quotes, which must be followed by LF. */
+    private boolean carriageReturn;
+
+    /**
+     * Resets the scanner to the start of a record.
+     */
+    void reset() {
+        quoted = false;
+        fieldStart = true;
+        afterClosingQuote = false;
+        carriageReturn = false;
+    }
+
+    /**
+     * Scans `data[from, to)` for the line feed that terminates the current record.
+     * When one is found the scanner is reset, ready for the next record.
+     *
+     * @return The index of the terminating line feed, or -1 if the block ends first.
+     * @throws IOException If a CR outside quotes is not followed by LF.
+     */
+    int findRecordEnd(byte[] data, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (carriageReturn && b != '\n') {
+                throw new IOException("Records must end with LF or CRLF; bare CR line endings are not supported");
+            }
+            carriageReturn = false;
+            if (quoted) {
+                if (b == '"') {
+                    quoted = false;
+                    afterClosingQuote = true;
+                }
+                continue;
+            }
+            if (b == '"' && (fieldStart || afterClosingQuote)) {
+                quoted = true;
+                fieldStart = false;
+                afterClosingQuote = false;
+                continue;
+            }
+            if (b == '\n') {
+                reset();
+                return i;
+            }
+            carriageReturn = b == '\r';
+            afterClosingQuote = false;
+            fieldStart = b == ',';
+        }
+        return -1;
+    }
+}
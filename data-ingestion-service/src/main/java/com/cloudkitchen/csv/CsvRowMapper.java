@@ -0,0 +1,18 @@
+package com.cloudkitchen.csv;
+
+/**
+ * Maps the current record of a {@link PosCsvTokenizer} to an entity.
+ * Implementations resolve their column positions once, when they are created from the tokenizer header.
+ *
+ * @param <T> The entity type produced for each record.
+ */
+@FunctionalInterface
+public interface CsvRowMapper<T> {
+    /**
+     * Maps the tokenizer's current record.
+     *
+     * @param tokenizer The tokenizer positioned on a data record.
+     * @return The mapped entity.
+     */
+    T map(PosCsvTokenizer tokenizer);
+}
@@ -0,0 +1,51 @@
+package com.cloudkitchen.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream over the byte range `[start, end)` of a file channel.
+ * It uses positional reads and never moves the channel position, so several
+ * streams can read different ranges of the same channel concurrently.
+ * Closing the stream does not close the channel.
+ */
+public class FileRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    /**
+     * Creates a stream over a range of the given channel.
+     *
+     * @param channel The channel to read from.
+     * @param start The first byte of the range.
+     * @param end The end of the range (exclusive).
+     */
+    public FileRangeInputStream(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+        int length = (int) Math.min(len, end - position);
+        int read = channel.read(ByteBuffer.wrap(b, off, length), position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+}
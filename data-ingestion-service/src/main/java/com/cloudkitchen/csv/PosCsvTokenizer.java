@@ -0,0 +1,515 @@
+package com.cloudkitchen.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Byte-level CSV tokenizer for the POS export format.
+ * <p>
+ * Records are read into a single reusable byte buffer and each field is exposed as a
+ * slice of that buffer (quoted fields containing escaped quotes are unescaped into a
+ * reusable scratch buffer instead, so the raw record is never modified), so numeric and timestamp columns are parsed straight from bytes
+ * without allocating an intermediate `String`. Header positions are resolved once with
+ * {@link #columnIndex(String)}. The accepted dialect matches the commons-csv configuration
+ * used before: comma separated, RFC 4180 quoting (quoted fields may contain commas, quotes
+ * and newlines), the first record is the header, header names are case-insensitive, values
+ * are trimmed and empty lines are skipped. Records end with LF or CRLF; unlike commons-csv,
+ * bare CR line endings are rejected with an `IOException` (see {@link CsvRecordScanner}).
+ * <p>
+ * Field slices are only valid until the next call to {@link #nextRecord()}.
+ * Instances are not thread-safe.
+ */
+public class PosCsvTokenizer implements Closeable {
+
+    /**
+     * Initial size of the read buffer. It grows automatically for records that do not fit.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Formatter used as a fallback for timestamps that are not in the fixed `yyyy-MM-dd HH:mm:ss` layout.
+     */
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * The most digits a decimal may have and still be accumulated in a `long` without overflow.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final InputStream in;
+    private byte[] buffer;
+    /** Start of the unconsumed data in the buffer. */
+    private int position;
+    /** End of the valid data in the buffer. */
+    private int limit;
+    private boolean endOfStream;
+
+    private int[] fieldStarts = new int[32];
+    private int[] fieldEnds = new int[32];
+    /** The array each field slice points into: the read buffer, or the scratch buffer for unescaped fields. */
+    private byte[][] fieldData = new byte[32][];
+    /** Holds quoted fields containing escaped quotes, which cannot be a plain slice of the read buffer. */
+    private byte[] scratch = new byte[1024];
+    private int fieldCount;
+    private int recordStart;
+    private int recordEnd;
+    private long recordNumber;
+
+    private final CsvRecordScanner scanner = new CsvRecordScanner();
+    private final List<String> header;
+
+    /**
+     * Creates a tokenizer over the given stream and reads the header record.
+     *
+     * @param in The CSV input. It is closed by {@link #close()}.
+     * @throws IOException If the stream cannot be read or the header is malformed.
+     */
+    public PosCsvTokenizer(InputStream in) throws IOException {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a tokenizer over the given stream with a specific initial buffer size and reads the header record.
+     *
+     * @param in The CSV input. It is closed by {@link #close()}.
+     * @param bufferSize The initial buffer size in bytes.
+     * @throws IOException If the stream cannot be read or the header is malformed.
+     */
+    public PosCsvTokenizer(InputStream in, int bufferSize) throws IOException {
+        this.in = in;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+        fill();
+        // Skip a UTF-8 byte order mark, which some spreadsheet exports prepend.
+        if (limit - position >= 3 && (buffer[0] & 0xFF) == 0xEF && (buffer[1] & 0xFF) == 0xBB && (buffer[2] & 0xFF) == 0xBF) {
+            position += 3;
+        }
+        if (!nextRecord()) {
+            this.header = Collections.emptyList();
+        } else {
+            List<String> names = new ArrayList<>(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                names.add(getString(i));
+            }
+            this.header = Collections.unmodifiableList(names);
+            this.recordNumber = 0;
+        }
+    }
+
+    /**
+     * Creates a tokenizer over a stream that starts directly with data records, using a header
+     * read elsewhere. This is used to tokenize byte ranges of a file in parallel.
+     *
+     * @param in The CSV input, positioned at the start of a record. It is closed by {@link #close()}.
+     * @param header The header names of the file the range belongs to.
+     * @param bufferSize The initial buffer size in bytes.
+     * @throws IOException If the stream cannot be read.
+     */
+    public PosCsvTokenizer(InputStream in, List<String> header, int bufferSize) throws IOException {
+        this.in = in;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+        this.header = Collections.unmodifiableList(new ArrayList<>(header));
+    }
+
+    /**
+     * Returns the header names in file order.
+     * @return The header names.
+     */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    /**
+     * Resolves the position of a column by its header name, ignoring case.
+     *
+     * @param name The header name.
+     * @return The zero-based column index.
+     * @throws IllegalArgumentException If the header does not contain the column.
+     */
+    public int columnIndex(String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Mapping for %s not found, expected one of %s", name, header));
+    }
+
+    /**
+     * Advances to the next non-empty record.
+     *
+     * @return `true` if a record was read, `false` at the end of the input.
+     * @throws IOException If the input cannot be read or the record is malformed.
+     */
+    public boolean nextRecord() throws IOException {
+        while (true) {
+            scanner.reset();
+            int end = scanner.findRecordEnd(buffer, position, limit);
+            if (end < 0) {
+                if (!endOfStream) {
+                    fill();
+                    continue;
+                }
+                if (position >= limit) {
+                    return false;
+                }
+                end = limit;
+            }
+            int start = position;
+            position = end < limit ? end + 1 : end;
+            int lineEnd = end;
+            if (lineEnd > start && buffer[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd == start) {
+                continue;
+            }
+            recordNumber++;
+            tokenize(start, lineEnd);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of fields in the current record.
+     * @return The field count.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the one-based number of the current data record (the header is not counted).
+     * @return The record number.
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Returns whether the given field of the current record is empty after trimming.
+     *
+     * @param index The column index.
+     * @return `true` if the field is empty.
+     */
+    public boolean isEmpty(int index) {
+        checkIndex(index);
+        return fieldStarts[index] == fieldEnds[index];
+    }
+
+    /**
+     * Decodes the given field of the current record as a UTF-8 string.
+     *
+     * @param index The column index.
+     * @return The field value, never `null`.
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        return new String(fieldData[index], fieldStarts[index], fieldEnds[index] - fieldStarts[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the whole current record, exactly as it appears in the file, as a UTF-8 string.
+     * @return The raw record without its line terminator.
+     */
+    public String getRawRecord() {
+        return new String(buffer, recordStart, recordEnd - recordStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the buffer holding the current record. Only the range reported by
+     * {@link #getRawRecordStart()} and {@link #getRawRecordEnd()} is meaningful.
+     * @return The internal buffer.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the offset in {@link #getBuffer()} at which the current raw record starts.
+     * @return The start offset.
+     */
+    public int getRawRecordStart() {
+        return recordStart;
+    }
+
+    /**
+     * Returns the offset in {@link #getBuffer()} at which the current raw record ends (exclusive).
+     * @return The end offset.
+     */
+    public int getRawRecordEnd() {
+        return recordEnd;
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the current raw record, straight from the buffer.
+     * Used to detect whether a re-uploaded row differs from the stored one; it is not a
+     * cryptographic hash.
+     * @return The hash of the raw record bytes.
+     */
+    public long getRawRecordHash() {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = recordStart; i < recordEnd; i++) {
+            hash ^= buffer[i] & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Parses the given field as an `int` directly from its bytes.
+     *
+     * @param index The column index.
+     * @return The parsed value.
+     * @throws NumberFormatException If the field is not a valid integer.
+     */
+    public int getInt(int index) {
+        checkIndex(index);
+        byte[] data = fieldData[index];
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        boolean negative = start < end && data[start] == '-';
+        int i = negative || (start < end && data[start] == '+') ? start + 1 : start;
+        if (i == end || end - i > 9) {
+            return Integer.parseInt(getString(index));
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(getString(index));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the given field as a decimal directly from its bytes.
+     * The result has the same unscaled value and scale as `new BigDecimal(String)` would produce
+     * for the field text; unusual notations (exponents, more than 18 digits) fall back to that constructor.
+     *
+     * @param index The column index.
+     * @return The parsed value.
+     * @throws NumberFormatException If the field is not a valid decimal.
+     */
+    public BigDecimal getDecimal(int index) {
+        checkIndex(index);
+        byte[] data = fieldData[index];
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        boolean negative = start < end && data[start] == '-';
+        int i = negative || (start < end && data[start] == '+') ? start + 1 : start;
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || ++digits > MAX_LONG_DIGITS) {
+                return new BigDecimal(getString(index));
+            }
+            unscaled = unscaled * 10 + digit;
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            return new BigDecimal(getString(index));
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * Parses the given field as a `yyyy-MM-dd HH:mm:ss` timestamp directly from its bytes.
+     * Fields in any other layout are handed to the `DateTimeFormatter` used before, so
+     * the accepted values and error behaviour are unchanged.
+     *
+     * @param index The column index.
+     * @return The parsed timestamp.
+     * @throws java.time.format.DateTimeParseException If the field is not a valid timestamp.
+     */
+    public Timestamp getTimestamp(int index) {
+        checkIndex(index);
+        byte[] data = fieldData[index];
+        int s = fieldStarts[index];
+        if (fieldEnds[index] - s == 19
+                && data[s + 4] == '-' && data[s + 7] == '-' && data[s + 10] == ' '
+                && data[s + 13] == ':' && data[s + 16] == ':') {
+            int year = digits(data, s, 4);
+            int month = digits(data, s + 5, 2);
+            int day = digits(data, s + 8, 2);
+            int hour = digits(data, s + 11, 2);
+            int minute = digits(data, s + 14, 2);
+            int second = digits(data, s + 17, 2);
+            if ((year | month | day | hour | minute | second) >= 0) {
+                try {
+                    return Timestamp.valueOf(LocalDateTime.of(year, month, day, hour, minute, second));
+                } catch (DateTimeException e) {
+                    // Let the formatter decide, it resolves some out-of-range days leniently.
+                }
+            }
+        }
+        return Timestamp.valueOf(LocalDateTime.parse(getString(index), FORMATTER));
+    }
+
+    /**
+     * Closes the underlying stream.
+     * @throws IOException If closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Parses a run of ASCII digits, returning -1 if any byte is not a digit.
+     */
+    private static int digits(byte[] data, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Splits the record in `[start, end)` into field slices.
+     */
+    private void tokenize(int start, int end) throws IOException {
+        recordStart = start;
+        recordEnd = end;
+        fieldCount = 0;
+        int scratchLength = 0;
+        int i = start;
+        while (true) {
+            ensureFieldCapacity();
+            byte[] data = buffer;
+            int fieldStart;
+            int fieldEnd;
+            if (i < end && buffer[i] == '"') {
+                fieldStart = ++i;
+                boolean escaped = false;
+                while (true) {
+                    if (i >= end) {
+                        throw new IOException("Unterminated quoted field in record " + recordNumber);
+                    }
+                    if (buffer[i] == '"') {
+                        if (i + 1 < end && buffer[i + 1] == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fieldEnd = i++;
+                if (escaped) {
+                    // Collapse doubled quotes into the scratch buffer so the field is still one contiguous slice.
+                    if (scratch.length < scratchLength + (fieldEnd - fieldStart)) {
+                        scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, scratchLength + (fieldEnd - fieldStart)));
+                    }
+                    int write = scratchLength;
+                    for (int r = fieldStart; r < fieldEnd; r++) {
+                        scratch[write++] = buffer[r];
+                        if (buffer[r] == '"') {
+                            r++;
+                        }
+                    }
+                    data = scratch;
+                    fieldStart = scratchLength;
+                    fieldEnd = write;
+                    scratchLength = write;
+                }
+                while (i < end && buffer[i] != ',') {
+                    if ((buffer[i] & 0xFF) > ' ') {
+                        throw new IOException("Invalid character after quoted field in record " + recordNumber);
+                    }
+                    i++;
+                }
+            } else {
+                fieldStart = i;
+                while (i < end && buffer[i] != ',') {
+                    i++;
+                }
+                fieldEnd = i;
+            }
+            // Trim like String.trim(): every byte <= ' ' is whitespace, UTF-8 multi-byte sequences never are.
+            while (fieldStart < fieldEnd && (data[fieldStart] & 0xFF) <= ' ') {
+                fieldStart++;
+            }
+            while (fieldEnd > fieldStart && (data[fieldEnd - 1] & 0xFF) <= ' ') {
+                fieldEnd--;
+            }
+            fieldData[fieldCount] = data;
+            fieldStarts[fieldCount] = fieldStart;
+            fieldEnds[fieldCount] = fieldEnd;
+            fieldCount++;
+            if (i >= end) {
+                return;
+            }
+            i++; // Skip the delimiter.
+        }
+    }
+
+    /**
+     * Makes room for one more field in the slice arrays.
+     */
+    private void ensureFieldCapacity() {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldData = Arrays.copyOf(fieldData, fieldCount * 2);
+        }
+    }
+
+    /**
+     * Compacts the unconsumed bytes to the start of the buffer, grows it if it is full, and reads more input.
+     */
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * Rejects access to fields the current record does not have.
+     */
+    private void checkIndex(int index) {
+        if (index >= fieldCount) {
+            throw new IllegalArgumentException(String.format(
+                    "Index for header '%s' is %d but record %d only has %d values!",
+                    index < header.size() ? header.get(index) : String.valueOf(index), index, recordNumber, fieldCount));
+        }
+    }
+}
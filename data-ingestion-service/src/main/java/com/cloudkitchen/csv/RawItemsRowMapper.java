@@ -0,0 +1,73 @@
+package com.cloudkitchen.csv;
+
+import com.cloudkitchen.model.RawItemsData;
+import com.cloudkitchen.service.RawLinePolicy;
+
+/**
+ * Maps items report records to `RawItemsData` entities.
+ * Column positions are looked up from the header once instead of once per record.
+ */
+public class RawItemsRowMapper implements CsvRowMapper<RawItemsData> {
+
+    private final int date;
+    private final int timestamp;
+    private final int invoiceNo;
+    private final int itemName;
+    private final int qty;
+    private final int tax;
+    private final int variation;
+    private final int category;
+
+    private final RawLinePolicy rawLinePolicy;
+    private final RawLineCompressor compressor;
+
+    /**
+     * Resolves the items report columns from the tokenizer header.
+     *
+     * @param tokenizer The tokenizer whose header is used.
+     * @param rawLinePolicy How the raw CSV line of each record is kept.
+     * @throws IllegalArgumentException If a required column is missing.
+     */
+    public RawItemsRowMapper(PosCsvTokenizer tokenizer, RawLinePolicy rawLinePolicy) {
+        this.rawLinePolicy = rawLinePolicy;
+        this.compressor = rawLinePolicy == RawLinePolicy.COMPRESSED ? new RawLineCompressor() : null;
+        this.date = tokenizer.columnIndex("Date");
+        this.timestamp = tokenizer.columnIndex("Timestamp");
+        this.invoiceNo = tokenizer.columnIndex("Invoice No.");
+        this.itemName = tokenizer.columnIndex("Item Name");
+        this.qty = tokenizer.columnIndex("Qty.");
+        this.tax = tokenizer.columnIndex("Tax");
+        this.variation = tokenizer.columnIndex("Variation");
+        this.category = tokenizer.columnIndex("Category");
+    }
+
+    /**
+     * Maps the tokenizer's current record to a `RawItemsData` entity.
+     *
+     * @param tokenizer The tokenizer positioned on a data record.
+     * @return The mapped entity.
+     */
+    @Override
+    public RawItemsData map(PosCsvTokenizer tokenizer) {
+        RawItemsData item = new RawItemsData();
+        item.setDate(tokenizer.getTimestamp(date));
+        item.setTimestamp(tokenizer.getTimestamp(timestamp));
+        item.setInvoiceNo(tokenizer.getString(invoiceNo));
+        item.setItemName(tokenizer.getString(itemName));
+        item.setQty(tokenizer.getInt(qty));
+        item.setTax(tokenizer.getDecimal(tax));
+        item.setVariation(tokenizer.getString(variation));
+        item.setCategory(tokenizer.getString(category));
+        switch (rawLinePolicy) {
+            case OFF:
+                break;
+            case COMPRESSED:
+                item.setRawLineCompressed(compressor.compress(tokenizer.getBuffer(),
+                        tokenizer.getRawRecordStart(), tokenizer.getRawRecordEnd()));
+                break;
+            default:
+                item.setRawLine(tokenizer.getRawRecord()); // Store the original raw line for debugging.
+        }
+        return item;
+    }
+}
@@ -0,0 +1,69 @@
+package com.cloudkitchen.csv;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate codec for raw CSV lines stored in `raw_line_compressed`.
+ * An instance reuses one `Deflater` and output buffer, so it must be confined to one thread;
+ * the row mappers each own one.
+ */
+public class RawLineCompressor {
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] output = new byte[1024];
+
+    /**
+     * Compresses a byte range, e.g. the current raw record straight from the tokenizer buffer.
+     *
+     * @param data The bytes to compress.
+     * @param from The first byte of the range.
+     * @param to The end of the range (exclusive).
+     * @return The zlib-compressed bytes.
+     */
+    public byte[] compress(byte[] data, int from, int to) {
+        deflater.reset();
+        deflater.setInput(data, from, to - from);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            length += deflater.deflate(output, length, output.length - length);
+        }
+        return Arrays.copyOf(output, length);
+    }
+
+    /**
+     * Restores a raw line written by {@link #compress(byte[], int, int)}.
+     *
+     * @param compressed The zlib-compressed bytes.
+     * @return The raw line.
+     * @throws IllegalArgumentException If the bytes are not valid zlib data.
+     */
+    public static String decompress(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] block = new byte[1024];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(block);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed raw line");
+                }
+                line.write(block, 0, read);
+            }
+            return line.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid compressed raw line: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
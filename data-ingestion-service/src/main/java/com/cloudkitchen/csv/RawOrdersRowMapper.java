@@ -0,0 +1,95 @@
+package com.cloudkitchen.csv;
+
+import com.cloudkitchen.model.RawOrdersData;
+import com.cloudkitchen.service.RawLinePolicy;
+
+/**
+ * Maps orders report records to `RawOrdersData` entities.
+ * Column positions are looked up from the header once instead of once per record.
+ */
+public class RawOrdersRowMapper implements CsvRowMapper<RawOrdersData> {
+
+    private final int invoiceNo;
+    private final int date;
+    private final int timestamp;
+    private final int paymentType;
+    private final int orderType;
+    private final int area;
+    private final int subOrderType;
+    private final int phone;
+    private final int name;
+    private final int myAmount;
+    private final int discount;
+    private final int netSales;
+    private final int containerCharge;
+    private final int totalTax;
+    private final int totalAmount;
+
+    private final RawLinePolicy rawLinePolicy;
+    private final RawLineCompressor compressor;
+
+    /**
+     * Resolves the orders report columns from the tokenizer header.
+     *
+     * @param tokenizer The tokenizer whose header is used.
+     * @param rawLinePolicy How the raw CSV line of each record is kept.
+     * @throws IllegalArgumentException If a required column is missing.
+     */
+    public RawOrdersRowMapper(PosCsvTokenizer tokenizer, RawLinePolicy rawLinePolicy) {
+        this.rawLinePolicy = rawLinePolicy;
+        this.compressor = rawLinePolicy == RawLinePolicy.COMPRESSED ? new RawLineCompressor() : null;
+        this.invoiceNo = tokenizer.columnIndex("Invoice No.");
+        this.date = tokenizer.columnIndex("Date");
+        this.timestamp = tokenizer.columnIndex("Timestamp");
+        this.paymentType = tokenizer.columnIndex("Payment Type");
+        this.orderType = tokenizer.columnIndex("Order Type");
+        this.area = tokenizer.columnIndex("Area");
+        this.subOrderType = tokenizer.columnIndex("Sub Order Type");
+        this.phone = tokenizer.columnIndex("Phone");
+        this.name = tokenizer.columnIndex("Name");
+        this.myAmount = tokenizer.columnIndex("My Amount (₹)");
+        this.discount = tokenizer.columnIndex("Discount (₹)");
+        this.netSales = tokenizer.columnIndex("Net Sales (₹)(M.A - D)");
+        this.containerCharge = tokenizer.columnIndex("Container Charge");
+        this.totalTax = tokenizer.columnIndex("Total Tax (₹)");
+        this.totalAmount = tokenizer.columnIndex("Total (₹)");
+    }
+
+    /**
+     * Maps the tokenizer's current record to a `RawOrdersData` entity.
+     *
+     * @param tokenizer The tokenizer positioned on a data record.
+     * @return The mapped entity.
+     */
+    @Override
+    public RawOrdersData map(PosCsvTokenizer tokenizer) {
+        RawOrdersData order = new RawOrdersData();
+        order.setInvoiceNo(tokenizer.getString(invoiceNo));
+        order.setDate(tokenizer.getTimestamp(date));
+        order.setTimestamp(tokenizer.getTimestamp(timestamp));
+        order.setPaymentType(tokenizer.getString(paymentType));
+        order.setOrderType(tokenizer.getString(orderType));
+        order.setArea(tokenizer.getString(area));
+        order.setSubOrderType(tokenizer.getString(subOrderType));
+        order.setPhone(tokenizer.getString(phone));
+        order.setName(tokenizer.getString(name));
+        order.setMyAmount(tokenizer.getDecimal(myAmount));
+        order.setDiscount(tokenizer.getDecimal(discount));
+        order.setNetSales(tokenizer.getDecimal(netSales));
+        order.setContainerCharge(tokenizer.getDecimal(containerCharge));
+        order.setTotalTax(tokenizer.getDecimal(totalTax));
+        order.setTotalAmount(tokenizer.getDecimal(totalAmount));
+        switch (rawLinePolicy) {
+            case OFF:
+                break;
+            case COMPRESSED:
+                order.setRawLineCompressed(compressor.compress(tokenizer.getBuffer(),
+                        tokenizer.getRawRecordStart(), tokenizer.getRawRecordEnd()));
+                break;
+            default:
+                order.setRawLine(tokenizer.getRawRecord()); // Store the original raw line for debugging.
+        }
+        order.setRowHash(tokenizer.getRawRecordHash());
+        return order;
+    }
+}
@@ -0,0 +1,206 @@
+package com.cloudkitchen.dto;
+
+import com.cloudkitchen.service.IngestionJob;
+import com.cloudkitchen.service.IngestionJobStatus;
+import com.cloudkitchen.service.IngestionReport;
+import com.cloudkitchen.service.ReportType;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) describing the progress of an asynchronous ingestion job.
+ * It is a point-in-time snapshot of the job's live counters.
+ */
+public class IngestionJobResponse {
+    /**
+     * The job id.
+     */
+    private final String jobId;
+    /**
+     * The kind of report being ingested.
+     */
+    private final ReportType reportType;
+    /**
+     * The original name of the uploaded file.
+     */
+    private final String fileName;
+    /**
+     * The current lifecycle state.
+     */
+    private final IngestionJobStatus status;
+    /**
+     * Records parsed so far.
+     */
+    private final long rowsParsed;
+    /**
+     * Records committed to the database so far.
+     */
+    private final long rowsPersisted;
+    /**
+     * Bytes of the upload consumed so far.
+     */
+    private final long bytesRead;
+    /**
+     * Size of the upload in bytes.
+     */
+    private final long totalBytes;
+    /**
+     * Average persisted rows per second since the job started.
+     */
+    private final double rowsPerSecond;
+    /**
+     * Estimated seconds until completion, or `null` while no estimate is possible.
+     */
+    private final Long etaSeconds;
+    /**
+     * Failed ranges, or the error that stopped the job.
+     */
+    private final List<String> errors;
+    /**
+     * When the upload was accepted.
+     */
+    private final Instant submittedAt;
+    /**
+     * When a job thread picked the job up.
+     */
+    private final Instant startedAt;
+    /**
+     * When the job finished.
+     */
+    private final Instant finishedAt;
+
+    /**
+     * Takes a snapshot of the given job.
+     * @param job The job to describe.
+     */
+    public IngestionJobResponse(IngestionJob job) {
+        IngestionReport report = job.getReport();
+        this.jobId = job.getId();
+        this.reportType = job.getReportType();
+        this.fileName = job.getFileName();
+        this.status = job.getStatus();
+        this.rowsParsed = report.getRowsParsed();
+        this.rowsPersisted = report.getRowsPersisted();
+        this.bytesRead = Math.min(report.getBytesRead(), job.getTotalBytes());
+        this.totalBytes = job.getTotalBytes();
+        this.rowsPerSecond = job.getRowsPerSecond();
+        this.etaSeconds = job.getEtaSeconds();
+        this.errors = report.getErrors();
+        this.submittedAt = job.getSubmittedAt();
+        this.startedAt = job.getStartedAt();
+        this.finishedAt = job.getFinishedAt();
+    }
+
+    /**
+     * Returns the job id.
+     * @return The job id.
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    /**
+     * Returns the kind of report being ingested.
+     * @return The report type.
+     */
+    public ReportType getReportType() {
+        return reportType;
+    }
+
+    /**
+     * Returns the original name of the uploaded file.
+     * @return The file name.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the job status.
+     * @return The status.
+     */
+    public IngestionJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the number of records parsed so far.
+     * @return The parsed record count.
+     */
+    public long getRowsParsed() {
+        return rowsParsed;
+    }
+
+    /**
+     * Returns the number of records persisted so far.
+     * @return The persisted record count.
+     */
+    public long getRowsPersisted() {
+        return rowsPersisted;
+    }
+
+    /**
+     * Returns the number of bytes consumed so far.
+     * @return The consumed byte count.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the size of the upload.
+     * @return The upload size in bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the average throughput.
+     * @return Persisted rows per second.
+     */
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * Returns the estimated remaining time.
+     * @return The ETA in seconds, or `null` if unknown.
+     */
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    /**
+     * Returns the recorded errors.
+     * @return The error messages.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns when the upload was accepted.
+     * @return The submission time.
+     */
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * Returns when the job started.
+     * @return The start time, or `null` while queued.
+     */
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Returns when the job finished.
+     * @return The finish time, or `null` while queued or running.
+     */
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
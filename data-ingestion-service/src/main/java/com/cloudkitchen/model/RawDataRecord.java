@@ -0,0 +1,32 @@
+package com.cloudkitchen.model;
+
+/**
+ * Common view of the raw report entities, used by the ingestion pipeline to move
+ * raw lines and ids independently of the report type.
+ */
+public interface RawDataRecord {
+
+    /**
+     * Returns the unique identifier of the record.
+     * @return The ID, or `null` before the record is persisted.
+     */
+    Long getId();
+
+    /**
+     * Sets the unique identifier of the record.
+     * @param id The ID to set.
+     */
+    void setId(Long id);
+
+    /**
+     * Returns the original raw line from the CSV file.
+     * @return The raw CSV line.
+     */
+    String getRawLine();
+
+    /**
+     * Sets the original raw line from the CSV file.
+     * @param rawLine The raw CSV line to set.
+     */
+    void setRawLine(String rawLine);
+}
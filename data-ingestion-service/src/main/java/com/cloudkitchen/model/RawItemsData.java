@@ -10,14 +10,15 @@ import java.sql.Timestamp;
  */
 @Entity
 @Table(name = "raw_items_data")
-public class RawItemsData {
+public class RawItemsData implements RawDataRecord {
 
     /**
      * Unique identifier for the raw item data record.
-     * This is an auto-generated primary key.
+     * This is an auto-generated primary key, drawn from a pooled sequence so Hibernate can batch inserts.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "raw_items_data_seq")
+    @SequenceGenerator(name = "raw_items_data_seq", sequenceName = "raw_items_data_seq", schema = "raw_data_schema", allocationSize = 500)
     private Long id;
 
     /**
@@ -64,6 +65,12 @@ public class RawItemsData {
     @Column(name = "raw_line", columnDefinition = "TEXT")
     private String rawLine;
 
+    /**
+     * The original raw line, deflate-compressed, when `ingestion.raw-line-policy` is `compressed`.
+     */
+    @Column(name = "raw_line_compressed")
+    private byte[] rawLineCompressed;
+
     /**
      * Returns the unique identifier of the raw item data record.
      * @return The ID of the record.
@@ -223,4 +230,20 @@ public class RawItemsData {
     public void setRawLine(String rawLine) {
         this.rawLine = rawLine;
     }
+
+    /**
+     * Returns the deflate-compressed raw line.
+     * @return The compressed raw line, or `null` if it is not stored compressed.
+     */
+    public byte[] getRawLineCompressed() {
+        return rawLineCompressed;
+    }
+
+    /**
+     * Sets the deflate-compressed raw line.
+     * @param rawLineCompressed The compressed raw line to set.
+     */
+    public void setRawLineCompressed(byte[] rawLineCompressed) {
+        this.rawLineCompressed = rawLineCompressed;
+    }
 }
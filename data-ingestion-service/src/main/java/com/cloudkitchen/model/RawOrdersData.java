@@ -10,14 +10,15 @@ import java.sql.Timestamp;
  */
 @Entity
 @Table(name = "raw_orders_data")
-public class RawOrdersData {
+public class RawOrdersData implements RawDataRecord {
 
     /**
      * Unique identifier for the raw order data record.
-     * This is an auto-generated primary key.
+     * This is an auto-generated primary key, drawn from a pooled sequence so Hibernate can batch inserts.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "raw_orders_data_seq")
+    @SequenceGenerator(name = "raw_orders_data_seq", sequenceName = "raw_orders_data_seq", schema = "raw_data_schema", allocationSize = 500)
     private Long id;
 
     /**
@@ -152,6 +153,18 @@ public class RawOrdersData {
     @Column(name = "raw_line", columnDefinition = "TEXT")
     private String rawLine;
 
+    /**
+     * The original raw line, deflate-compressed, when `ingestion.raw-line-policy` is `compressed`.
+     */
+    @Column(name = "raw_line_compressed")
+    private byte[] rawLineCompressed;
+
+    /**
+     * Hash of the raw CSV line, used by `UPSERT` ingestion to skip re-uploaded rows that have not changed.
+     */
+    @Column(name = "row_hash")
+    private Long rowHash;
+
     /**
      * Returns the unique identifier of the raw order data record.
      * @return The ID of the record.
@@ -551,4 +564,36 @@ public class RawOrdersData {
     public void setRawLine(String rawLine) {
         this.rawLine = rawLine;
     }
+
+    /**
+     * Returns the deflate-compressed raw line.
+     * @return The compressed raw line, or `null` if it is not stored compressed.
+     */
+    public byte[] getRawLineCompressed() {
+        return rawLineCompressed;
+    }
+
+    /**
+     * Sets the deflate-compressed raw line.
+     * @param rawLineCompressed The compressed raw line to set.
+     */
+    public void setRawLineCompressed(byte[] rawLineCompressed) {
+        this.rawLineCompressed = rawLineCompressed;
+    }
+
+    /**
+     * Returns the hash of the raw CSV line.
+     * @return The row hash.
+     */
+    public Long getRowHash() {
+        return rowHash;
+    }
+
+    /**
+     * Sets the hash of the raw CSV line.
+     * @param rowHash The row hash to set.
+     */
+    public void setRowHash(Long rowHash) {
+        this.rowHash = rowHash;
+    }
 }
@@ -3,6 +3,7 @@ package com.cloudkitchen.service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Service interface for handling data ingestion operations.
@@ -10,7 +11,7 @@ import java.io.IOException;
  */
 public interface DataIngestionService {
     /**
-     * Processes an uploaded items report CSV file.
+     * Processes an uploaded items report CSV file using the configured default mode.
      * Parses the file, extracts relevant data, and persists it.
      *
      * @param file The `MultipartFile` representing the items report CSV.
@@ -20,7 +21,18 @@ public interface DataIngestionService {
     int processItemsReport(MultipartFile file) throws IOException;
 
     /**
-     * Processes an uploaded orders report CSV file.
+     * Processes an uploaded items report CSV file using the given ingestion options.
+     * In parallel mode a failing byte range is recorded in the report instead of aborting the run.
+     *
+     * @param file The `MultipartFile` representing the items report CSV.
+     * @param options The per-request options; `null` fields fall back to the configured defaults.
+     * @return The `IngestionReport` with the processed record counts and any range errors.
+     * @throws IOException If an I/O error occurs during file reading.
+     */
+    IngestionReport processItemsReport(MultipartFile file, IngestionOptions options) throws IOException;
+
+    /**
+     * Processes an uploaded orders report CSV file using the configured default mode.
      * Parses the file, extracts relevant data, and persists it.
      *
      * @param file The `MultipartFile` representing the orders report CSV.
@@ -28,4 +40,27 @@ public interface DataIngestionService {
      * @throws IOException If an I/O error occurs during file reading.
      */
     int processOrdersReport(MultipartFile file) throws IOException;
+
+    /**
+     * Processes an uploaded orders report CSV file using the given ingestion options.
+     * In parallel mode a failing byte range is recorded in the report instead of aborting the run.
+     *
+     * @param file The `MultipartFile` representing the orders report CSV.
+     * @param options The per-request options; `null` fields fall back to the configured defaults.
+     * @return The `IngestionReport` with the processed record counts and any range errors.
+     * @throws IOException If an I/O error occurs during file reading.
+     */
+    IngestionReport processOrdersReport(MultipartFile file, IngestionOptions options) throws IOException;
+
+    /**
+     * Processes a report that has already been stored on local disk, e.g. by an asynchronous job.
+     * Progress is published to the given report while the file is processed.
+     *
+     * @param reportType The kind of report in the file.
+     * @param file The CSV file to ingest; it is not deleted.
+     * @param options The per-request options; `null` fields fall back to the configured defaults.
+     * @param report Receives the processed record and byte counts and any range errors.
+     * @throws IOException If an I/O error occurs during file reading.
+     */
+    void processReport(ReportType reportType, Path file, IngestionOptions options, IngestionReport report) throws IOException;
 }
@@ -0,0 +1,202 @@
+package com.cloudkitchen.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * An upload accepted for background processing.
+ * Progress is read from the shared `IngestionReport`, which the pipeline updates while the job runs.
+ */
+public class IngestionJob {
+
+    /**
+     * The job id returned to the client.
+     */
+    private final String id;
+
+    /**
+     * The kind of report being ingested.
+     */
+    private final ReportType reportType;
+
+    /**
+     * The original name of the uploaded file.
+     */
+    private final String fileName;
+
+    /**
+     * The size of the spooled upload in bytes.
+     */
+    private final long totalBytes;
+
+    /**
+     * When the upload was accepted.
+     */
+    private final Instant submittedAt = Instant.now();
+
+    /**
+     * Live row, byte and error counters, updated by the pipeline.
+     */
+    private final IngestionReport report = new IngestionReport();
+
+    /**
+     * The current lifecycle state.
+     */
+    private volatile IngestionJobStatus status = IngestionJobStatus.QUEUED;
+
+    /**
+     * When a job thread picked the job up.
+     */
+    private volatile Instant startedAt;
+
+    /**
+     * When the job reached a final state.
+     */
+    private volatile Instant finishedAt;
+
+    /**
+     * Creates a queued job.
+     *
+     * @param id The job id returned to the client.
+     * @param reportType The kind of report being ingested.
+     * @param fileName The original name of the uploaded file.
+     * @param totalBytes The size of the spooled upload, used to estimate progress.
+     */
+    public IngestionJob(String id, ReportType reportType, String fileName, long totalBytes) {
+        this.id = id;
+        this.reportType = reportType;
+        this.fileName = fileName;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Marks the job as picked up by a job thread.
+     */
+    public void markRunning() {
+        startedAt = Instant.now();
+        status = IngestionJobStatus.RUNNING;
+    }
+
+    /**
+     * Marks the job as finished with the given final status.
+     * @param finalStatus `COMPLETED`, `COMPLETED_WITH_ERRORS` or `FAILED`.
+     */
+    public void markFinished(IngestionJobStatus finalStatus) {
+        finishedAt = Instant.now();
+        status = finalStatus;
+    }
+
+    /**
+     * Returns whether the job has reached a final state.
+     * @return `true` once the job has finished, successfully or not.
+     */
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    /**
+     * Returns the average number of persisted rows per second since the job started.
+     * @return The throughput, or 0 if the job has not started.
+     */
+    public double getRowsPerSecond() {
+        double seconds = elapsedMillis() / 1000.0;
+        return seconds > 0 ? report.getRowsPersisted() / seconds : 0;
+    }
+
+    /**
+     * Estimates the remaining run time from the share of the upload consumed so far.
+     * @return The estimated seconds until completion, 0 once finished, or `null` while no estimate is possible.
+     */
+    public Long getEtaSeconds() {
+        if (isFinished()) {
+            return 0L;
+        }
+        long bytesRead = Math.min(report.getBytesRead(), totalBytes);
+        long elapsed = elapsedMillis();
+        if (bytesRead <= 0 || elapsed <= 0) {
+            return null;
+        }
+        return (long) (elapsed / 1000.0 * (totalBytes - bytesRead) / bytesRead);
+    }
+
+    private long elapsedMillis() {
+        Instant start = startedAt;
+        if (start == null) {
+            return 0;
+        }
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return Duration.between(start, end).toMillis();
+    }
+
+    /**
+     * Returns the job id.
+     * @return The job id.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the kind of report being ingested.
+     * @return The report type.
+     */
+    public ReportType getReportType() {
+        return reportType;
+    }
+
+    /**
+     * Returns the original name of the uploaded file.
+     * @return The file name.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the size of the spooled upload.
+     * @return The upload size in bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the live progress report of the job.
+     * @return The ingestion report.
+     */
+    public IngestionReport getReport() {
+        return report;
+    }
+
+    /**
+     * Returns the current status.
+     * @return The job status.
+     */
+    public IngestionJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns when the upload was accepted.
+     * @return The submission time.
+     */
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * Returns when a job thread picked the job up.
+     * @return The start time, or `null` while queued.
+     */
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Returns when the job finished.
+     * @return The finish time, or `null` while queued or running.
+     */
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,33 @@
+package com.cloudkitchen.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Service interface for asynchronous ingestion jobs.
+ * Uploads are spooled to local disk and processed on a bounded executor, so the HTTP
+ * request returns as soon as the file is stored.
+ */
+public interface IngestionJobService {
+    /**
+     * Spools an upload and queues it for background processing.
+     *
+     * @param reportType The kind of report in the upload.
+     * @param file The uploaded CSV file.
+     * @param options The per-request ingestion options.
+     * @return The queued job.
+     * @throws IOException If the upload cannot be spooled.
+     * @throws java.util.concurrent.RejectedExecutionException If the job queue is full.
+     */
+    IngestionJob submit(ReportType reportType, MultipartFile file, IngestionOptions options) throws IOException;
+
+    /**
+     * Looks up a queued, running or recently finished job.
+     *
+     * @param id The job id.
+     * @return The job, or empty if it is unknown or has expired.
+     */
+    Optional<IngestionJob> getJob(String id);
+}
@@ -0,0 +1,31 @@
+package com.cloudkitchen.service;
+
+/**
+ * Lifecycle states of an asynchronous ingestion job.
+ */
+public enum IngestionJobStatus {
+    /**
+     * The upload is spooled and waiting for a free job thread.
+     */
+    QUEUED,
+
+    /**
+     * The upload is being parsed and persisted.
+     */
+    RUNNING,
+
+    /**
+     * Every record was persisted.
+     */
+    COMPLETED,
+
+    /**
+     * The job finished, but some byte ranges failed; the report lists them.
+     */
+    COMPLETED_WITH_ERRORS,
+
+    /**
+     * The job stopped on an error; rows committed before the error stay committed.
+     */
+    FAILED
+}
@@ -0,0 +1,35 @@
+package com.cloudkitchen.service;
+
+/**
+ * Strategy used to move parsed CSV rows into the raw data tables.
+ * The mode can be configured globally via `ingestion.mode` or chosen per request.
+ */
+public enum IngestionMode {
+    /**
+     * Parses the whole file into memory and persists every row with a single `saveAll` call.
+     * This is the original behaviour and is only suitable for small files.
+     */
+    BATCH,
+
+    /**
+     * Parses and persists the file in fixed-size chunks, one transaction per chunk.
+     * The persistence context is cleared after each chunk so heap use stays flat
+     * regardless of the file size.
+     */
+    STREAMING,
+
+    /**
+     * Parses the file in chunks like `STREAMING`, but loads each chunk with the PostgreSQL
+     * `COPY` protocol instead of JPA inserts. This is the fastest option for large uploads.
+     */
+    COPY,
+
+    /**
+     * Loads orders like `COPY`, but into a staging table that is merged into `raw_orders_data`
+     * by `invoice_no`. Re-uploading an overlapping export therefore does not duplicate orders:
+     * new invoices are inserted, changed ones (different row hash) are updated and unchanged ones
+     * are left untouched. Items reports have no natural key and are loaded as in `COPY` mode.
+     * The other modes do not deduplicate and keep loading exports that repeat an invoice.
+     */
+    UPSERT
+}
@@ -0,0 +1,50 @@
+package com.cloudkitchen.service;
+
+/**
+ * Per-request ingestion options. Any option left `null` falls back to the configured default
+ * from the `ingestion.*` properties.
+ */
+public class IngestionOptions {
+
+    /**
+     * The strategy used to persist parsed rows.
+     */
+    private IngestionMode mode;
+
+    /**
+     * Whether the upload is split into byte ranges that are parsed and persisted on several cores.
+     */
+    private Boolean parallel;
+
+    /**
+     * Returns the requested ingestion mode.
+     * @return The ingestion mode, or `null` for the configured default.
+     */
+    public IngestionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the requested ingestion mode.
+     * @param mode The ingestion mode to set, or `null` for the configured default.
+     */
+    public void setMode(IngestionMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Returns whether parallel parsing was requested.
+     * @return The parallel flag, or `null` for the configured default.
+     */
+    public Boolean getParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets whether parallel parsing is requested.
+     * @param parallel The parallel flag to set, or `null` for the configured default.
+     */
+    public void setParallel(Boolean parallel) {
+        this.parallel = parallel;
+    }
+}
@@ -0,0 +1,105 @@
+package com.cloudkitchen.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome of one ingestion run: how many rows were parsed and persisted, and which chunks failed.
+ * Counters are updated while the run is in progress and are safe to read and update from several threads.
+ */
+public class IngestionReport {
+
+    /**
+     * Number of records parsed from the upload so far.
+     */
+    private final AtomicLong rowsParsed = new AtomicLong();
+
+    /**
+     * Number of records committed to the database so far.
+     */
+    private final AtomicLong rowsPersisted = new AtomicLong();
+
+    /**
+     * Number of bytes of the upload consumed by the parser so far.
+     */
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    /**
+     * One message per chunk or range that could not be parsed or persisted.
+     */
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Adds to the number of parsed records.
+     * @param rows The number of newly parsed records.
+     */
+    public void addRowsParsed(long rows) {
+        rowsParsed.addAndGet(rows);
+    }
+
+    /**
+     * Adds to the number of persisted records.
+     * @param rows The number of newly persisted records.
+     */
+    public void addRowsPersisted(long rows) {
+        rowsPersisted.addAndGet(rows);
+    }
+
+    /**
+     * Adds to the number of bytes consumed from the upload.
+     * @param bytes The number of newly read bytes.
+     */
+    public void addBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    /**
+     * Records a failed chunk or range.
+     * @param message A description of the failure, including which part of the upload it concerns.
+     */
+    public synchronized void addError(String message) {
+        errors.add(message);
+    }
+
+    /**
+     * Returns the number of records parsed so far.
+     * @return The parsed record count.
+     */
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    /**
+     * Returns the number of records persisted so far.
+     * @return The persisted record count.
+     */
+    public long getRowsPersisted() {
+        return rowsPersisted.get();
+    }
+
+    /**
+     * Returns the number of bytes of the upload consumed so far.
+     * The parser reads ahead by up to one buffer, so this runs slightly ahead of the parsed rows.
+     * @return The consumed byte count.
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * Returns a snapshot of the chunk errors recorded so far.
+     * @return The error messages.
+     */
+    public synchronized List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    /**
+     * Returns whether any chunk failed.
+     * @return `true` if at least one error was recorded.
+     */
+    public synchronized boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
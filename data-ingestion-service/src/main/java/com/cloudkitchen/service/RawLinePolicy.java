@@ -0,0 +1,28 @@
+package com.cloudkitchen.service;
+
+/**
+ * How the original CSV line of each ingested row is retained.
+ * Configured via `ingestion.raw-line-policy`.
+ */
+public enum RawLinePolicy {
+    /**
+     * Stores the line as text in the `raw_line` column of the raw table. This is the original behaviour.
+     */
+    FULL,
+
+    /**
+     * Does not keep the line at all.
+     */
+    OFF,
+
+    /**
+     * Stores the line deflate-compressed in the `raw_line_compressed` bytea column.
+     */
+    COMPRESSED,
+
+    /**
+     * Stores the line in the separate `raw_lines` table, keyed by source table and row id,
+     * so the raw tables only hold the parsed columns.
+     */
+    SIDE_TABLE
+}
@@ -0,0 +1,16 @@
+package com.cloudkitchen.service;
+
+/**
+ * The kinds of POS reports the ingestion service accepts.
+ */
+public enum ReportType {
+    /**
+     * The orders report, stored in `raw_orders_data`.
+     */
+    ORDERS,
+
+    /**
+     * The items report, stored in `raw_items_data`.
+     */
+    ITEMS
+}
@@ -1,27 +1,46 @@
 package com.cloudkitchen.service.impl;
 
-import com.cloudkitchen.model.RawItemsData;
+import com.cloudkitchen.config.IngestionProperties;
+import com.cloudkitchen.csv.CompressionFormat;
+import com.cloudkitchen.csv.CsvRangeSplitter;
+import com.cloudkitchen.csv.CsvRowMapper;
+import com.cloudkitchen.csv.FileRangeInputStream;
+import com.cloudkitchen.csv.PosCsvTokenizer;
+import com.cloudkitchen.csv.RawItemsRowMapper;
+import com.cloudkitchen.csv.RawOrdersRowMapper;
+import com.cloudkitchen.model.RawDataRecord;
 import com.cloudkitchen.model.RawOrdersData;
 import com.cloudkitchen.repository.RawItemsDataRepository;
 import com.cloudkitchen.repository.RawOrdersDataRepository;
 import com.cloudkitchen.service.DataIngestionService;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import com.cloudkitchen.service.IngestionMode;
+import com.cloudkitchen.service.IngestionOptions;
+import com.cloudkitchen.service.IngestionReport;
+import com.cloudkitchen.service.RawLinePolicy;
+import com.cloudkitchen.service.ReportType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Timestamp;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 /**
  * Implementation of the `DataIngestionService` interface.
@@ -31,6 +50,21 @@ import java.util.List;
 @Service
 public class DataIngestionServiceImpl implements DataIngestionService {
 
+    /**
+     * Read buffer size for tokenizers working on a byte range of a spooled upload.
+     */
+    private static final int RANGE_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Smallest byte range handed to a parallel worker; smaller files are not worth splitting further.
+     */
+    private static final long MIN_RANGE_SIZE = 4L * 1024 * 1024;
+
+    /**
+     * Number of ranges created per worker thread, so uneven ranges still balance across the pool.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
     /**
      * Repository for `RawItemsData` entities, used for database operations.
      */
@@ -44,96 +78,353 @@ public class DataIngestionServiceImpl implements DataIngestionService {
     private RawOrdersDataRepository rawOrdersDataRepository;
 
     /**
-     * DateTimeFormatter for parsing date and timestamp strings from CSV files.
-     * The expected format is "yyyy-MM-dd HH:mm:ss".
+     * Ingestion settings such as the default mode and the streaming chunk size.
      */
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    @Autowired
+    private IngestionProperties ingestionProperties;
+
+    /**
+     * Transaction template used to commit each streaming chunk in its own transaction.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Bulk loader used by the `COPY` ingestion mode.
+     */
+    @Autowired
+    private PostgresCopyWriter postgresCopyWriter;
+
+    /**
+     * Writes raw lines to the `raw_lines` side table when that policy is configured.
+     */
+    @Autowired
+    private RawLineSideTableWriter rawLineSideTableWriter;
+
+    /**
+     * Records the report dates each orders chunk touched, for analytics recomputation.
+     */
+    @Autowired
+    private DirtyReportDates dirtyReportDates;
+
+    /**
+     * Announces committed chunks to analytics processing when the outbox is enabled.
+     */
+    @Autowired
+    private IngestionOutbox ingestionOutbox;
+
+    /**
+     * Pool that parses and persists the byte ranges of an upload in parallel.
+     */
+    @Autowired
+    private ForkJoinPool ingestionParsePool;
+
+    /**
+     * Shared entity manager, used to flush and clear the persistence context after each chunk.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Processes an uploaded items report CSV file using the configured defaults.
+     *
+     * @param file The `MultipartFile` representing the items report CSV.
+     * @return The number of records successfully processed and saved.
+     * @throws IOException If an I/O error occurs during file reading.
+     */
+    @Override
+    public int processItemsReport(MultipartFile file) throws IOException {
+        return (int) processItemsReport(file, new IngestionOptions()).getRowsPersisted();
+    }
 
     /**
      * Processes an uploaded items report CSV file.
      * Reads the file, parses each record, maps it to a `RawItemsData` entity,
-     * and saves all entities to the database in a batch.
+     * and saves the entities in a single batch, in fixed-size JPA chunks, or via `COPY` (optionally merged by invoice).
      *
      * @param file The `MultipartFile` representing the items report CSV.
+     * @param options The per-request ingestion options.
+     * @return The `IngestionReport` with the processed record counts and any chunk errors.
+     * @throws IOException If an I/O error occurs during file reading.
+     */
+    @Override
+    public IngestionReport processItemsReport(MultipartFile file, IngestionOptions options) throws IOException {
+        return process(ReportType.ITEMS, file, options);
+    }
+
+    /**
+     * Processes an uploaded orders report CSV file using the configured defaults.
+     *
+     * @param file The `MultipartFile` representing the orders report CSV.
      * @return The number of records successfully processed and saved.
      * @throws IOException If an I/O error occurs during file reading.
      */
     @Override
-    public int processItemsReport(MultipartFile file) throws IOException {
-        // Use try-with-resources to ensure the BufferedReader is closed automatically.
-        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            // Configure CSVParser to read with headers, ignore header case, and trim whitespace.
-            CSVParser csvParser = new CSVParser(fileReader,
-                    CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim());
-
-            List<RawItemsData> items = new ArrayList<>();
-            // Iterate over each record in the CSV file.
-            for (CSVRecord csvRecord : csvParser) {
-                RawItemsData item = new RawItemsData();
-                // Map CSV record fields to RawItemsData entity attributes.
-                item.setDate(Timestamp.valueOf(LocalDateTime.parse(csvRecord.get("Date"), FORMATTER)));
-                item.setTimestamp(Timestamp.valueOf(LocalDateTime.parse(csvRecord.get("Timestamp"), FORMATTER)));
-                item.setInvoiceNo(csvRecord.get("Invoice No."));
-                item.setItemName(csvRecord.get("Item Name"));
-                item.setQty(Integer.parseInt(csvRecord.get("Qty.")));
-                item.setTax(new BigDecimal(csvRecord.get("Tax")));
-                item.setVariation(csvRecord.get("Variation"));
-                item.setCategory(csvRecord.get("Category"));
-                item.setRawLine(csvRecord.toString()); // Store the original raw line for debugging.
-                items.add(item);
-            }
-            // Save all processed items to the database in a single batch operation.
-            rawItemsDataRepository.saveAll(items);
-            return items.size(); // Return the count of processed records.
-        }
+    public int processOrdersReport(MultipartFile file) throws IOException {
+        return (int) processOrdersReport(file, new IngestionOptions()).getRowsPersisted();
     }
 
     /**
      * Processes an uploaded orders report CSV file.
      * Reads the file, parses each record, maps it to a `RawOrdersData` entity,
-     * and saves all entities to the database in a batch.
+     * and saves the entities in a single batch, in fixed-size JPA chunks, or via `COPY` (optionally merged by invoice).
      *
      * @param file The `MultipartFile` representing the orders report CSV.
-     * @return The number of records successfully processed and saved.
+     * @param options The per-request ingestion options.
+     * @return The `IngestionReport` with the processed record counts and any chunk errors.
      * @throws IOException If an I/O error occurs during file reading.
      */
     @Override
-    public int processOrdersReport(MultipartFile file) throws IOException {
-        // Use try-with-resources to ensure the BufferedReader is closed automatically.
-        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            // Configure CSVParser to read with headers, ignore header case, and trim whitespace.
-            CSVParser csvParser = new CSVParser(fileReader,
-                    CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim());
-
-            List<RawOrdersData> orders = new ArrayList<>();
-            // Iterate over each record in the CSV file.
-            for (CSVRecord csvRecord : csvParser) {
-                RawOrdersData order = new RawOrdersData();
-                // Map CSV record fields to RawOrdersData entity attributes.
-                order.setInvoiceNo(csvRecord.get("Invoice No."));
-                order.setDate(Timestamp.valueOf(LocalDateTime.parse(csvRecord.get("Date"), FORMATTER)));
-                // Assuming Timestamp is optional or can be derived if not present in CSV
-                // For now, setting it to current time if not explicitly in CSV or if format differs
-                // LLD specifies Timestamp, so assuming it's present and in the same format as Date.
-                order.setTimestamp(Timestamp.valueOf(LocalDateTime.parse(csvRecord.get("Timestamp"), FORMATTER)));
-                order.setPaymentType(csvRecord.get("Payment Type"));
-                order.setOrderType(csvRecord.get("Order Type"));
-                order.setArea(csvRecord.get("Area"));
-                order.setSubOrderType(csvRecord.get("Sub Order Type"));
-                order.setPhone(csvRecord.get("Phone"));
-                order.setName(csvRecord.get("Name"));
-                order.setMyAmount(new BigDecimal(csvRecord.get("My Amount (₹)")));
-                order.setDiscount(new BigDecimal(csvRecord.get("Discount (₹)")));
-                order.setNetSales(new BigDecimal(csvRecord.get("Net Sales (₹)(M.A - D)")));
-                order.setContainerCharge(new BigDecimal(csvRecord.get("Container Charge")));
-                order.setTotalTax(new BigDecimal(csvRecord.get("Total Tax (₹)")));
-                order.setTotalAmount(new BigDecimal(csvRecord.get("Total (₹)")));
-                order.setRawLine(csvRecord.toString()); // Store the original raw line for debugging.
-                orders.add(order);
+    public IngestionReport processOrdersReport(MultipartFile file, IngestionOptions options) throws IOException {
+        return process(ReportType.ORDERS, file, options);
+    }
+
+    /**
+     * Processes a report that has already been stored on local disk.
+     *
+     * @param reportType The kind of report in the file.
+     * @param file The CSV file to ingest, optionally gzip or zstd compressed; it is not deleted.
+     * @param options The per-request ingestion options.
+     * @param report Receives the processed record and byte counts and any range errors.
+     * @throws IOException If an I/O error occurs during file reading.
+     */
+    @Override
+    public void processReport(ReportType reportType, Path file, IngestionOptions options, IngestionReport report) throws IOException {
+        IngestionMode mode = resolveMode(options);
+        CompressionFormat compression = detectCompression(null, () -> Files.newInputStream(file));
+        if (compression == CompressionFormat.NONE && resolveParallel(options, mode)) {
+            ingestParallel(pipeline(reportType), file, mode, report);
+        } else {
+            ingestStream(reportType, Files.newInputStream(file), compression, mode, report);
+        }
+    }
+
+    /**
+     * Resolves the effective options and runs the sequential or parallel pipeline for an upload.
+     * Parallel parsing needs random access, so the upload is first spooled to a temporary file.
+     * Compressed uploads cannot be split into byte ranges and are always decompressed and parsed
+     * as a single stream, so the inflated CSV is never written to disk.
+     */
+    private IngestionReport process(ReportType type, MultipartFile file, IngestionOptions options) throws IOException {
+        IngestionReport report = new IngestionReport();
+        IngestionMode mode = resolveMode(options);
+        CompressionFormat compression = detectCompression(file.getContentType(), file);
+        if (compression == CompressionFormat.NONE && resolveParallel(options, mode)) {
+            Path spool = Files.createTempFile("ingestion-", ".csv");
+            try {
+                file.transferTo(spool);
+                processReport(type, spool, options, report);
+            } finally {
+                Files.deleteIfExists(spool);
             }
-            // Save all processed orders to the database in a single batch operation.
-            rawOrdersDataRepository.saveAll(orders);
-            return orders.size(); // Return the count of processed records.
+        } else {
+            ingestStream(type, file.getInputStream(), compression, mode, report);
+        }
+        return report;
+    }
+
+    /**
+     * Parses and persists an upload read as a single stream.
+     * Progress is counted on the upload as stored, before decompression, so it matches the upload size.
+     */
+    private void ingestStream(ReportType type, InputStream upload, CompressionFormat compression, IngestionMode mode,
+                              IngestionReport report) throws IOException {
+        // Use try-with-resources to ensure the tokenizer and the upload stream are closed automatically.
+        try (InputStream counted = new ProgressInputStream(upload, report);
+             PosCsvTokenizer tokenizer = new PosCsvTokenizer(compression.decompress(counted))) {
+            ingest(pipeline(type), tokenizer, mode, report);
+        }
+    }
+
+    /**
+     * Determines the compression of an upload from its declared content type, or else from its magic bytes.
+     */
+    private CompressionFormat detectCompression(String contentType, InputStreamSource source) throws IOException {
+        CompressionFormat declared = CompressionFormat.fromContentType(contentType);
+        if (declared != CompressionFormat.NONE) {
+            return declared;
+        }
+        try (InputStream in = source.getInputStream()) {
+            return CompressionFormat.fromMagicBytes(in.readNBytes(CompressionFormat.MAGIC_LENGTH));
+        }
+    }
+
+    /**
+     * Returns the requested mode, or the configured default.
+     */
+    private IngestionMode resolveMode(IngestionOptions options) {
+        return options.getMode() != null ? options.getMode() : ingestionProperties.getMode();
+    }
+
+    /**
+     * Returns whether the upload is processed in parallel; `BATCH` mode is always sequential.
+     */
+    private boolean resolveParallel(IngestionOptions options, IngestionMode mode) {
+        boolean parallel = options.getParallel() != null ? options.getParallel() : ingestionProperties.isParallel();
+        return parallel && mode != IngestionMode.BATCH;
+    }
+
+    /**
+     * Maps every record of the tokenizer to an entity and persists it according to the given mode.
+     *
+     * @param pipeline The mapper and writers for the report type.
+     * @param tokenizer The tokenizer positioned before the first data record.
+     * @param mode The `IngestionMode` used to persist the parsed rows.
+     * @param report Receives the parsed and persisted record counts.
+     */
+    private <T extends RawDataRecord> void ingest(ReportPipeline<T> pipeline, PosCsvTokenizer tokenizer, IngestionMode mode,
+                                                  IngestionReport report) throws IOException {
+        RawLinePolicy rawLinePolicy = ingestionProperties.getRawLinePolicy();
+        CsvRowMapper<T> mapper = pipeline.mapperFactory.apply(tokenizer, rawLinePolicy);
+        ToIntFunction<List<T>> chunkWriter = switch (mode) {
+            case BATCH -> entities -> {
+                // Save all processed records to the database in a single batch operation.
+                pipeline.repository.saveAll(entities);
+                return entities.size();
+            };
+            case COPY -> pipeline.copyWriter;
+            case UPSERT -> pipeline.upsertWriter;
+            default -> chunk -> persistChunk(chunk, pipeline.repository);
+        };
+        if (rawLinePolicy == RawLinePolicy.SIDE_TABLE) {
+            chunkWriter = rawLineSideTableWriter.wrap(pipeline.table, chunkWriter);
+        }
+        if (pipeline.reportDate != null) {
+            chunkWriter = dirtyReportDates.wrap(chunkWriter, pipeline.table, pipeline.reportDate);
+        }
+        if (ingestionProperties.isOutboxEnabled()) {
+            chunkWriter = ingestionOutbox.wrap(pipeline.table, chunkWriter);
+        }
+
+        if (mode == IngestionMode.BATCH) {
+            List<T> entities = new ArrayList<>();
+            while (tokenizer.nextRecord()) {
+                entities.add(mapper.map(tokenizer));
+            }
+            report.addRowsParsed(entities.size());
+            report.addRowsPersisted(chunkWriter.applyAsInt(entities));
+            return;
+        }
+
+        int chunkSize = Math.max(1, ingestionProperties.getChunkSize());
+        List<T> chunk = new ArrayList<>(chunkSize);
+        while (tokenizer.nextRecord()) {
+            chunk.add(mapper.map(tokenizer));
+            if (chunk.size() == chunkSize) {
+                report.addRowsParsed(chunk.size());
+                report.addRowsPersisted(chunkWriter.applyAsInt(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            report.addRowsParsed(chunk.size());
+            report.addRowsPersisted(chunkWriter.applyAsInt(chunk));
+        }
+    }
+
+    /**
+     * Splits a spooled upload into byte ranges on record boundaries and ingests the ranges
+     * concurrently on the parse pool. A failing range is recorded in the report and does
+     * not stop the other ranges; chunks it had already committed stay committed.
+     */
+    private <T extends RawDataRecord> void ingestParallel(ReportPipeline<T> pipeline, Path spool, IngestionMode mode,
+                                    IngestionReport report) throws IOException {
+        try (FileChannel channel = FileChannel.open(spool, StandardOpenOption.READ)) {
+            long headerEnd = CsvRangeSplitter.findHeaderEnd(channel);
+            List<String> header;
+            report.addBytesRead(headerEnd);
+            try (PosCsvTokenizer headerTokenizer = new PosCsvTokenizer(new FileRangeInputStream(channel, 0, headerEnd))) {
+                header = headerTokenizer.getHeader();
+                // Resolve the columns once up front so a missing column fails the request instead of every range.
+                pipeline.mapperFactory.apply(headerTokenizer, ingestionProperties.getRawLinePolicy());
+            }
+
+            long size = channel.size();
+            long targetRangeSize = Math.max(MIN_RANGE_SIZE,
+                    (size - headerEnd) / ((long) ingestionParsePool.getParallelism() * RANGES_PER_THREAD));
+            long[] boundaries = CsvRangeSplitter.split(channel, headerEnd, size, targetRangeSize);
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                int rangeIndex = i;
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                tasks.add(ingestionParsePool.submit(() -> ingestRange(pipeline, channel, header, rangeIndex, start, end, mode, report)));
+            }
+            tasks.forEach(ForkJoinTask::join);
+        }
+    }
+
+    /**
+     * Ingests one byte range of a spooled upload, recording any failure against the range.
+     */
+    private <T extends RawDataRecord> void ingestRange(ReportPipeline<T> pipeline, FileChannel channel, List<String> header, int rangeIndex,
+                                 long start, long end, IngestionMode mode, IngestionReport report) {
+        PosCsvTokenizer tokenizer = null;
+        try {
+            tokenizer = new PosCsvTokenizer(new ProgressInputStream(new FileRangeInputStream(channel, start, end), report),
+                    header, RANGE_BUFFER_SIZE);
+            ingest(pipeline, tokenizer, mode, report);
+        } catch (IOException | RuntimeException e) {
+            report.addError(String.format("Range %d (bytes %d-%d), record %d of the range: %s",
+                    rangeIndex, start, end, tokenizer == null ? 0 : tokenizer.getRecordNumber(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Saves one chunk of entities in its own transaction, then flushes and clears
+     * the persistence context so the saved entities can be garbage collected.
+     *
+     * @param chunk The entities to save.
+     * @param repository The repository the entities are saved with.
+     * @return The number of entities saved.
+     */
+    private <T> int persistChunk(List<T> chunk, JpaRepository<T, Long> repository) {
+        Integer saved = transactionTemplate.execute(status -> {
+            repository.saveAll(chunk);
+            entityManager.flush();
+            entityManager.clear();
+            return chunk.size();
+        });
+        return saved == null ? 0 : saved;
+    }
+
+    /**
+     * Returns the mapper and writers for a report type.
+     */
+    private ReportPipeline<?> pipeline(ReportType type) {
+        if (type == ReportType.ORDERS) {
+            return new ReportPipeline<>("raw_orders_data", RawOrdersRowMapper::new, rawOrdersDataRepository,
+                    postgresCopyWriter::writeOrders, postgresCopyWriter::upsertOrders, RawOrdersData::getDate);
+        }
+        // Items have no natural key, so UPSERT loads them like COPY. They do not feed the KPIs,
+        // so their dates are not recorded as dirty.
+        return new ReportPipeline<>("raw_items_data", RawItemsRowMapper::new, rawItemsDataRepository,
+                postgresCopyWriter::writeItems, postgresCopyWriter::writeItems, null);
+    }
+
+    /**
+     * Bundles what the pipeline needs for one report type.
+     *
+     * @param <T> The entity type of the report rows.
+     */
+    private static final class ReportPipeline<T extends RawDataRecord> {
+        private final String table;
+        private final BiFunction<PosCsvTokenizer, RawLinePolicy, CsvRowMapper<T>> mapperFactory;
+        private final JpaRepository<T, Long> repository;
+        private final ToIntFunction<List<T>> copyWriter;
+        private final ToIntFunction<List<T>> upsertWriter;
+        private final Function<T, Timestamp> reportDate;
+
+        private ReportPipeline(String table, BiFunction<PosCsvTokenizer, RawLinePolicy, CsvRowMapper<T>> mapperFactory,
+                               JpaRepository<T, Long> repository, ToIntFunction<List<T>> copyWriter,
+                               ToIntFunction<List<T>> upsertWriter, Function<T, Timestamp> reportDate) {
+            this.table = table;
+            this.mapperFactory = mapperFactory;
+            this.repository = repository;
+            this.copyWriter = copyWriter;
+            this.upsertWriter = upsertWriter;
+            this.reportDate = reportDate;
         }
     }
 }
@@ -0,0 +1,107 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.model.RawDataRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Records in `raw_data_schema.dirty_report_dates` the report dates that an incremental analytics run cannot
+ * pick up by adding the orders above its watermark, so it recomputes exactly those days (and their weeks
+ * and months) instead of rebuilding every KPI.
+ * <p>
+ * Two kinds of rows need a recompute. Rows changed by `UPSERT` were already aggregated with their old
+ * values; `PostgresCopyWriter` logs their old and new dates. Rows committed out of order are the other
+ * kind: ids are drawn from the sequence before a chunk commits, so a chunk can commit after a run read a
+ * larger id and moved the watermark past the chunk's rows, which no later run then reads. A chunk therefore
+ * logs only the dates of the rows it commits below the largest id committed by others, and logs nothing
+ * for the common in-order chunk. The check and the commit happen under a shared advisory lock that the
+ * processing service takes exclusively to read the largest id, so no run reads it between the two.
+ * <p>
+ * The table is an append-only log without a unique key: concurrent chunks touching the same date never
+ * wait on each other, and the processing service drains it with one `DELETE ... RETURNING`.
+ */
+@Component
+public class DirtyReportDates {
+
+    /**
+     * The dirty report dates table.
+     */
+    public static final String TABLE = "raw_data_schema.dirty_report_dates";
+
+    /**
+     * Appends one dirty report date.
+     */
+    private static final String MARK_SQL = "INSERT INTO " + TABLE + " (report_date) VALUES (?)";
+
+    /**
+     * Holds the commit lock in shared mode until the chunk's transaction ends; the processing service takes
+     * it exclusively while it reads the largest order id.
+     */
+    private static final String COMMIT_LOCK_SQL = "SELECT pg_advisory_xact_lock_shared(hashtext('raw_orders_commit'))";
+
+    /**
+     * Runs the batched inserts.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Commits each chunk and its dirty dates together.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Wraps a chunk writer so the report dates of the rows it commits out of order are recorded in the same
+     * transaction. Rows the writer left without an id (e.g. unchanged rows skipped by `UPSERT`) changed
+     * nothing and are not recorded.
+     *
+     * @param chunkWriter The writer that persists the chunk and sets the entity ids.
+     * @param table The table the writer persists to, in `raw_data_schema`.
+     * @param reportDate Returns the report date of a row, or `null`.
+     * @param <T> The entity type of the chunk.
+     * @return The wrapping chunk writer.
+     */
+    public <T extends RawDataRecord> ToIntFunction<List<T>> wrap(ToIntFunction<List<T>> chunkWriter, String table,
+                                                                 Function<T, Timestamp> reportDate) {
+        String lateBoundSql = "SELECT COALESCE(MAX(id), 0) FROM raw_data_schema." + table + " WHERE id <> ALL(?)";
+        return chunk -> {
+            Integer written = transactionTemplate.execute(status -> {
+                int rows = chunkWriter.applyAsInt(chunk);
+                Long[] ids = chunk.stream().map(RawDataRecord::getId).filter(Objects::nonNull).toArray(Long[]::new);
+                if (ids.length == 0) {
+                    return rows;
+                }
+                jdbcTemplate.execute(COMMIT_LOCK_SQL);
+                // A run may already have read any id committed by others; our rows below it may lie under its watermark.
+                Long lateBound = jdbcTemplate.query(lateBoundSql,
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)),
+                        rs -> rs.next() ? rs.getLong(1) : 0L);
+                Set<Date> dates = new TreeSet<>();
+                for (T row : chunk) {
+                    Timestamp date = reportDate.apply(row);
+                    if (row.getId() != null && row.getId() < lateBound && date != null) {
+                        dates.add(Date.valueOf(date.toLocalDateTime().toLocalDate()));
+                    }
+                }
+                List<Object[]> batch = new ArrayList<>(dates.size());
+                dates.forEach(date -> batch.add(new Object[] {date}));
+                jdbcTemplate.batchUpdate(MARK_SQL, batch);
+                return rows;
+            });
+            return written == null ? 0 : written;
+        };
+    }
+}
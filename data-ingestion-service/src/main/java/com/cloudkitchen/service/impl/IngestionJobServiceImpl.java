@@ -0,0 +1,146 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.config.IngestionProperties;
+import com.cloudkitchen.service.DataIngestionService;
+import com.cloudkitchen.service.IngestionJob;
+import com.cloudkitchen.service.IngestionJobService;
+import com.cloudkitchen.service.IngestionJobStatus;
+import com.cloudkitchen.service.IngestionOptions;
+import com.cloudkitchen.service.ReportType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Implementation of the `IngestionJobService` interface.
+ * Jobs are kept in an in-memory registry, so they are only visible on the instance that
+ * accepted the upload and are lost on restart; rows committed before a restart stay committed.
+ */
+@Service
+public class IngestionJobServiceImpl implements IngestionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobServiceImpl.class);
+
+    /**
+     * Service that runs the actual parse-and-persist pipeline for a spooled file.
+     */
+    @Autowired
+    private DataIngestionService dataIngestionService;
+
+    /**
+     * Ingestion settings such as the spool directory and the job retention.
+     */
+    @Autowired
+    private IngestionProperties ingestionProperties;
+
+    /**
+     * Bounded executor the jobs run on.
+     */
+    @Autowired
+    private ThreadPoolExecutor ingestionJobExecutor;
+
+    /**
+     * Queued, running and recently finished jobs by id.
+     */
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Spools an upload into the spool directory and queues it on the job executor.
+     * The spooled file is removed again if the job cannot be queued.
+     *
+     * @param reportType The kind of report in the upload.
+     * @param file The uploaded CSV file.
+     * @param options The per-request ingestion options.
+     * @return The queued job.
+     * @throws IOException If the upload cannot be spooled.
+     */
+    @Override
+    public IngestionJob submit(ReportType reportType, MultipartFile file, IngestionOptions options) throws IOException {
+        evictExpiredJobs();
+        Path spoolDir = spoolDirectory();
+        Files.createDirectories(spoolDir);
+        Path spool = Files.createTempFile(spoolDir, "job-", ".csv");
+        try {
+            file.transferTo(spool);
+            IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), reportType,
+                    file.getOriginalFilename(), Files.size(spool));
+            jobs.put(job.getId(), job);
+            try {
+                ingestionJobExecutor.execute(() -> run(job, spool, options));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getId());
+                throw e;
+            }
+            return job;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up a job in the in-memory registry.
+     *
+     * @param id The job id.
+     * @return The job, or empty if it is unknown or has expired.
+     */
+    @Override
+    public Optional<IngestionJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Runs a job on a job thread and always removes its spooled upload afterwards.
+     */
+    private void run(IngestionJob job, Path spool, IngestionOptions options) {
+        job.markRunning();
+        try {
+            dataIngestionService.processReport(job.getReportType(), spool, options, job.getReport());
+            job.markFinished(job.getReport().hasErrors()
+                    ? IngestionJobStatus.COMPLETED_WITH_ERRORS
+                    : IngestionJobStatus.COMPLETED);
+        } catch (IOException | RuntimeException e) {
+            log.error("Ingestion job {} failed", job.getId(), e);
+            job.getReport().addError(e.getMessage());
+            job.markFinished(IngestionJobStatus.FAILED);
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled upload {}", spool, e);
+            }
+        }
+    }
+
+    /**
+     * Drops finished jobs older than `ingestion.job-retention` so the registry does not grow without bound.
+     */
+    private void evictExpiredJobs() {
+        Instant cutoff = Instant.now().minus(ingestionProperties.getJobRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    /**
+     * Returns the configured spool directory, or a folder under `java.io.tmpdir`.
+     */
+    private Path spoolDirectory() {
+        String spoolDir = ingestionProperties.getSpoolDir();
+        return spoolDir == null || spoolDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "ingestion-spool")
+                : Paths.get(spoolDir);
+    }
+}
@@ -0,0 +1,64 @@
+package com.cloudkitchen.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Transactional outbox announcing ingested chunks to analytics processing. Each chunk that wrote rows
+ * appends a row to `raw_data_schema.ingestion_outbox` and sends a `NOTIFY` on {@link #CHANNEL} in the
+ * chunk's own transaction: PostgreSQL delivers the notification only when the chunk commits, so a
+ * listener never hears of rows it cannot see yet, and the outbox row keeps the event if no listener
+ * was connected. The processing service deletes outbox rows once it has processed them.
+ */
+@Component
+public class IngestionOutbox {
+
+    /**
+     * The notification channel; the payload is the name of the raw table the chunk was written to.
+     */
+    public static final String CHANNEL = "raw_data_changed";
+
+    /**
+     * Appends one outbox row.
+     */
+    private static final String INSERT_SQL = "INSERT INTO raw_data_schema.ingestion_outbox (source_table, row_count) VALUES (?, ?)";
+
+    /**
+     * Runs the outbox insert and the notification.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Commits each chunk with its outbox row and notification.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Wraps a chunk writer so every chunk that wrote rows is announced in the same transaction.
+     *
+     * @param sourceTable The raw table the chunk is written to.
+     * @param chunkWriter The writer that persists the chunk.
+     * @param <T> The entity type of the chunk.
+     * @return The wrapping chunk writer.
+     */
+    public <T> ToIntFunction<List<T>> wrap(String sourceTable, ToIntFunction<List<T>> chunkWriter) {
+        return chunk -> {
+            Integer written = transactionTemplate.execute(status -> {
+                int rows = chunkWriter.applyAsInt(chunk);
+                if (rows > 0) {
+                    jdbcTemplate.update(INSERT_SQL, sourceTable, rows);
+                    jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL, sourceTable);
+                }
+                return rows;
+            });
+            return written == null ? 0 : written;
+        };
+    }
+}
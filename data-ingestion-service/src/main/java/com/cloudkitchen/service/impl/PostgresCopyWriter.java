@@ -0,0 +1,419 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.model.RawDataRecord;
+import com.cloudkitchen.model.RawItemsData;
+import com.cloudkitchen.model.RawOrdersData;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk loader that streams parsed rows into the raw data tables using the
+ * PostgreSQL `COPY ... FROM STDIN` protocol instead of one `INSERT` per row.
+ * Rows are encoded in COPY's CSV text format and pushed to the server in
+ * buffered blocks, so no statement is prepared or executed per row.
+ */
+@Component
+public class PostgresCopyWriter {
+
+    /**
+     * Number of ids covered by one value of the raw table sequences; matches `allocationSize` of the raw entities.
+     */
+    private static final int ID_BLOCK_SIZE = 500;
+
+    /**
+     * Columns of `raw_orders_data` written by the loaders, in COPY field order.
+     */
+    private static final String ORDERS_COLUMNS = "id, invoice_no, date, timestamp, payment_type, order_type, area, "
+            + "sub_order_type, phone, name, address, my_amount, discount, net_sales, container_charge, total_tax, "
+            + "round_off, total_amount, online_tax_calculated, gst_paid_by_ecommerce, amount_cgst, cgst, amount_sgst, "
+            + "sgst, raw_line, raw_line_compressed, row_hash";
+
+    /**
+     * COPY statement for the `raw_orders_data` table.
+     */
+    private static final String ORDERS_COPY_SQL = "COPY raw_data_schema.raw_orders_data (" + ORDERS_COLUMNS
+            + ") FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * Session-local staging table for `UPSERT` loads. It is emptied at the end of every transaction,
+     * so a pooled connection can reuse it without leaking rows between chunks.
+     */
+    private static final String ORDERS_STAGING_DDL = "CREATE TEMP TABLE IF NOT EXISTS raw_orders_upsert_staging "
+            + "ON COMMIT DELETE ROWS AS SELECT " + ORDERS_COLUMNS + " FROM raw_data_schema.raw_orders_data WITH NO DATA";
+
+    /**
+     * COPY statement for the orders staging table.
+     */
+    private static final String ORDERS_STAGING_COPY_SQL = "COPY pg_temp.raw_orders_upsert_staging (" + ORDERS_COLUMNS
+            + ") FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * Serializes `UPSERT` merges, so two chunks carrying the same new invoice cannot both find it
+     * missing and insert it twice. Held until the merging transaction ends.
+     */
+    private static final String ORDERS_UPSERT_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('raw_orders_upsert'))";
+
+    /**
+     * Updates the stored orders whose invoice was staged with different content. Rows whose hash matches
+     * are skipped by the `WHERE` clause, so they cost an index probe but no write. Updated rows keep their
+     * id; if other modes stored an invoice more than once, every copy is updated.
+     */
+    private static final String ORDERS_UPDATE_SQL = "UPDATE raw_data_schema.raw_orders_data o SET "
+            + "date = s.date, timestamp = s.timestamp, payment_type = s.payment_type, "
+            + "order_type = s.order_type, area = s.area, sub_order_type = s.sub_order_type, "
+            + "phone = s.phone, name = s.name, address = s.address, "
+            + "my_amount = s.my_amount, discount = s.discount, net_sales = s.net_sales, "
+            + "container_charge = s.container_charge, total_tax = s.total_tax, "
+            + "round_off = s.round_off, total_amount = s.total_amount, "
+            + "online_tax_calculated = s.online_tax_calculated, "
+            + "gst_paid_by_ecommerce = s.gst_paid_by_ecommerce, amount_cgst = s.amount_cgst, "
+            + "cgst = s.cgst, amount_sgst = s.amount_sgst, sgst = s.sgst, "
+            + "raw_line = s.raw_line, raw_line_compressed = s.raw_line_compressed, row_hash = s.row_hash "
+            + "FROM pg_temp.raw_orders_upsert_staging s "
+            + "WHERE o.invoice_no = s.invoice_no AND o.row_hash IS DISTINCT FROM s.row_hash "
+            + "RETURNING o.id, o.invoice_no";
+
+    /**
+     * Inserts the staged orders whose invoice is not stored yet, with the ids they were staged with.
+     */
+    private static final String ORDERS_INSERT_NEW_SQL = "INSERT INTO raw_data_schema.raw_orders_data (" + ORDERS_COLUMNS + ") "
+            + "SELECT " + ORDERS_COLUMNS + " FROM pg_temp.raw_orders_upsert_staging s "
+            + "WHERE s.invoice_no IS NULL OR NOT EXISTS (SELECT 1 FROM raw_data_schema.raw_orders_data o "
+            + "WHERE o.invoice_no = s.invoice_no) "
+            + "RETURNING id, invoice_no";
+
+    /**
+     * Records the current and the new report dates of the stored orders the staged orders are about to
+     * change. Both days were aggregated with the old values, so neither can be fixed by adding the order,
+     * and a correction that moves an order to another date also recomputes the date it leaves.
+     */
+    private static final String ORDERS_MARK_REPLACED_DATES_SQL = "INSERT INTO " + DirtyReportDates.TABLE + " (report_date) "
+            + "SELECT DISTINCT CAST(d.date AS date) FROM raw_data_schema.raw_orders_data o "
+            + "JOIN pg_temp.raw_orders_upsert_staging s ON s.invoice_no = o.invoice_no "
+            + "CROSS JOIN LATERAL (VALUES (o.date), (s.date)) AS d(date) "
+            + "WHERE d.date IS NOT NULL AND o.row_hash IS DISTINCT FROM s.row_hash";
+
+    /**
+     * COPY statement for the `raw_items_data` table.
+     */
+    private static final String ITEMS_COPY_SQL = "COPY raw_data_schema.raw_items_data (id, date, timestamp, invoice_no, "
+            + "item_name, qty, tax, variation, category, raw_line, raw_line_compressed) FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * Sequence the `raw_orders_data` ids are drawn from.
+     */
+    private static final String ORDERS_SEQUENCE = "raw_data_schema.raw_orders_data_seq";
+
+    /**
+     * Sequence the `raw_items_data` ids are drawn from.
+     */
+    private static final String ITEMS_SEQUENCE = "raw_data_schema.raw_items_data_seq";
+
+    /**
+     * Size of the encoding buffer; it is flushed to the server whenever it grows past this many characters.
+     */
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The data source the COPY connections are taken from.
+     */
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Runs the staging DDL and the merge statement on the same connection as the COPY.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Binds one connection to each upsert so the staging table is visible to the merge.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Copies a chunk of orders into `raw_orders_data`.
+     * Ids are drawn from the table's sequence up front and set on the entities.
+     * Joins the surrounding Spring transaction if there is one.
+     *
+     * @param orders The orders to copy.
+     * @return The number of rows copied, as reported by the server.
+     */
+    public int writeOrders(List<RawOrdersData> orders) {
+        assignIds(ORDERS_SEQUENCE, orders);
+        return copy(ORDERS_COPY_SQL, orders.size(), (row, index) -> encodeOrder(row, orders.get(index)));
+    }
+
+    /**
+     * Merges a chunk of orders into `raw_orders_data`, keyed on `invoice_no`.
+     * The chunk is copied into a staging table and merged with an `UPDATE` of the stored invoices and an
+     * `INSERT` of the new ones in a single transaction, under an advisory lock shared by all merges; no
+     * unique index is needed, so the other modes can still store repeated invoices. If an invoice occurs
+     * several times in the chunk, its last occurrence wins.
+     * Afterwards only the orders that were inserted or updated carry an id (the stored row's id);
+     * skipped and unchanged orders have a `null` id. The previous and new report dates of updated orders
+     * are recorded as dirty in the same transaction.
+     *
+     * @param orders The orders to merge.
+     * @return The number of rows inserted or updated; unchanged rows are not counted.
+     */
+    public int upsertOrders(List<RawOrdersData> orders) {
+        List<RawOrdersData> unique = lastPerInvoice(orders);
+        orders.forEach(order -> order.setId(null));
+        assignIds(ORDERS_SEQUENCE, unique);
+        Map<Long, RawOrdersData> byStagedId = new HashMap<>();
+        Map<String, RawOrdersData> byInvoice = new HashMap<>();
+        for (RawOrdersData order : unique) {
+            byStagedId.put(order.getId(), order);
+            if (order.getInvoiceNo() != null) {
+                byInvoice.put(order.getInvoiceNo(), order);
+            }
+        }
+        Integer written = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(ORDERS_STAGING_DDL);
+            copy(ORDERS_STAGING_COPY_SQL, unique.size(), (row, index) -> encodeOrder(row, unique.get(index)));
+            unique.forEach(order -> order.setId(null));
+            jdbcTemplate.execute(ORDERS_UPSERT_LOCK_SQL);
+            jdbcTemplate.update(ORDERS_MARK_REPLACED_DATES_SQL);
+            int[] rows = {0};
+            RowCallbackHandler collectIds = rs -> {
+                long id = rs.getLong("id");
+                String invoiceNo = rs.getString("invoice_no");
+                // Rows without an invoice are never matched, so they keep the id they were staged with.
+                RawOrdersData order = invoiceNo != null ? byInvoice.get(invoiceNo) : byStagedId.get(id);
+                order.setId(id);
+                rows[0]++;
+            };
+            // Update first, so the insert's existence check already sees every stored invoice.
+            jdbcTemplate.query(ORDERS_UPDATE_SQL, collectIds);
+            jdbcTemplate.query(ORDERS_INSERT_NEW_SQL, collectIds);
+            return rows[0];
+        });
+        return written == null ? 0 : written;
+    }
+
+    /**
+     * Copies a chunk of items into `raw_items_data`.
+     * Ids are drawn from the table's sequence up front and set on the entities.
+     * Joins the surrounding Spring transaction if there is one.
+     *
+     * @param items The items to copy.
+     * @return The number of rows copied, as reported by the server.
+     */
+    public int writeItems(List<RawItemsData> items) {
+        assignIds(ITEMS_SEQUENCE, items);
+        return copy(ITEMS_COPY_SQL, items.size(), (row, index) -> {
+            RawItemsData item = items.get(index);
+            appendValue(row, item.getId()).append(',');
+            appendValue(row, item.getDate()).append(',');
+            appendValue(row, item.getTimestamp()).append(',');
+            appendText(row, item.getInvoiceNo()).append(',');
+            appendText(row, item.getItemName()).append(',');
+            appendValue(row, item.getQty()).append(',');
+            appendValue(row, item.getTax()).append(',');
+            appendText(row, item.getVariation()).append(',');
+            appendText(row, item.getCategory()).append(',');
+            appendText(row, item.getRawLine()).append(',');
+            appendBytes(row, item.getRawLineCompressed());
+        });
+    }
+
+    /**
+     * Appends the CSV encoding of one order, in `ORDERS_COLUMNS` order.
+     */
+    private static void encodeOrder(StringBuilder row, RawOrdersData order) {
+        appendValue(row, order.getId()).append(',');
+        appendText(row, order.getInvoiceNo()).append(',');
+        appendValue(row, order.getDate()).append(',');
+        appendValue(row, order.getTimestamp()).append(',');
+        appendText(row, order.getPaymentType()).append(',');
+        appendText(row, order.getOrderType()).append(',');
+        appendText(row, order.getArea()).append(',');
+        appendText(row, order.getSubOrderType()).append(',');
+        appendText(row, order.getPhone()).append(',');
+        appendText(row, order.getName()).append(',');
+        appendText(row, order.getAddress()).append(',');
+        appendValue(row, order.getMyAmount()).append(',');
+        appendValue(row, order.getDiscount()).append(',');
+        appendValue(row, order.getNetSales()).append(',');
+        appendValue(row, order.getContainerCharge()).append(',');
+        appendValue(row, order.getTotalTax()).append(',');
+        appendValue(row, order.getRoundOff()).append(',');
+        appendValue(row, order.getTotalAmount()).append(',');
+        appendValue(row, order.getOnlineTaxCalculated()).append(',');
+        appendValue(row, order.getGstPaidByEcommerce()).append(',');
+        appendValue(row, order.getAmountCgst()).append(',');
+        appendValue(row, order.getCgst()).append(',');
+        appendValue(row, order.getAmountSgst()).append(',');
+        appendValue(row, order.getSgst()).append(',');
+        appendText(row, order.getRawLine()).append(',');
+        appendBytes(row, order.getRawLineCompressed()).append(',');
+        appendValue(row, order.getRowHash());
+    }
+
+    /**
+     * Sets sequence ids on the rows that have none. Each sequence value `v` reserves the block
+     * `(v - ID_BLOCK_SIZE, v]`, the same block Hibernate's pooled optimizer uses, so ids handed
+     * out here never collide with ids Hibernate hands out for JPA inserts.
+     */
+    private void assignIds(String sequence, List<? extends RawDataRecord> rows) {
+        int missing = (int) rows.stream().filter(row -> row.getId() == null).count();
+        int next = 0;
+        while (missing > 0) {
+            int blocks = (missing + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+            List<Long> blockEnds = jdbcTemplate.queryForList(
+                    "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)", Long.class, blocks);
+            for (long blockEnd : blockEnds) {
+                // The very first block of a fresh sequence is clamped so ids stay positive.
+                for (long id = Math.max(1, blockEnd - ID_BLOCK_SIZE + 1); id <= blockEnd && missing > 0; id++) {
+                    while (rows.get(next).getId() != null) {
+                        next++;
+                    }
+                    rows.get(next).setId(id);
+                    missing--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps only the last order per invoice number, since an `UPDATE ... FROM` matching a stored row
+     * to several staged rows would apply an arbitrary one. Orders without an invoice number are all kept.
+     */
+    private static List<RawOrdersData> lastPerInvoice(List<RawOrdersData> orders) {
+        Map<String, RawOrdersData> byInvoice = new LinkedHashMap<>();
+        List<RawOrdersData> unique = new ArrayList<>(orders.size());
+        for (RawOrdersData order : orders) {
+            if (order.getInvoiceNo() == null) {
+                unique.add(order);
+            } else {
+                byInvoice.put(order.getInvoiceNo(), order);
+            }
+        }
+        unique.addAll(byInvoice.values());
+        return unique;
+    }
+
+    /**
+     * Runs a single COPY operation, encoding rows into a buffer and flushing it to the server in blocks.
+     *
+     * @param sql The COPY statement.
+     * @param rowCount The number of rows to encode.
+     * @param encoder Appends the CSV encoding of the row at the given index (without line terminator).
+     * @return The number of rows copied, as reported by the server.
+     */
+    private int copy(String sql, int rowCount, RowEncoder encoder) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        CopyIn copyIn = null;
+        try {
+            copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 1024);
+            for (int i = 0; i < rowCount; i++) {
+                encoder.encode(buffer, i);
+                buffer.append('\n');
+                if (buffer.length() >= FLUSH_THRESHOLD) {
+                    flush(copyIn, buffer);
+                }
+            }
+            flush(copyIn, buffer);
+            return (int) copyIn.endCopy();
+        } catch (SQLException e) {
+            cancelQuietly(copyIn);
+            throw new DataAccessResourceFailureException("COPY into raw data table failed: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Sends the buffered rows to the server and resets the buffer.
+     */
+    private static void flush(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    /**
+     * Aborts an in-progress COPY so the connection can be returned to the pool in a usable state.
+     */
+    private static void cancelQuietly(CopyIn copyIn) {
+        if (copyIn != null && copyIn.isActive()) {
+            try {
+                copyIn.cancelCopy();
+            } catch (SQLException ignored) {
+                // The original failure is more useful than the cancellation error.
+            }
+        }
+    }
+
+    /**
+     * Appends a text value as a quoted CSV field, or nothing for `null` (which COPY reads as SQL NULL).
+     */
+    private static StringBuilder appendText(StringBuilder row, String value) {
+        if (value == null) {
+            return row;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        return row.append('"');
+    }
+
+    /**
+     * Appends a non-text value (number or timestamp) unquoted, or nothing for `null`.
+     */
+    private static StringBuilder appendValue(StringBuilder row, Object value) {
+        return value == null ? row : row.append(value);
+    }
+
+    /**
+     * Appends binary data in bytea hex format (`\x...`), or nothing for `null`.
+     */
+    private static StringBuilder appendBytes(StringBuilder row, byte[] value) {
+        if (value == null) {
+            return row;
+        }
+        row.append("\\x");
+        for (byte b : value) {
+            row.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+        }
+        return row;
+    }
+
+    /**
+     * Encodes one row of a COPY payload.
+     */
+    @FunctionalInterface
+    private interface RowEncoder {
+        void encode(StringBuilder row, int index);
+    }
+}
@@ -0,0 +1,46 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.service.IngestionReport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that adds every byte it reads to the `bytesRead` counter of an `IngestionReport`,
+ * so job progress and ETA can be derived from the share of the upload consumed.
+ */
+class ProgressInputStream extends FilterInputStream {
+
+    private final IngestionReport report;
+
+    ProgressInputStream(InputStream in, IngestionReport report) {
+        super(in);
+        this.report = report;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            report.addBytesRead(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            report.addBytesRead(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        report.addBytesRead(skipped);
+        return skipped;
+    }
+}
@@ -0,0 +1,71 @@
+package com.cloudkitchen.service.impl;
+
+import com.cloudkitchen.model.RawDataRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Writes raw CSV lines to the cold `raw_lines` side table for the `side_table` raw line policy.
+ * The raw tables then only hold the parsed columns, and a row's line can still be looked up by
+ * `(source_table, source_id)` when it is needed for debugging or reprocessing.
+ */
+@Component
+public class RawLineSideTableWriter {
+
+    /**
+     * Inserts or replaces the raw line of one row; an upserted order keeps its id, so its line is replaced.
+     */
+    private static final String UPSERT_LINE_SQL = "INSERT INTO raw_data_schema.raw_lines (source_table, source_id, raw_line) "
+            + "VALUES (?, ?, ?) ON CONFLICT (source_table, source_id) DO UPDATE SET raw_line = EXCLUDED.raw_line";
+
+    /**
+     * Runs the batched side-table inserts.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Commits each chunk and its raw lines together.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Wraps a chunk writer so the raw lines are detached from the entities before the chunk is written,
+     * then stored in `raw_lines` under the ids the writer assigned, in the same transaction.
+     * Rows the writer left without an id (e.g. unchanged rows skipped by `UPSERT`) get no side-table entry.
+     *
+     * @param sourceTable The raw table the chunk is written to.
+     * @param chunkWriter The writer that persists the chunk and sets the entity ids.
+     * @param <T> The entity type of the chunk.
+     * @return The wrapping chunk writer.
+     */
+    public <T extends RawDataRecord> ToIntFunction<List<T>> wrap(String sourceTable, ToIntFunction<List<T>> chunkWriter) {
+        return chunk -> {
+            List<String> lines = new ArrayList<>(chunk.size());
+            for (T row : chunk) {
+                lines.add(row.getRawLine());
+                row.setRawLine(null);
+            }
+            Integer written = transactionTemplate.execute(status -> {
+                int rows = chunkWriter.applyAsInt(chunk);
+                List<Object[]> batch = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Long id = chunk.get(i).getId();
+                    if (id != null && lines.get(i) != null) {
+                        batch.add(new Object[] {sourceTable, id, lines.get(i)});
+                    }
+                }
+                jdbcTemplate.batchUpdate(UPSERT_LINE_SQL, batch);
+                return rows;
+            });
+            return written == null ? 0 : written;
+        };
+    }
+}
@@ -1,8 +1,11 @@
 
 CREATE SCHEMA IF NOT EXISTS raw_data_schema;
 
+-- Ids come from pooled sequences (allocationSize 500 in the entities) so Hibernate can batch inserts.
+CREATE SEQUENCE IF NOT EXISTS raw_data_schema.raw_items_data_seq INCREMENT BY 500;
+
 CREATE TABLE IF NOT EXISTS raw_data_schema.raw_items_data (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY DEFAULT nextval('raw_data_schema.raw_items_data_seq'),
     date DATE,
     timestamp TIMESTAMP,
     invoice_no VARCHAR(50),
@@ -11,11 +14,14 @@ CREATE TABLE IF NOT EXISTS raw_data_schema.raw_items_data (
     tax NUMERIC(10, 2),
     variation VARCHAR(255) NULL,
     category VARCHAR(255) NULL,
-    raw_line TEXT
+    raw_line TEXT,
+    raw_line_compressed BYTEA
 );
 
+CREATE SEQUENCE IF NOT EXISTS raw_data_schema.raw_orders_data_seq INCREMENT BY 500;
+
 CREATE TABLE IF NOT EXISTS raw_data_schema.raw_orders_data (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY DEFAULT nextval('raw_data_schema.raw_orders_data_seq'),
     invoice_no VARCHAR(50),
     date DATE,
     timestamp TIMESTAMP,
@@ -39,5 +45,40 @@ CREATE TABLE IF NOT EXISTS raw_data_schema.raw_orders_data (
     cgst NUMERIC(10, 2) NULL,
     amount_sgst NUMERIC(10, 2) NULL,
     sgst NUMERIC(10, 2) NULL,
-    raw_line TEXT
+    raw_line TEXT,
+    raw_line_compressed BYTEA,
+    row_hash BIGINT
+);
+
+-- Lets UPSERT ingestion find stored invoices. Not unique: STREAMING, COPY and BATCH still load exports
+-- that repeat an invoice, and UPSERT serializes its merges with an advisory lock instead.
+CREATE INDEX IF NOT EXISTS raw_orders_data_invoice_no_idx ON raw_data_schema.raw_orders_data (invoice_no);
+
+-- Cold storage for raw CSV lines when ingestion.raw-line-policy=side_table.
+CREATE TABLE IF NOT EXISTS raw_data_schema.raw_lines (
+    source_table VARCHAR(64) NOT NULL,
+    source_id BIGINT NOT NULL,
+    raw_line TEXT,
+    PRIMARY KEY (source_table, source_id)
+);
+
+-- Report dates touched by each ingested orders chunk (and the previous dates of orders an UPSERT changed).
+-- Append-only, so concurrent chunks never wait on each other; analytics processing drains it and
+-- recomputes only those days and their weeks and months.
+CREATE TABLE IF NOT EXISTS raw_data_schema.dirty_report_dates (
+    id BIGSERIAL PRIMARY KEY,
+    report_date DATE NOT NULL,
+    marked_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Lets analytics processing read the orders of a few dirty dates without scanning the table.
+CREATE INDEX IF NOT EXISTS raw_orders_data_date_idx ON raw_data_schema.raw_orders_data (date);
+
+-- Transactional outbox: one row per committed chunk when ingestion.outbox-enabled=true, written together
+-- with a NOTIFY on the raw_data_changed channel. Analytics processing deletes the rows it has processed.
+CREATE TABLE IF NOT EXISTS raw_data_schema.ingestion_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    source_table VARCHAR(64) NOT NULL,
+    row_count INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT now()
 );
@@ -0,0 +1,58 @@
+package com.cloudkitchen.csv;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressionFormatTest {
+
+    private static final String CSV = "Invoice No.,Address\nINV-1,\"Flat 4\nTower B\"\nINV-2,Street 2\n";
+
+    @Test
+    void detectsAndInflatesGzipAndZstdUploads() throws IOException {
+        byte[] plain = CSV.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(plain);
+        }
+        ByteArrayOutputStream zstd = new ByteArrayOutputStream();
+        try (OutputStream out = new ZstdOutputStream(zstd)) {
+            out.write(plain);
+        }
+
+        assertThat(CompressionFormat.fromMagicBytes(head(plain))).isEqualTo(CompressionFormat.NONE);
+        assertThat(CompressionFormat.fromMagicBytes(head(gzip.toByteArray()))).isEqualTo(CompressionFormat.GZIP);
+        assertThat(CompressionFormat.fromMagicBytes(head(zstd.toByteArray()))).isEqualTo(CompressionFormat.ZSTD);
+
+        for (byte[] compressed : new byte[][] {gzip.toByteArray(), zstd.toByteArray()}) {
+            CompressionFormat format = CompressionFormat.fromMagicBytes(head(compressed));
+            try (PosCsvTokenizer tokenizer = new PosCsvTokenizer(format.decompress(new ByteArrayInputStream(compressed)))) {
+                assertThat(tokenizer.nextRecord()).isTrue();
+                assertThat(tokenizer.getString(1)).isEqualTo("Flat 4\nTower B");
+                assertThat(tokenizer.nextRecord()).isTrue();
+                assertThat(tokenizer.nextRecord()).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void resolvesDeclaredContentTypes() {
+        assertThat(CompressionFormat.fromContentType("application/x-gzip")).isEqualTo(CompressionFormat.GZIP);
+        assertThat(CompressionFormat.fromContentType("application/zstd")).isEqualTo(CompressionFormat.ZSTD);
+        assertThat(CompressionFormat.fromContentType("text/csv")).isEqualTo(CompressionFormat.NONE);
+        assertThat(CompressionFormat.fromContentType(null)).isEqualTo(CompressionFormat.NONE);
+    }
+
+    private static byte[] head(byte[] bytes) {
+        return Arrays.copyOf(bytes, Math.min(bytes.length, CompressionFormat.MAGIC_LENGTH));
+    }
+}
@@ -0,0 +1,81 @@
+package com.cloudkitchen.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvRangeSplitterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rangesEndOnRecordBoundariesAndReproduceTheWholeFile() throws IOException {
+        StringBuilder csv = new StringBuilder("Invoice No.,Address,My Amount (₹)\n");
+        for (int i = 0; i < 500; i++) {
+            // Every third record has a quoted line feed and an escaped quote, so naive splitting would break it.
+            String address = i % 3 == 0 ? "\"Flat " + i + "\nTower \"\"B\"\"\"" : "Street " + i;
+            csv.append("INV-").append(i).append(',').append(address).append(',').append(i).append(".50\r\n");
+        }
+        Path file = tempDir.resolve("orders.csv");
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<List<String>> expected = readAll(new PosCsvTokenizer(Files.newInputStream(file)));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long headerEnd = CsvRangeSplitter.findHeaderEnd(channel);
+            assertThat(headerEnd).isEqualTo("Invoice No.,Address,My Amount (₹)\n".getBytes(StandardCharsets.UTF_8).length);
+
+            long[] boundaries = CsvRangeSplitter.split(channel, headerEnd, channel.size(), 97);
+            assertThat(boundaries.length).isGreaterThan(10);
+            assertThat(boundaries[0]).isEqualTo(headerEnd);
+            assertThat(boundaries[boundaries.length - 1]).isEqualTo(channel.size());
+
+            List<String> header = new PosCsvTokenizer(new FileRangeInputStream(channel, 0, headerEnd)).getHeader();
+            List<List<String>> actual = new ArrayList<>();
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                assertThat(boundaries[i + 1]).isGreaterThan(boundaries[i]);
+                actual.addAll(readAll(new PosCsvTokenizer(
+                        new FileRangeInputStream(channel, boundaries[i], boundaries[i + 1]), header, 64)));
+            }
+            assertThat(actual).hasSize(500).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void headerOnlyFileHasNoDataRanges() throws IOException {
+        Path file = tempDir.resolve("empty.csv");
+        Files.write(file, "Invoice No.,Address".getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long headerEnd = CsvRangeSplitter.findHeaderEnd(channel);
+            assertThat(headerEnd).isEqualTo(channel.size());
+            assertThat(readAll(new PosCsvTokenizer(new ByteArrayInputStream(new byte[0]), List.of("Invoice No.", "Address"), 64)))
+                    .isEmpty();
+        }
+    }
+
+    private static List<List<String>> readAll(PosCsvTokenizer tokenizer) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (tokenizer) {
+            while (tokenizer.nextRecord()) {
+                List<String> values = new ArrayList<>();
+                for (int i = 0; i < tokenizer.getFieldCount(); i++) {
+                    values.add(tokenizer.getString(i));
+                }
+                records.add(values);
+            }
+        }
+        return records;
+    }
+}
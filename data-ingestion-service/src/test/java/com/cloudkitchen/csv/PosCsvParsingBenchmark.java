@@ -0,0 +1,126 @@
+package com.cloudkitchen.csv;
+
+import com.cloudkitchen.model.RawOrdersData;
+import com.cloudkitchen.service.RawLinePolicy;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the commons-csv parsing path used by the ingestion service before
+ * and the byte-level {@link PosCsvTokenizer} path, both producing `RawOrdersData` entities.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.cloudkitchen.csv.PosCsvParsingBenchmark
+ * </pre>
+ * Add `-prof gc` to the JMH arguments (or use {@link org.openjdk.jmh.Main}) to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PosCsvParsingBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Param({"100000"})
+    private int rows;
+
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void generateOrdersReport() {
+        StringBuilder sb = new StringBuilder("Invoice No.,Date,Timestamp,Payment Type,Order Type,Area,Sub Order Type,"
+                + "Phone,Name,My Amount (₹),Discount (₹),Net Sales (₹)(M.A - D),Container Charge,Total Tax (₹),Total (₹)\n");
+        for (int i = 0; i < rows; i++) {
+            int day = 1 + i % 28;
+            int amount = 15000 + (i * 37) % 90000;
+            sb.append("INV-").append(i).append(',')
+                    .append(String.format("2025-07-%02d 00:00:00,2025-07-%02d 12:%02d:%02d,", day, day, i % 60, (i * 7) % 60))
+                    .append(i % 3 == 0 ? "Online" : "Cash").append(',')
+                    .append(i % 2 == 0 ? "Delivery" : "Pick Up").append(',')
+                    .append("\"Koramangala, Block ").append(i % 8).append("\",")
+                    .append(i % 2 == 0 ? "Zomato" : "Swiggy").append(',')
+                    .append(9_800_000_000L + i).append(',')
+                    .append("Customer ").append(i % 5000).append(',')
+                    .append(amount / 100).append('.').append(String.format("%02d", amount % 100)).append(',')
+                    .append("10.00,")
+                    .append((amount - 1000) / 100).append('.').append(String.format("%02d", amount % 100)).append(',')
+                    .append("5.00,12.34,")
+                    .append((amount + 1734) / 100).append('.').append(String.format("%02d", amount % 100)).append('\n');
+        }
+        csv = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void commonsCsvParser(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8));
+             CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
+            for (CSVRecord csvRecord : parser) {
+                RawOrdersData order = new RawOrdersData();
+                order.setInvoiceNo(csvRecord.get("Invoice No."));
+                order.setDate(Timestamp.valueOf(LocalDateTime.parse(csvRecord.get("Date"), FORMATTER)));
+                order.setTimestamp(Timestamp.valueOf(LocalDateTime.parse(csvRecord.get("Timestamp"), FORMATTER)));
+                order.setPaymentType(csvRecord.get("Payment Type"));
+                order.setOrderType(csvRecord.get("Order Type"));
+                order.setArea(csvRecord.get("Area"));
+                order.setSubOrderType(csvRecord.get("Sub Order Type"));
+                order.setPhone(csvRecord.get("Phone"));
+                order.setName(csvRecord.get("Name"));
+                order.setMyAmount(new BigDecimal(csvRecord.get("My Amount (₹)")));
+                order.setDiscount(new BigDecimal(csvRecord.get("Discount (₹)")));
+                order.setNetSales(new BigDecimal(csvRecord.get("Net Sales (₹)(M.A - D)")));
+                order.setContainerCharge(new BigDecimal(csvRecord.get("Container Charge")));
+                order.setTotalTax(new BigDecimal(csvRecord.get("Total Tax (₹)")));
+                order.setTotalAmount(new BigDecimal(csvRecord.get("Total (₹)")));
+                order.setRawLine(csvRecord.toString());
+                blackhole.consume(order);
+            }
+        }
+    }
+
+    @Benchmark
+    public void posCsvTokenizer(Blackhole blackhole) throws IOException {
+        try (PosCsvTokenizer tokenizer = new PosCsvTokenizer(new ByteArrayInputStream(csv))) {
+            RawOrdersRowMapper mapper = new RawOrdersRowMapper(tokenizer, RawLinePolicy.FULL);
+            while (tokenizer.nextRecord()) {
+                blackhole.consume(mapper.map(tokenizer));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PosCsvParsingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
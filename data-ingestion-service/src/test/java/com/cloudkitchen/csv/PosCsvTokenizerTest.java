@@ -0,0 +1,133 @@
+package com.cloudkitchen.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PosCsvTokenizerTest {
+
+    private static final String CSV = "Invoice No.,Date,Name,Address,My Amount (₹)\r\n"
+            + "INV-1,2025-07-01 10:15:00,  Asha  ,\"12, MG Road\",100.50\r\n"
+            + "\r\n"
+            + "INV-2,2025-07-01 11:00:00,\"Ravi \"\"RK\"\" Kumar\",\"Flat 4\nTower B\",-5\n"
+            + "INV-3,2025-07-02 09:30:00,,\"\",0.05";
+
+    @Test
+    void matchesCommonsCsvForQuotedMultilineAndTrimmedFields() throws IOException {
+        List<List<String>> expected = new ArrayList<>();
+        try (CSVParser parser = new CSVParser(new StringReader(CSV),
+                CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
+            for (CSVRecord record : parser) {
+                expected.add(record.toList());
+            }
+        }
+
+        // A tiny buffer forces refills and growth in the middle of records.
+        try (PosCsvTokenizer tokenizer = tokenizer(CSV, 16)) {
+            List<List<String>> actual = new ArrayList<>();
+            while (tokenizer.nextRecord()) {
+                List<String> values = new ArrayList<>();
+                for (int i = 0; i < tokenizer.getFieldCount(); i++) {
+                    values.add(tokenizer.getString(i));
+                }
+                actual.add(values);
+            }
+            assertThat(actual).isEqualTo(expected);
+            assertThat(tokenizer.getRecordNumber()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void resolvesHeadersIgnoringCaseAndKeepsRawRecordIntact() throws IOException {
+        try (PosCsvTokenizer tokenizer = tokenizer(CSV, 1024)) {
+            int name = tokenizer.columnIndex("name");
+            assertThat(tokenizer.columnIndex("MY AMOUNT (₹)")).isEqualTo(4);
+            assertThatThrownBy(() -> tokenizer.columnIndex("Phone")).isInstanceOf(IllegalArgumentException.class);
+
+            tokenizer.nextRecord();
+            tokenizer.nextRecord();
+            assertThat(tokenizer.getString(name)).isEqualTo("Ravi \"RK\" Kumar");
+            assertThat(tokenizer.getRawRecord())
+                    .isEqualTo("INV-2,2025-07-01 11:00:00,\"Ravi \"\"RK\"\" Kumar\",\"Flat 4\nTower B\",-5");
+        }
+    }
+
+    @Test
+    void rawRecordHashDependsOnlyOnRecordContent() throws IOException {
+        try (PosCsvTokenizer tokenizer = tokenizer("Invoice No.,Total\nINV-1,10\r\nINV-1,11\nINV-1,10\n", 1024)) {
+            tokenizer.nextRecord();
+            long first = tokenizer.getRawRecordHash();
+            tokenizer.nextRecord();
+            long changed = tokenizer.getRawRecordHash();
+            tokenizer.nextRecord();
+            // The line terminator is not part of the record, so CRLF and LF rows hash the same.
+            assertThat(tokenizer.getRawRecordHash()).isEqualTo(first).isNotEqualTo(changed);
+        }
+    }
+
+    @Test
+    void parsesDecimalsExactlyLikeBigDecimalConstructor() throws IOException {
+        String[] values = {"100.50", "-5", "0.05", "+7.1", ".5", "12.", "123456789012.34", "1E+3", "99999999999999999999.99"};
+        StringBuilder csv = new StringBuilder("Amount\n");
+        for (String value : values) {
+            csv.append(value).append('\n');
+        }
+        try (PosCsvTokenizer tokenizer = tokenizer(csv.toString(), 1024)) {
+            for (String value : values) {
+                tokenizer.nextRecord();
+                BigDecimal parsed = tokenizer.getDecimal(0);
+                assertThat(parsed.unscaledValue()).isEqualTo(new BigDecimal(value).unscaledValue());
+                assertThat(parsed.scale()).isEqualTo(new BigDecimal(value).scale());
+            }
+        }
+    }
+
+    @Test
+    void parsesFixedLayoutTimestampsAndRejectsInvalidNumbers() throws IOException {
+        try (PosCsvTokenizer tokenizer = tokenizer("Date,Qty.\n2025-12-31 23:59:58,42\nnot a date,4x\n", 1024)) {
+            tokenizer.nextRecord();
+            assertThat(tokenizer.getTimestamp(0)).isEqualTo(Timestamp.valueOf(LocalDateTime.of(2025, 12, 31, 23, 59, 58)));
+            assertThat(tokenizer.getInt(1)).isEqualTo(42);
+
+            tokenizer.nextRecord();
+            assertThatThrownBy(() -> tokenizer.getTimestamp(0)).isInstanceOf(java.time.format.DateTimeParseException.class);
+            assertThatThrownBy(() -> tokenizer.getInt(1)).isInstanceOf(NumberFormatException.class);
+        }
+    }
+
+    @Test
+    void rejectsBareCarriageReturnLineEndingsButKeepsQuotedOnes() throws IOException {
+        assertThatThrownBy(() -> tokenizer("Invoice No.,Total\rINV-1,10\rINV-2,11\r", 1024))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("bare CR");
+
+        // A buffer of 64 bytes makes CRLF pairs straddle refills.
+        String csv = "Invoice No.,Note\r\n" + "INV-1,\"line one\rline two\"\r\n".repeat(10);
+        try (PosCsvTokenizer tokenizer = tokenizer(csv, 64)) {
+            int records = 0;
+            while (tokenizer.nextRecord()) {
+                assertThat(tokenizer.getString(1)).isEqualTo("line one\rline two");
+                records++;
+            }
+            assertThat(records).isEqualTo(10);
+        }
+    }
+
+    private static PosCsvTokenizer tokenizer(String csv, int bufferSize) throws IOException {
+        return new PosCsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+}
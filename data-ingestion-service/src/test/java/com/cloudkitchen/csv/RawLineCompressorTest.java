@@ -0,0 +1,29 @@
+package com.cloudkitchen.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RawLineCompressorTest {
+
+    @Test
+    void roundTripsRangesOfALargerBufferWithOneReusedCompressor() {
+        RawLineCompressor compressor = new RawLineCompressor();
+        String line = "INV-1,2025-07-01 10:15:00,\"Ravi \"\"RK\"\" Kumar\",\"12, MG Road ₹\",100.50".repeat(40);
+        byte[] buffer = ("junk\n" + line + "\nmore").getBytes(StandardCharsets.UTF_8);
+        int start = 5;
+        int end = start + line.getBytes(StandardCharsets.UTF_8).length;
+
+        byte[] first = compressor.compress(buffer, start, end);
+        byte[] second = compressor.compress(buffer, 0, 4);
+
+        assertThat(first.length).isLessThan(end - start);
+        assertThat(RawLineCompressor.decompress(first)).isEqualTo(line);
+        assertThat(RawLineCompressor.decompress(second)).isEqualTo("junk");
+        assertThatThrownBy(() -> RawLineCompressor.decompress(new byte[] {1, 2, 3}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
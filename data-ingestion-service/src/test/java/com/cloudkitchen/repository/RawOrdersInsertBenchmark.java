@@ -0,0 +1,237 @@
+package com.cloudkitchen.repository;
+
+import com.cloudkitchen.model.RawOrdersData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.stat.Statistics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Compares what Hibernate sends to PostgreSQL when 100k `RawOrdersData` entities are persisted through
+ * an `EntityManager`, once with the baseline settings and once with the `high-throughput` profile.
+ * <p>
+ * The baseline maps the id back to `IDENTITY` (via `raw-orders-identity-orm.xml`) and uses no JDBC
+ * batching, as before the switch to pooled sequences: Hibernate must read back each generated key and
+ * sends one `INSERT` per row. The high-throughput run uses the entity's pooled sequence and the settings
+ * of `application-high-throughput.properties`: one `nextval` per `allocationSize` ids and one JDBC batch
+ * per `hibernate.jdbc.batch_size` rows, which the driver rewrites into multi-row inserts.
+ * <p>
+ * Each run counts the statements and batches executed through a counting connection provider, next to
+ * Hibernate's own statistics (`hibernate.generate_statistics`), and rolls its transaction back, so
+ * `raw_orders_data` is left unchanged apart from the sequence values used.
+ * <p>
+ * It needs a running PostgreSQL with the ingestion schema and is not part of the test suite. Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/cloud_kitchen \
+ *     com.cloudkitchen.repository.RawOrdersInsertBenchmark
+ * </pre>
+ */
+public class RawOrdersInsertBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    /**
+     * Entities flushed and cleared from the persistence context at a time, in both runs.
+     */
+    private static final int FLUSH_SIZE = 500;
+
+    /**
+     * Prefix of the Spring properties passed to Hibernate as they are.
+     */
+    private static final String JPA_PREFIX = "spring.jpa.properties.";
+
+    /**
+     * Prefix of the Spring properties passed to the PostgreSQL driver.
+     */
+    private static final String DRIVER_PREFIX = "spring.datasource.hikari.data-source-properties.";
+
+    public static void main(String[] args) throws IOException {
+        Properties driver = new Properties();
+        driver.setProperty("user", System.getProperty("benchmark.jdbc.user", "postgres"));
+        driver.setProperty("password", System.getProperty("benchmark.jdbc.password", "password"));
+
+        Map<String, Object> baseline = new HashMap<>();
+        run("IDENTITY, no batching", baseline, driver, true);
+
+        Map<String, Object> highThroughput = new HashMap<>();
+        Properties profile = new Properties();
+        try (InputStream in = RawOrdersInsertBenchmark.class.getResourceAsStream("/application-high-throughput.properties")) {
+            profile.load(in);
+        }
+        Properties batchedDriver = new Properties();
+        batchedDriver.putAll(driver);
+        for (String key : profile.stringPropertyNames()) {
+            if (key.startsWith(JPA_PREFIX)) {
+                highThroughput.put(key.substring(JPA_PREFIX.length()), profile.getProperty(key));
+            } else if (key.startsWith(DRIVER_PREFIX)) {
+                batchedDriver.setProperty(key.substring(DRIVER_PREFIX.length()), profile.getProperty(key));
+            }
+        }
+        run("Pooled sequence, high-throughput profile", highThroughput, batchedDriver, false);
+    }
+
+    /**
+     * Persists the orders with the given Hibernate settings and prints what was sent.
+     */
+    private static void run(String label, Map<String, Object> settings, Properties driver, boolean identity) {
+        String url = System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/cloud_kitchen");
+        CountingConnectionProvider connections = new CountingConnectionProvider(url, driver);
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySettings(settings)
+                .applySetting(AvailableSettings.CONNECTION_PROVIDER, connections)
+                .applySetting(AvailableSettings.DEFAULT_SCHEMA, "raw_data_schema")
+                .applySetting(AvailableSettings.GENERATE_STATISTICS, "true")
+                .build();
+        MetadataSources sources = new MetadataSources(registry).addAnnotatedClass(RawOrdersData.class);
+        if (identity) {
+            sources.addResource("com/cloudkitchen/repository/raw-orders-identity-orm.xml");
+        }
+        try (SessionFactory sessionFactory = sources.buildMetadata().buildSessionFactory()) {
+            EntityManagerFactory entityManagerFactory = sessionFactory;
+            String invoicePrefix = "BENCH-" + System.nanoTime() + "-";
+            long start = System.nanoTime();
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                entityManager.getTransaction().begin();
+                for (int i = 0; i < ROWS; i++) {
+                    entityManager.persist(order(invoicePrefix, i));
+                    if ((i + 1) % FLUSH_SIZE == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+                entityManager.flush();
+                long elapsed = System.nanoTime() - start;
+                entityManager.getTransaction().rollback();
+                report(label, sessionFactory.getStatistics(), connections, elapsed);
+            } finally {
+                entityManager.close();
+            }
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+
+    private static RawOrdersData order(String invoicePrefix, int row) {
+        BigDecimal amount = BigDecimal.valueOf(100 + row % 900, 0).add(BigDecimal.valueOf(row % 100, 2));
+        RawOrdersData order = new RawOrdersData();
+        order.setInvoiceNo(invoicePrefix + row);
+        order.setDate(new Timestamp(1_750_000_000_000L + row * 60_000L));
+        order.setOrderType("Delivery");
+        order.setPaymentType("Online");
+        order.setMyAmount(amount);
+        order.setNetSales(amount);
+        order.setTotalAmount(amount);
+        order.setRawLine(invoicePrefix + row + ",2025-07-01 10:15:00," + amount);
+        return order;
+    }
+
+    private static void report(String label, Statistics statistics, CountingConnectionProvider connections, long elapsedNanos) {
+        double millis = elapsedNanos / 1_000_000.0;
+        System.out.printf("%-42s %,8d inserts  %,8d statements prepared  %,8d executed  %,6d batches  "
+                        + "%,8d round trips  %,10.1f ms  %,10.0f rows/s%n",
+                label, statistics.getEntityInsertCount(), statistics.getPrepareStatementCount(),
+                connections.statements, connections.batches, connections.statements + connections.batches,
+                millis, ROWS / (millis / 1000));
+    }
+
+    /**
+     * Opens plain driver connections whose statements count every execution and every executed batch.
+     */
+    private static final class CountingConnectionProvider implements ConnectionProvider {
+
+        private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate");
+
+        private final String url;
+
+        private final Properties driver;
+
+        private long statements;
+
+        private long batches;
+
+        private CountingConnectionProvider(String url, Properties driver) {
+            this.url = url;
+            this.driver = driver;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = DriverManager.getConnection(url, driver);
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (result instanceof PreparedStatement statement) {
+                            return count(statement, PreparedStatement.class);
+                        }
+                        if (result instanceof Statement statement) {
+                            return count(statement, Statement.class);
+                        }
+                        return result;
+                    });
+        }
+
+        private Object count(Statement statement, Class<? extends Statement> type) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+                if (EXECUTE_METHODS.contains(method.getName())) {
+                    statements++;
+                } else if (method.getName().equals("executeBatch") || method.getName().equals("executeLargeBatch")) {
+                    batches++;
+                }
+                return invoke(statement, method, args);
+            });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public void closeConnection(Connection connection) throws SQLException {
+            connection.close();
+        }
+
+        @Override
+        public boolean supportsAggressiveRelease() {
+            return false;
+        }
+
+        @Override
+        public boolean isUnwrappableAs(Class<?> unwrapType) {
+            return false;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> unwrapType) {
+            throw new UnsupportedOperationException(unwrapType.getName());
+        }
+    }
+}